@@ -0,0 +1,85 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.corpus_tools.peppermodules.rstModules.RST2SaltMapper;
+import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.tests.RSTCorpusGenerator;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocument;
+
+/**
+ * Helpers shared by the benchmarks: writing a rs3 document of a given shape
+ * and mapping a model with given properties.
+ */
+public final class BenchmarkDocuments {
+	private BenchmarkDocuments() {
+	}
+
+	/**
+	 * Writes a rs3 document generated by {@link RSTCorpusGenerator} to a
+	 * temporary file, which is deleted on exit.
+	 *
+	 * @param segments
+	 *            number of segments
+	 * @param depth
+	 *            number of group levels above the segments
+	 * @param signalsPerRelation
+	 *            average number of signals per relation
+	 * @return the file
+	 */
+	public static File write(int segments, int depth, double signalsPerRelation) throws IOException {
+		File file = File.createTempFile("benchmark", ".rs3");
+		file.deleteOnExit();
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		generator.setSegments(segments);
+		generator.setDepth(depth);
+		generator.setSignalsPerRelation(signalsPerRelation);
+		generator.write(file);
+		return (file);
+	}
+
+	/**
+	 * Creates properties from the given key value pairs.
+	 */
+	public static RSTImporterProperties properties(String... keyValues) {
+		RSTImporterProperties props = new RSTImporterProperties();
+		Properties properties = new Properties();
+		for (int i = 0; i + 1 < keyValues.length; i += 2) {
+			properties.put(keyValues[i], keyValues[i + 1]);
+		}
+		props.setPropertyValues(properties);
+		return (props);
+	}
+
+	/**
+	 * Maps the given model to a new {@link SDocument} with a new mapper.
+	 */
+	public static SDocument map(RSTDocument rstDocument, RSTImporterProperties props) {
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		mapper.setDocument(SaltFactory.createSDocument());
+		mapper.setProperties(props);
+		mapper.mapSDocument(rstDocument);
+		return (mapper.getDocument());
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
+import org.corpus_tools.peppermodules.rstModules.RST2SaltMapper;
+import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocumentCache;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocument;
+import org.eclipse.emf.common.util.URI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Benchmarks the stages of the import of one document: parsing the XML,
+ * reading it into a {@link RSTDocument} or taking it from a
+ * {@link RSTDocumentCache} and mapping the model to Salt
+ * without tokenization, with the default settings, with the default
+ * tokenizer in one pass per document and with the simple tokenizer. The cost of marking signals is the difference between runs with
+ * a signal density of 0 and above.
+ * <br/>
+ * {@link #importDocument(RSTImportBenchmark)} runs the whole pipeline and is
+ * meant to measure the scaling over threads. It reports the throughput of all
+ * threads together, so runs with <code>-t 1</code> and <code>-t N</code>
+ * compare directly, e.g.
+ * <code>-Djmh.args="-t 8 RSTImportBenchmark.importDocument"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSTImportBenchmark {
+
+	/** number of segments of the document **/
+	@Param({ "1000", "10000" })
+	public int segments;
+
+	/** number of group levels above the segments **/
+	@Param({ "2", "6" })
+	public int depth;
+
+	/** average number of signals per relation **/
+	@Param({ "0", "2" })
+	public double signalDensity;
+
+	private File file = null;
+	private URI uri = null;
+	private SAXParserFactory factory = null;
+	private RSTDocument rstDocument = null;
+	private RSTDocumentCache cache = null;
+	private RSTImporterProperties noTokenize = null;
+	private RSTImporterProperties tokenize = null;
+	private RSTImporterProperties batchTokenize = null;
+	private RSTImporterProperties simpleTokenize = null;
+	private RSTImporterProperties parallel = null;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.file = BenchmarkDocuments.write(this.segments, this.depth, this.signalDensity);
+		this.uri = URI.createFileURI(this.file.getAbsolutePath());
+		this.factory = SAXParserFactory.newInstance();
+		this.rstDocument = new RSTDocument(this.uri);
+		this.cache = new RSTDocumentCache(Files.createTempDirectory("rstcache").toFile(), 1L << 30);
+		new RSTDocument(this.uri, Parser.SAX, this.cache);
+		this.noTokenize = BenchmarkDocuments.properties(RSTImporterProperties.PROP_TOKENIZE, "no");
+		this.tokenize = new RSTImporterProperties();
+		this.batchTokenize = BenchmarkDocuments.properties(RSTImporterProperties.PROP_BATCH_TOKENIZE, "yes");
+		this.simpleTokenize = BenchmarkDocuments.properties(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+		this.parallel = BenchmarkDocuments.properties(RSTImporterProperties.PROP_TOKENIZE, "no", RSTImporterProperties.PROP_PARALLEL_MAPPING, "yes");
+	}
+
+	@TearDown
+	public void tearDown() {
+		for (File entry : this.cache.getDirectory().listFiles()) {
+			entry.delete();
+		}
+		this.cache.getDirectory().delete();
+	}
+
+	/**
+	 * Parses the file without handling any event, the lower bound for
+	 * reading.
+	 */
+	@Benchmark
+	public DefaultHandler parseXML() throws IOException, SAXException, Exception {
+		DefaultHandler handler = new DefaultHandler();
+		this.factory.newSAXParser().parse(this.file, handler);
+		return (handler);
+	}
+
+	/**
+	 * Reads the file into a {@link RSTDocument} with the {@link
+	 * org.corpus_tools.peppermodules.rstModules.reader.RSTReader}.
+	 */
+	@Benchmark
+	public RSTDocument readDocument() {
+		return (new RSTDocument(this.uri));
+	}
+
+	/**
+	 * Reads the {@link RSTDocument} from a {@link RSTDocumentCache}, which
+	 * contains the unchanged file.
+	 */
+	@Benchmark
+	public RSTDocument readCachedDocument() {
+		return (new RSTDocument(this.uri, Parser.SAX, this.cache));
+	}
+
+	@Benchmark
+	public SDocument mapWithoutTokenize() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.noTokenize));
+	}
+
+	/**
+	 * Maps like {@link #mapWithoutTokenize()}, but creates the groups,
+	 * relations, signals and secondary edges in parallel.
+	 */
+	@Benchmark
+	public SDocument mapInParallel() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.parallel));
+	}
+
+	/**
+	 * Maps with the default settings, which tokenize with the default
+	 * tokenizer, one pass per segment.
+	 */
+	@Benchmark
+	public SDocument mapWithTokenize() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.tokenize));
+	}
+
+	/**
+	 * Maps with the default tokenizer, in one pass per document.
+	 */
+	@Benchmark
+	public SDocument mapWithBatchTokenize() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.batchTokenize));
+	}
+
+	/**
+	 * Maps with the simple tokenizer, one pass per segment.
+	 */
+	@Benchmark
+	public SDocument mapWithSimpleTokenize() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.simpleTokenize));
+	}
+
+	/**
+	 * Reads and maps the file like a mapper created by the importer does,
+	 * each thread with its own mapper.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public SDocument importDocument(RSTImportBenchmark state) {
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		mapper.setDocument(SaltFactory.createSDocument());
+		mapper.setResourceURI(state.uri);
+		mapper.setProperties(state.simpleTokenize);
+		if (!DOCUMENT_STATUS.COMPLETED.equals(mapper.mapSDocument())) {
+			throw new IllegalStateException("Cannot map " + state.file);
+		}
+		return (mapper.getDocument());
+	}
+}
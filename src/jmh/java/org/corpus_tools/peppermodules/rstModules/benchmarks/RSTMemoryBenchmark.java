@@ -0,0 +1,122 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.salt.common.SDocument;
+import org.eclipse.emf.common.util.URI;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Measures the heap retained by a mapped document graph with and without
+ * {@link RSTImporterProperties#PROP_TEMP_ANNOTATIONS}. Each invocation maps
+ * the document, keeps the graph and measures the used heap after a full
+ * collection minus the used heap before the mapping. JMH sums counters over
+ * all measured iterations and forks, so each invocation adds its share and
+ * the counter 'retainedBytes' is the mean retained size of a graph. The
+ * bytes allocated while mapping are reported by the gc profiler as
+ * 'gc.alloc.rate.norm', e.g. with
+ * <code>-Djmh.args="-f 1 -prof gc RSTMemoryBenchmark"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 3, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class RSTMemoryBenchmark {
+
+	/** number of segments of the document **/
+	@Param({ "10000" })
+	public int segments;
+
+	/** average number of signals per relation **/
+	@Param({ "2" })
+	public double signalDensity;
+
+	/** value of {@link RSTImporterProperties#PROP_TEMP_ANNOTATIONS} **/
+	@Param({ "no", "yes" })
+	public String tempAnnotations;
+
+	private RSTDocument rstDocument = null;
+	private RSTImporterProperties props = null;
+
+	/** the graph of the last invocation, kept until the next one **/
+	private SDocument document = null;
+
+	/** number of measured invocations over all forks **/
+	private long invocations = 1;
+
+	/**
+	 * The share of the retained heap of the graph mapped by the last
+	 * invocation.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Retained {
+		public long retainedBytes;
+	}
+
+	@Setup
+	public void setUp(BenchmarkParams params) throws IOException {
+		this.invocations = (long) params.getMeasurement().getCount() * params.getMeasurement().getBatchSize() * Math.max(1, params.getForks());
+		this.rstDocument = new RSTDocument(URI.createFileURI(BenchmarkDocuments.write(this.segments, 6, this.signalDensity).getAbsolutePath()));
+		this.props = BenchmarkDocuments.properties(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '", RSTImporterProperties.PROP_TEMP_ANNOTATIONS, this.tempAnnotations);
+	}
+
+	@Setup(Level.Invocation)
+	public void releaseGraph() {
+		this.document = null;
+	}
+
+	@Benchmark
+	public SDocument mapAndRetain(Retained retained) {
+		long before = usedHeap();
+		this.document = BenchmarkDocuments.map(this.rstDocument, this.props);
+		retained.retainedBytes = (usedHeap() - before) / this.invocations;
+		return (this.document);
+	}
+
+	/**
+	 * Returns the used heap after full collections.
+	 */
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return (ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+	}
+}
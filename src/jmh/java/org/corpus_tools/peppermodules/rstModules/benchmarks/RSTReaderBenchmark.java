@@ -0,0 +1,153 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.stream.XMLStreamException;
+
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.reader.RSTReader;
+import org.corpus_tools.peppermodules.rstModules.reader.RSTStreamReader;
+import org.corpus_tools.peppermodules.rstModules.reader.SAXParserPool;
+import org.corpus_tools.peppermodules.rstModules.tests.RSTCorpusGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Benchmarks the {@link RSTReader} on a document held in memory, so that no
+ * file is read: parsing it with SAX and with StAX, and feeding the SAX
+ * callbacks of segments directly to isolate the accumulation of the segment
+ * texts, which make up most of the bytes of a file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSTReaderBenchmark {
+
+	/** number of segments of the document **/
+	@Param({ "10000" })
+	public int segments;
+
+	/** average number of words per segment **/
+	@Param({ "8", "64" })
+	public int wordsPerSegment;
+
+	/** number of characters between two line breaks in a segment text **/
+	private static final int LINE_LENGTH = 80;
+
+	private String content = null;
+	private char[] text = null;
+	private AttributesImpl[] attributes = null;
+
+	@Setup
+	public void setUp() throws IOException {
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		generator.setSegments(this.segments);
+		generator.setWordsPerSegment(this.wordsPerSegment);
+		StringWriter writer = new StringWriter();
+		generator.write(writer, false);
+		this.content = writer.toString();
+
+		// a segment text broken into lines like in files of the RST Tool
+		StringBuilder segmentText = new StringBuilder();
+		for (int i = 0; i < this.wordsPerSegment; i++) {
+			segmentText.append(i == 0 ? "" : " ").append("word").append(i);
+			if (segmentText.length() - segmentText.lastIndexOf("\n") > LINE_LENGTH) {
+				segmentText.append('\n');
+			}
+		}
+		this.text = segmentText.toString().toCharArray();
+		this.attributes = new AttributesImpl[this.segments];
+		for (int i = 0; i < this.segments; i++) {
+			this.attributes[i] = new AttributesImpl();
+			this.attributes[i].addAttribute("", "id", "id", "CDATA", String.valueOf(i + 1));
+		}
+	}
+
+	@Benchmark
+	public RSTDocument parseSAX() throws Exception {
+		RSTDocument rstDocument = new RSTDocument();
+		RSTReader rstReader = new RSTReader();
+		rstReader.setRSTDocument(rstDocument);
+		SAXParser saxParser = SAXParserPool.acquire();
+		try {
+			XMLReader xmlReader = saxParser.getXMLReader();
+			xmlReader.setProperty(SAXParserPool.PROPERTY_LEXICAL_HANDLER, rstReader);
+			xmlReader.setContentHandler(rstReader);
+			xmlReader.parse(new InputSource(new StringReader(this.content)));
+		} finally {
+			SAXParserPool.release(saxParser);
+		}
+		return (rstDocument);
+	}
+
+	@Benchmark
+	public RSTDocument parseStAX() throws XMLStreamException {
+		RSTDocument rstDocument = new RSTDocument();
+		RSTStreamReader rstReader = new RSTStreamReader();
+		rstReader.setRSTDocument(rstDocument);
+		rstReader.read(new StringReader(this.content));
+		return (rstDocument);
+	}
+
+	/**
+	 * Passes the events of the segments to the {@link RSTReader} as a SAX
+	 * parser would, the text of each segment in two calls of
+	 * {@link RSTReader#characters(char[], int, int)}.
+	 */
+	@Benchmark
+	public RSTDocument characters() throws SAXException {
+		RSTDocument rstDocument = new RSTDocument();
+		RSTReader rstReader = new RSTReader();
+		rstReader.setRSTDocument(rstDocument);
+		AttributesImpl noAttributes = new AttributesImpl();
+		rstReader.startElement("", "rst", "rst", noAttributes);
+		rstReader.startElement("", "body", "body", noAttributes);
+		int half = this.text.length / 2;
+		for (int i = 0; i < this.segments; i++) {
+			rstReader.startElement("", "segment", "segment", this.attributes[i]);
+			rstReader.characters(this.text, 0, half);
+			rstReader.characters(this.text, half, this.text.length - half);
+			rstReader.endElement("", "segment", "segment");
+		}
+		rstReader.endElement("", "body", "body");
+		rstReader.endElement("", "rst", "rst");
+		return (rstDocument);
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.salt.common.SDocument;
+import org.eclipse.emf.common.util.URI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the mapping of a document with 50k tokens in segments of eight
+ * tokens with {@link RSTImporterProperties#PROP_SIMPLE_TOKENIZE}, once
+ * tokenizing each segment and once tokenizing the whole text with
+ * {@link RSTImporterProperties#PROP_BATCH_TOKENIZE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSTTokenizeBenchmark {
+
+	/** number of tokens of the document **/
+	@Param({ "50000" })
+	public int tokens;
+
+	/** number of tokens per segment **/
+	private static final int SEGMENT_LENGTH = 8;
+
+	private RSTDocument rstDocument = null;
+	private RSTImporterProperties simpleTokenize = null;
+	private RSTImporterProperties simpleBatchTokenize = null;
+
+	@Setup
+	public void setUp() throws IOException {
+		File file = BenchmarkDocuments.write(this.tokens / SEGMENT_LENGTH, 6, 0);
+		this.rstDocument = new RSTDocument(URI.createFileURI(file.getAbsolutePath()));
+		this.simpleTokenize = BenchmarkDocuments.properties(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+		this.simpleBatchTokenize = BenchmarkDocuments.properties(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '", RSTImporterProperties.PROP_BATCH_TOKENIZE, "yes");
+	}
+
+	/**
+	 * Maps the generated document with the simple tokenizer, tokenizing each
+	 * segment.
+	 */
+	@Benchmark
+	public SDocument mapWithSimpleTokenize() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.simpleTokenize));
+	}
+
+	/**
+	 * Maps the generated document with the simple tokenizer, tokenizing the
+	 * whole text at once.
+	 */
+	@Benchmark
+	public SDocument mapWithSimpleBatchTokenize() {
+		return (BenchmarkDocuments.map(this.rstDocument, this.simpleBatchTokenize));
+	}
+}
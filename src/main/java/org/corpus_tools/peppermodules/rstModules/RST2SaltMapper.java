@@ -17,12 +17,20 @@
  */
 package org.corpus_tools.peppermodules.rstModules;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
 import org.corpus_tools.pepper.impl.PepperMapperImpl;
 import org.corpus_tools.pepper.modules.PepperMapper;
+import org.corpus_tools.pepper.modules.PepperModuleProperties;
 import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.corpus_tools.pepper.modules.exceptions.PepperModulePropertyException;
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics.Counter;
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics.Phase;
 import org.corpus_tools.peppermodules.rstModules.models.*;
 import org.corpus_tools.salt.SaltFactory;
 import org.corpus_tools.salt.common.*;
@@ -30,6 +38,7 @@ import org.corpus_tools.salt.common.tokenizer.SimpleTokenizer;
 import org.corpus_tools.salt.common.tokenizer.Tokenizer;
 import org.corpus_tools.salt.core.SAnnotation;
 import org.corpus_tools.salt.core.SNode;
+import org.corpus_tools.salt.core.SRelation;
 
 /**
  * Maps a Rst-Document (RSTDocument) to a Salt document (SDocument).
@@ -46,6 +55,23 @@ import org.corpus_tools.salt.core.SNode;
  * created</li>
  *
  * </ul>
+ * An instance maps exactly one document and is confined to the thread
+ * calling {@link #mapSDocument()}, therefore its tables are not synchronized.
+ * Pepper creates a new mapper for each document (see
+ * {@link RSTImporter#createPepperMapper(org.corpus_tools.salt.graph.Identifier)}),
+ * so documents can be mapped in parallel. Mappers share no mutable state,
+ * apart from the pool of SAX parsers and the StAX factory used for reading,
+ * which are thread-safe.
+ * <br/>
+ * With {@link RSTImporterProperties#PROP_PARALLEL_MAPPING} the structures of
+ * the groups, the dominance relations, the signals and the secondary edges of
+ * one document are additionally created by the common fork-join pool, see
+ * {@link #forEach(int, IndexedJob)}. The settings are resolved and the
+ * lookup table of the {@link RSTDiscourseIndex} is built by the mapping
+ * thread before forking, the jobs only read them and the tables of the
+ * mapper, all objects they create are added to the tables, the
+ * {@link RSTDiscourseIndex} and the {@link SDocumentGraph} afterwards by the
+ * mapping thread in the order of the document, so the result is the same.
  *
  * @author Florian Zipser, Luke Gessler
  *
@@ -63,17 +89,19 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	 */
 	private void init() {
 		this.tokenizer = new Tokenizer();
-		this.rstId2SStructure = new Hashtable<>();
-		this.rstId2UUID = new Hashtable<>();
-		this.primaryEdgeIndex = new Hashtable<>();
+		this.rstId2SStructure = new HashMap<>();
+		this.rstId2UUID = new HashMap<>();
+		this.primaryEdgeIndex = new HashMap<>();
+		this.discourseIndex = new RSTDiscourseIndex();
 	}
 
 	private RSTDocument currentRSTDocument = null;
 
 	public void setCurrentRSTDocument(RSTDocument currentRSTDocument) {
-		this.rstId2SStructure = new Hashtable<>();
-		this.rstId2UUID = new Hashtable<>();
-		this.primaryEdgeIndex = new Hashtable<>();
+		this.rstId2SStructure = new HashMap<>();
+		this.rstId2UUID = new HashMap<>();
+		this.primaryEdgeIndex = new HashMap<>();
+		this.discourseIndex = new RSTDiscourseIndex();
 		this.currentRSTDocument = currentRSTDocument;
 	}
 
@@ -81,8 +109,78 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 		return this.currentRSTDocument;
 	}
 
+	/**
+	 * Collects the time spent in each phase and the number of mapped elements,
+	 * shared by all mappers of an {@link RSTImporter}.
+	 */
+	private RSTImportStatistics statistics = new RSTImportStatistics();
+
+	public RSTImportStatistics getStatistics() {
+		return statistics;
+	}
+
+	public void setStatistics(RSTImportStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * The cache of parsed documents shared by all mappers of an
+	 * {@link RSTImporter}, null if no cache is used.
+	 */
+	private RSTDocumentCache cache = null;
+
+	public RSTDocumentCache getCache() {
+		return cache;
+	}
+
+	public void setCache(RSTDocumentCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * The manifest of an incremental import shared by all mappers of an
+	 * {@link RSTImporter}, null if all documents are mapped.
+	 */
+	private RSTImportManifest manifest = null;
+
+	public RSTImportManifest getManifest() {
+		return manifest;
+	}
+
+	public void setManifest(RSTImportManifest manifest) {
+		this.manifest = manifest;
+	}
+
 	// ================================================ end: current SDocument
 
+	/** the properties resolved once for the mapping of the document **/
+	private RSTImporterSettings settings = null;
+
+	/**
+	 * Returns the snapshot of the properties used while mapping the current
+	 * document. It is created from {@link #getProperties()} on the first call
+	 * and discarded when the mapping of the document ends, so that changed
+	 * properties take effect for the next document.
+	 *
+	 * @throws PepperModulePropertyException
+	 *             if the value of a yes/no property is invalid
+	 */
+	public RSTImporterSettings getSettings() {
+		if (this.settings == null) {
+			this.settings = ((RSTImporterProperties) this.getProperties()).createSettings();
+		}
+		return (this.settings);
+	}
+
+	/**
+	 * Sets the properties and discards the snapshot taken of the former ones.
+	 */
+	@Override
+	public void setProperties(PepperModuleProperties properties) {
+		super.setProperties(properties);
+		this.settings = null;
+	}
+
 	/**
 	 * {@inheritDoc PepperMapper#setDocument(SDocument)}
 	 *
@@ -90,16 +188,96 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	 */
 	@Override
 	public DOCUMENT_STATUS mapSDocument() {
+		this.settings = null;
+		RSTImporterSettings settings = this.getSettings();
+		RSTImportManifest.Entry entry = null;
+		if ((this.getManifest() != null) && (this.getResourceURI() != null)) {
+			entry = this.getManifest().createEntry(this.getDocumentId(), this.getResourceURI(), settings);
+			if ((entry != null) && (this.getManifest().isUnchanged(entry))) {
+				DOCUMENT_STATUS status = this.mapUnchangedDocument(entry, settings);
+				if (status != null) {
+					return (status);
+				}
+			}
+		}
+		long bytes = 0;
+		if ((this.getResourceURI() != null) && (this.getResourceURI().isFile())) {
+			bytes = new File(this.getResourceURI().toFileString()).length();
+			this.getStatistics().count(Counter.BYTES, bytes);
+		}
+		Object event = RSTFlightRecorder.begin(Phase.PARSE);
+		long start = System.nanoTime();
+		if (settings.isToUseCompactModel()) {
+			CompactRSTDocument compactRSTDocument;
+			try {
+				compactRSTDocument = new CompactRSTDocument(this.getResourceURI(), settings.getParser());
+			} catch (RSTException e) {
+				throw new PepperModuleException(this, "Cannot map the rst-model of file '" + this.getResourceURI() + "', because it cannot be read: " + e.getMessage(), e);
+			}
+			this.getStatistics().record(Phase.PARSE, start);
+			RSTFlightRecorder.commitParse(event, this.getDocumentId(), bytes, compactRSTDocument.getSegmentCount(), compactRSTDocument.getRelationCount());
+			this.mapSDocument(compactRSTDocument);
+			this.recordDocument(entry, !settings.isToSkipUnchanged());
+			return (DOCUMENT_STATUS.COMPLETED);
+		}
 		RSTDocument rstDocument;
-		rstDocument = new RSTDocument(this.getResourceURI());
-		this.rstId2SStructure = new Hashtable<>();
-		this.rstId2UUID = new Hashtable<>();
-		this.primaryEdgeIndex = new Hashtable<>();
+		try {
+			rstDocument = new RSTDocument(this.getResourceURI(), settings.getParser(), this.getCache());
+		} catch (RSTException e) {
+			throw new PepperModuleException(this, "Cannot map the rst-model of file '" + this.getResourceURI() + "', because it cannot be read: " + e.getMessage(), e);
+		}
+		this.getStatistics().record(Phase.PARSE, start);
+		RSTFlightRecorder.commitParse(event, this.getDocumentId(), bytes, rstDocument.getSegments().size(), rstDocument.getRelations().size());
 		this.mapSDocument(rstDocument);
+		this.recordDocument(entry, !settings.isToSkipUnchanged());
 
 		return (DOCUMENT_STATUS.COMPLETED);
 	}
 
+	/**
+	 * Handles a document, which has not changed since the last import: it is
+	 * either removed from the corpus or its stored document graph is loaded.
+	 *
+	 * @param entry
+	 * @param settings
+	 * @return the status of the document or null, if it has to be mapped,
+	 *         since its graph was not stored
+	 */
+	private DOCUMENT_STATUS mapUnchangedDocument(RSTImportManifest.Entry entry, RSTImporterSettings settings) {
+		DOCUMENT_STATUS status = DOCUMENT_STATUS.DELETED;
+		if (!settings.isToSkipUnchanged()) {
+			SDocumentGraph graph = this.getManifest().loadGraph(entry);
+			if (graph == null) {
+				return (null);
+			}
+			this.getDocument().setDocumentGraph(graph);
+			status = DOCUMENT_STATUS.COMPLETED;
+		}
+		this.recordDocument(entry, false);
+		this.getStatistics().count(Counter.UNCHANGED_DOCUMENTS, 1);
+		this.settings = null;
+		return (status);
+	}
+
+	/**
+	 * Adds the mapped document to the manifest of an incremental import.
+	 *
+	 * @param entry
+	 *            the entry of the document or null, if it is not recorded
+	 * @param toStoreGraph
+	 *            if the document graph has to be stored
+	 */
+	private void recordDocument(RSTImportManifest.Entry entry, boolean toStoreGraph) {
+		if (entry == null) {
+			return;
+		}
+		try {
+			this.getManifest().put(entry, toStoreGraph ? this.getDocument().getDocumentGraph() : null);
+		} catch (IOException e) {
+			throw new PepperModuleException(this, "Cannot store the document graph of '" + entry.getDocumentId() + "' in '" + this.getManifest().getDirectory() + "'. ", e);
+		}
+	}
+
 	/**
 	 * Maps the given {@link RSTDocument} to th {@link SDocument} given at
 	 * {@link #getDocument()}.
@@ -111,10 +289,11 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 		if (this.getDocument().getDocumentGraph() == null)
 			this.getDocument().setDocumentGraph(SaltFactory.createSDocumentGraph());
 		this.setCurrentRSTDocument(rstDocument);
+		this.initUUIDs();
 
 		// map segments to STextualDS, Tokens and SStructures
 		if (!this.getCurrentRSTDocument().getSegments().isEmpty()) {
-			if (((RSTImporterProperties) this.getProperties()).isToTokenize())
+			if (this.getSettings().isToTokenize())
 				this.mapSegmentsWithTokenize(this.getCurrentRSTDocument().getSegments());
 			else
 				this.mapSegmentsWithoutTokenize(this.getCurrentRSTDocument().getSegments());
@@ -122,24 +301,196 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 
 		// map segments to STextualDS, Tokens and SStructures
 		// map group to SStructure
-		for (Group group : this.getCurrentRSTDocument().getGroups())
-			this.mapGroup2SStructure(group);
+		long time = System.nanoTime();
+		if (this.getSettings().isToMapInParallel()) {
+			this.mapGroupsInParallel(this.getCurrentRSTDocument().getGroups());
+		} else {
+			for (Group group : this.getCurrentRSTDocument().getGroups())
+				this.mapGroup2SStructure(group);
+		}
+		time = this.getStatistics().record(Phase.STRUCTURES, time);
 		// map group to SStructure
 		// maps all relations and creates artificial ones if neccessary
-		for (Relation relation : this.getCurrentRSTDocument().getRelations()) {
-			this.mapRelation(relation);
+		Object event = RSTFlightRecorder.begin(Phase.RELATIONS);
+		if (this.getSettings().isToMapInParallel()) {
+			this.mapRelationsInParallel(this.getCurrentRSTDocument().getRelations());
+		} else {
+			for (Relation relation : this.getCurrentRSTDocument().getRelations()) {
+				this.mapRelation(relation);
+			}
 		}
+		RSTFlightRecorder.commitRelations(event, this.getDocumentId(), this.getCurrentRSTDocument().getRelations().size());
+		time = this.getStatistics().record(Phase.RELATIONS, time);
 
 		this.markTokens();
+		time = this.getStatistics().record(Phase.TOKENIZE, time);
+		event = RSTFlightRecorder.begin(Phase.SIGNALS);
 		this.markSecondaryEdges();
+		time = this.getStatistics().record(Phase.SECONDARY_EDGES, time);
 		this.markSignals();
+		this.getStatistics().record(Phase.SIGNALS, time);
+		RSTFlightRecorder.commitSignals(event, this.getDocumentId(), this.getCurrentRSTDocument().getSignals().size(), this.getCurrentRSTDocument().getSecondaryEdges().size());
+		this.attachDiscourseIndex();
+		this.countDocument(this.getCurrentRSTDocument().getSegments().size(), this.getCurrentRSTDocument().getGroups().size(), this.getCurrentRSTDocument().getRelations().size(), this.getCurrentRSTDocument().getSignals().size(), this.getCurrentRSTDocument().getSecondaryEdges().size());
+		this.settings = null;
+	}
+
+	/**
+	 * Maps the given {@link CompactRSTDocument} to the {@link SDocument} given
+	 * at {@link #getDocument()}. The result is the same as for the
+	 * corresponding {@link RSTDocument}.
+	 *
+	 * @param rstDocument
+	 */
+	public void mapSDocument(CompactRSTDocument rstDocument) {
+		if (this.getDocument().getDocumentGraph() == null)
+			this.getDocument().setDocumentGraph(SaltFactory.createSDocumentGraph());
+		this.setCurrentRSTDocument(null);
+		this.initUUIDs();
+
+		int segmentCount = rstDocument.getSegmentCount();
+		if (segmentCount > 0) {
+			String[] ids = new String[segmentCount];
+			String[] types = new String[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				ids[i] = rstDocument.getSegmentId(i);
+				types[i] = rstDocument.getSegmentType(i);
+			}
+			if (this.getSettings().isToTokenize()) {
+				STextualDS sText = SaltFactory.createSTextualDS();
+				this.getDocument().getDocumentGraph().addNode(sText);
+				int[] starts = new int[segmentCount];
+				int[] ends = new int[segmentCount];
+				long start = System.nanoTime();
+				sText.setText(this.assembleText(rstDocument, this.getSettings().getSegmentSeparator(), starts, ends));
+				this.getStatistics().record(Phase.TEXT, start);
+				this.mapSegmentTokens(sText, starts, ends, ids, types);
+			} else {
+				String[] texts = new String[segmentCount];
+				for (int i = 0; i < segmentCount; i++) {
+					texts[i] = rstDocument.getSegmentText(i);
+				}
+				this.mapSegmentsWithoutTokenize(ids, types, texts);
+			}
+		}
+
+		boolean parallel = this.getSettings().isToMapInParallel();
+		long time = System.nanoTime();
+		if (parallel) {
+			String[] ids = new String[rstDocument.getGroupCount()];
+			String[] types = new String[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = rstDocument.getGroupId(i);
+				types[i] = rstDocument.getGroupType(i);
+			}
+			this.mapGroupsInParallel(ids, types);
+		} else {
+			for (int i = 0; i < rstDocument.getGroupCount(); i++) {
+				this.mapGroup2SStructure(rstDocument.getGroupId(i), rstDocument.getGroupType(i));
+			}
+		}
+		time = this.getStatistics().record(Phase.STRUCTURES, time);
+		Object event = RSTFlightRecorder.begin(Phase.RELATIONS);
+		if (parallel) {
+			String[] parentIds = new String[rstDocument.getRelationCount()];
+			String[] childIds = new String[parentIds.length];
+			String[] names = new String[parentIds.length];
+			String[] types = new String[parentIds.length];
+			for (int i = 0; i < parentIds.length; i++) {
+				parentIds[i] = rstDocument.getRelationParentId(i);
+				childIds[i] = rstDocument.getRelationChildId(i);
+				names[i] = rstDocument.getRelationName(i);
+				types[i] = rstDocument.getRelationType(i);
+			}
+			this.mapRelationsInParallel(parentIds, childIds, names, types);
+		} else {
+			for (int i = 0; i < rstDocument.getRelationCount(); i++) {
+				this.mapRelation(rstDocument.getRelationParentId(i), rstDocument.getRelationChildId(i), rstDocument.getRelationName(i), rstDocument.getRelationType(i));
+			}
+		}
+		RSTFlightRecorder.commitRelations(event, this.getDocumentId(), rstDocument.getRelationCount());
+		time = this.getStatistics().record(Phase.RELATIONS, time);
+
+		this.markTokens();
+		time = this.getStatistics().record(Phase.TOKENIZE, time);
+		event = RSTFlightRecorder.begin(Phase.SIGNALS);
+		if (parallel) {
+			String[] ids = new String[rstDocument.getSecondaryEdgeCount()];
+			String[] sourceIds = new String[ids.length];
+			String[] targetIds = new String[ids.length];
+			String[] relationNames = new String[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = rstDocument.getSecondaryEdgeId(i);
+				sourceIds[i] = rstDocument.getSecondaryEdgeSourceId(i);
+				targetIds[i] = rstDocument.getSecondaryEdgeTargetId(i);
+				relationNames[i] = rstDocument.getSecondaryEdgeRelationName(i);
+			}
+			this.markSecondaryEdgesInParallel(ids, sourceIds, targetIds, relationNames);
+		} else {
+			for (int i = 0; i < rstDocument.getSecondaryEdgeCount(); i++) {
+				this.markSecondaryEdge(rstDocument.getSecondaryEdgeId(i), rstDocument.getSecondaryEdgeSourceId(i), rstDocument.getSecondaryEdgeTargetId(i), rstDocument.getSecondaryEdgeRelationName(i));
+			}
+		}
+		time = this.getStatistics().record(Phase.SECONDARY_EDGES, time);
+		if (parallel) {
+			String[] sourceIds = new String[rstDocument.getSignalCount()];
+			String[] types = new String[sourceIds.length];
+			String[] subtypes = new String[sourceIds.length];
+			int[][] tokenIds = new int[sourceIds.length][];
+			for (int i = 0; i < sourceIds.length; i++) {
+				sourceIds[i] = rstDocument.getSignalSourceId(i);
+				types[i] = rstDocument.getSignalType(i);
+				subtypes[i] = rstDocument.getSignalSubtype(i);
+				tokenIds[i] = rstDocument.getSignalTokenIds(i);
+			}
+			this.markSignalsInParallel(sourceIds, types, subtypes, tokenIds);
+		} else {
+			for (int i = 0; i < rstDocument.getSignalCount(); i++) {
+				this.markSignal(rstDocument.getSignalSourceId(i), rstDocument.getSignalType(i), rstDocument.getSignalSubtype(i), rstDocument.getSignalTokenIds(i));
+			}
+		}
+		this.getStatistics().record(Phase.SIGNALS, time);
+		RSTFlightRecorder.commitSignals(event, this.getDocumentId(), rstDocument.getSignalCount(), rstDocument.getSecondaryEdgeCount());
+		this.attachDiscourseIndex();
+		this.countDocument(segmentCount, rstDocument.getGroupCount(), rstDocument.getRelationCount(), rstDocument.getSignalCount(), rstDocument.getSecondaryEdgeCount());
+		this.settings = null;
+	}
+
+	/**
+	 * Adds the numbers of elements of the mapped document to the
+	 * {@link RSTImportStatistics}.
+	 */
+	private void countDocument(int segments, int groups, int relations, int signals, int secondaryEdges) {
+		this.getStatistics().count(Counter.DOCUMENTS, 1);
+		this.getStatistics().count(Counter.SEGMENTS, segments);
+		this.getStatistics().count(Counter.GROUPS, groups);
+		this.getStatistics().count(Counter.TOKENS, this.tokenUUIDs.length);
+		this.getStatistics().count(Counter.RELATIONS, relations);
+		this.getStatistics().count(Counter.SIGNALS, signals);
+		this.getStatistics().count(Counter.SECONDARY_EDGES, secondaryEdges);
+	}
+
+	/**
+	 * Attaches the {@link RSTDiscourseIndex} of the current document to the
+	 * {@link SDocumentGraph}.
+	 */
+	private void attachDiscourseIndex() {
+		this.discourseIndex.attachTo(this.getDocument().getDocumentGraph());
+	}
+
+	/**
+	 * Returns if the former annotations TEMP::uuid, TEMP::rstid2uuid,
+	 * TEMP::signals and TEMP::secedges are created.
+	 */
+	private boolean isToCreateTempAnnotations() {
+		return (this.getSettings().isToCreateTempAnnotations());
 	}
 
 	/**
 	 * stores the rstId of an AbstractNode and the corresponding SStructure
 	 * mapped to the AbstractNode
 	 */
-	private Hashtable<String, SStructure> rstId2SStructure = null;
+	private Map<String, SStructure> rstId2SStructure = null;
 
 	/**
 	 * The TreeTaggerTokenizer to tokenize an untokenized primary text.
@@ -151,10 +502,89 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	 */
 	private Map<String, UUID> rstId2UUID = null;
 
+	/**
+	 * Determines if {@link #createUUID()} returns random UUIDs, see
+	 * {@link RSTImporterProperties#PROP_RANDOM_UUIDS}.
+	 */
+	private boolean randomUUIDs = false;
+
+	/**
+	 * The most significant bits of the UUIDs created for the current document,
+	 * a hash of the document id.
+	 */
+	private long uuidDocumentBits = 0;
+
+	/**
+	 * The number of UUIDs created for the current document, the least
+	 * significant bits of the next UUID.
+	 */
+	private long uuidCounter = 0;
+
+	/**
+	 * Returns the id of the {@link SDocument} or, if it has none, the location
+	 * of the file.
+	 *
+	 * @return the id or null
+	 */
+	private String getDocumentId() {
+		if (this.getDocument().getId() != null) {
+			return (this.getDocument().getId());
+		} else if (this.getResourceURI() != null) {
+			return (this.getResourceURI().toString());
+		}
+		return (null);
+	}
+
+	/**
+	 * Prepares {@link #createUUID()} for the current document.
+	 */
+	private void initUUIDs() {
+		this.randomUUIDs = this.getSettings().isToUseRandomUUIDs();
+		String documentId = this.getDocumentId();
+		// 64 bit FNV-1a hash, String.hashCode() would only fill 32 bits
+		long hash = 0xcbf29ce484222325L;
+		if (documentId != null) {
+			for (int i = 0; i < documentId.length(); i++) {
+				hash ^= documentId.charAt(i);
+				hash *= 0x100000001b3L;
+			}
+		}
+		this.uuidDocumentBits = hash;
+		this.uuidCounter = 0;
+	}
+
+	/**
+	 * Returns the identifier for the next segment, group or token of the
+	 * current document. Unless random UUIDs are requested, the identifier
+	 * consists of a hash of the document id and a counter, so that mapping a
+	 * document twice results in the same identifiers and no
+	 * {@link java.security.SecureRandom} is involved.
+	 *
+	 * @return the identifier
+	 */
+	private UUID createUUID() {
+		if (this.randomUUIDs) {
+			return (UUID.randomUUID());
+		}
+		return (new UUID(this.uuidDocumentBits, this.uuidCounter++));
+	}
+
+	/**
+	 * The uuids of all tokens, the uuid of the token with the 1-based position
+	 * i is at index i-1. Filled by {@link #markTokens()}.
+	 */
+	private UUID[] tokenUUIDs = new UUID[0];
+
+	/**
+	 * Collects the identifiers, signals and secondary edges of the current
+	 * document.
+	 */
+	private RSTDiscourseIndex discourseIndex = new RSTDiscourseIndex();
+
 	/**
 	 * Maps from IDs of discourse units to the relation which they are the child of
 	 */
-	private Hashtable<String, SDominanceRelation> primaryEdgeIndex = null;
+	private Map<String, SDominanceRelation> primaryEdgeIndex = null;
 
 	/**
 	 * Returns the TreeTaggerTokenizer to tokenize an untokenized primary text.
@@ -182,79 +612,332 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	 * to the {@link STextualDS} object. As last a {@link SStructure} object for
 	 * the {@link Segment} object will be created and related to the
 	 * {@link SToken} objects.
+	 * <br/>
+	 * The primary text is assembled in two phases: first the offsets of all
+	 * segments are computed into one pre-sized buffer and the text is set
+	 * once, afterwards each offset range is tokenized. This keeps the text
+	 * assembly linear in the size of the document.
 	 *
 	 * @param segments
 	 *            a list of {@link Segment} objects
 	 * @return
 	 */
 	public void mapSegmentsWithTokenize(List<Segment> segments) {
-		STextualDS sText = null;
-		List<Character> simpleTokenizationSeparators = ((RSTImporterProperties) getProperties())
-				.getSimpleTokenizationSeparators();
-		int seenTokens = 0;
-		Character[] seps = null;
-		if (((RSTImporterProperties)getProperties()).getSimpleTokenizationSeparators()!= null){
-			seps = ((RSTImporterProperties)getProperties()).getSimpleTokenizationSeparators()
-					.toArray(new Character[simpleTokenizationSeparators.size()]);
-		}
 		if ((segments != null) && (!segments.isEmpty())) {
-			sText = SaltFactory.createSTextualDS();
+			STextualDS sText = SaltFactory.createSTextualDS();
 			this.getDocument().getDocumentGraph().addNode(sText);
-			// StringBuffer strBuffer= new StringBuffer();
-			for (Segment segment : segments) {// for all segments adding their
-				// text, creating tokens, and
-				// relations
-				List<SToken> tokens = null;
-				int start = 0;
-				if (sText.getText() != null) {
-					start = sText.getText().length();
-					String segmentSeparator = ((RSTImporterProperties) this.getProperties()).getSegmentSeparator();
-					sText.setText(sText.getText() + segmentSeparator + segment.getText());
-				} else
-					sText.setText(segment.getText());
-				int end = sText.getText().length();
-
-				if (((RSTImporterProperties)getProperties()).getSimpleTokenizationSeparators()!= null){
-					SimpleTokenizer tokenizer= new SimpleTokenizer();
-					// get 0 based index of last seen token; -1 if this is the very first token
-					seenTokens = getDocument().getDocumentGraph().getTokens().size() - 1;
-					tokenizer.setDocumentGraph(getDocument().getDocumentGraph());
-					// note that the SimpleTokenizer does not return tokens, but alters the document graph with new tokens
-					tokenizer.tokenize(sText, start, end, seps);
-					// collect the new tokens as a sublist from the document's current graph
-					tokens = getDocument().getDocumentGraph().getTokens()
-							.subList(seenTokens+1, getDocument().getDocumentGraph().getTokens().size());
-				} else {
-					Tokenizer tokenizer = this.getDocument().getDocumentGraph().createTokenizer();
-					// the normal Tokenizer actually returns the tokens
-					tokens = tokenizer.tokenize(sText, null, start, end);
+
+			// first phase: compute the offsets of all segments and set the text once
+			String segmentSeparator = this.getSettings().getSegmentSeparator();
+			int[] starts = new int[segments.size()];
+			int[] ends = new int[segments.size()];
+			long start = System.nanoTime();
+			sText.setText(this.assembleText(segments, segmentSeparator, starts, ends));
+			this.getStatistics().record(Phase.TEXT, start);
+
+			String[] ids = new String[segments.size()];
+			String[] types = new String[segments.size()];
+			int i = 0;
+			for (Segment segment : segments) {
+				ids[i] = segment.getId();
+				types[i] = segment.getType();
+				i++;
+			}
+			this.mapSegmentTokens(sText, starts, ends, ids, types);
+		}
+	}
+
+	/**
+	 * Tokenizes the offset ranges of all segments in the given
+	 * {@link STextualDS} and maps each segment to a {@link SStructure}
+	 * dominating its tokens. A segment without tokens is not mapped.
+	 *
+	 * @param sText
+	 *            the {@link STextualDS} containing the text of all segments
+	 * @param starts
+	 *            start offset of each segment
+	 * @param ends
+	 *            end offset of each segment
+	 * @param ids
+	 *            the id of each segment
+	 * @param types
+	 *            the type of each segment, entries may be null
+	 */
+	private void mapSegmentTokens(STextualDS sText, int[] starts, int[] ends, String[] ids, String[] types) {
+		List<Character> simpleTokenizationSeparators = this.getSettings().getSimpleTokenizationSeparators();
+		Character[] seps = null;
+		if (simpleTokenizationSeparators != null) {
+			seps = simpleTokenizationSeparators.toArray(new Character[simpleTokenizationSeparators.size()]);
+		}
+
+		// second phase: tokenize each offset range or the entire text at once
+		Object event = RSTFlightRecorder.begin(Phase.TOKENIZE);
+		long time = System.nanoTime();
+		List<List<SToken>> segmentTokens;
+		if (this.getSettings().isToBatchTokenize()) {
+			segmentTokens = this.tokenizeDocument(sText, seps, starts);
+		} else {
+			segmentTokens = this.tokenizeSegments(sText, seps, starts, ends);
+		}
+		time = this.getStatistics().record(Phase.TOKENIZE, time);
+		if (event != null) {
+			int tokenCount = 0;
+			for (List<SToken> tokens : segmentTokens) {
+				tokenCount += (tokens == null) ? 0 : tokens.size();
+			}
+			RSTFlightRecorder.commitTokenize(event, this.getDocumentId(), sText.getText().length(), tokenCount);
+		}
+
+		// third phase: map each segment to a SStructure dominating its tokens
+		for (int i = 0; i < ids.length; i++) {// for all segments creating
+			// relations
+			List<SToken> tokens = segmentTokens.get(i);
+			if ((tokens != null) && (!tokens.isEmpty())) {// if tokens exist
+				SStructure sStruct = this.createSegmentStructure(ids[i], types[i]);
+				for (SToken sToken : tokens) {// put each token in
+					// SDocumentGraph
+					SDominanceRelation sDomRel = SaltFactory.createSDominanceRelation();
+					sDomRel.setSource(sStruct);
+					sDomRel.setTarget(sToken);
+					this.getDocument().getDocumentGraph().addRelation(sDomRel);
+				}// put each token in SDocumentGraph
+			}// if tokens exist
+		}// for all segments
+		this.getStatistics().record(Phase.STRUCTURES, time);
+	}
+
+	/**
+	 * Creates the {@link SStructure} for a segment, annotates it with the kind
+	 * and type of the segment and adds it to the {@link SDocumentGraph}.
+	 *
+	 * @param id
+	 *            the id of the segment
+	 * @param type
+	 *            the type of the segment or null
+	 * @return the created {@link SStructure}
+	 */
+	private SStructure createSegmentStructure(String id, String type) {
+		SStructure sStruct = SaltFactory.createSStructure();
+		sStruct.setName(id);
+		String nodeKindKey = this.getSettings().getNodeKindName();
+		String nodeTypeKey = this.getSettings().getNodeTypeName();
+		sStruct.createAnnotation(null, nodeKindKey, NODE_KIND_SEGMENT);
+		if (type != null)
+			sStruct.createAnnotation(null, nodeTypeKey, type);
+
+		// puts segment.id and mapped SStructure-object into table
+		this.rstId2SStructure.put(id, sStruct);
+		UUID uuid = this.createUUID();
+		if (this.isToCreateTempAnnotations()) {
+			sStruct.createAnnotation("TEMP", "uuid", uuid);
+		}
+		this.rstId2UUID.put(id, uuid);
+		this.discourseIndex.addStructure(id, uuid);
+		this.getDocument().getDocumentGraph().addNode(sStruct);
+		return (sStruct);
+	}
+
+	/**
+	 * Tokenizes the range of each segment in the given {@link STextualDS}
+	 * separately.
+	 *
+	 * @param sText
+	 *            the {@link STextualDS} containing the text of all segments
+	 * @param seps
+	 *            separators for the simple tokenization, or null to use the
+	 *            TreeTagger tokenizer
+	 * @param starts
+	 *            start offset of each segment
+	 * @param ends
+	 *            end offset of each segment
+	 * @return the created tokens per segment in the order of the segments
+	 */
+	private List<List<SToken>> tokenizeSegments(STextualDS sText, Character[] seps, int[] starts, int[] ends) {
+		List<List<SToken>> segmentTokens = new ArrayList<>(starts.length);
+		SimpleTokenizer simpleTokenizer = null;
+		if (seps == null) {
+			this.getTokenizer().setsDocumentGraph(getDocument().getDocumentGraph());
+		} else {
+			simpleTokenizer = new SimpleTokenizer();
+			simpleTokenizer.setDocumentGraph(getDocument().getDocumentGraph());
+		}
+		for (int i = 0; i < starts.length; i++) {
+			if (seps != null) {
+				segmentTokens.add(this.simpleTokenize(simpleTokenizer, sText, starts[i], ends[i], seps));
+			} else {
+				// the normal Tokenizer actually returns the tokens
+				segmentTokens.add(this.getTokenizer().tokenize(sText, null, starts[i], ends[i]));
+			}
+		}
+		return (segmentTokens);
+	}
+
+	/**
+	 * Tokenizes the entire text of the given {@link STextualDS} in one pass
+	 * and assigns each token to the segment containing its start offset. The
+	 * segment is found by a binary search over the start offsets of all
+	 * segments. In case of an empty segment separator, a token may span the
+	 * border of two segments, it is assigned to the segment it starts in.
+	 * <br/>
+	 * The TreeTagger tokenizer detects the language of the text it tokenizes,
+	 * here of the entire text instead of each segment, so segments in another
+	 * language than most of the document are tokenized by the rules of the
+	 * language of the document.
+	 *
+	 * @param sText
+	 *            the {@link STextualDS} containing the text of all segments
+	 * @param seps
+	 *            separators for the simple tokenization, or null to use the
+	 *            TreeTagger tokenizer
+	 * @param starts
+	 *            start offset of each segment in ascending order
+	 * @return the created tokens per segment in the order of the segments
+	 */
+	private List<List<SToken>> tokenizeDocument(STextualDS sText, Character[] seps, int[] starts) {
+		List<SToken> tokens;
+		if (seps != null) {
+			SimpleTokenizer simpleTokenizer = new SimpleTokenizer();
+			simpleTokenizer.setDocumentGraph(getDocument().getDocumentGraph());
+			tokens = this.simpleTokenize(simpleTokenizer, sText, 0, sText.getText().length(), seps);
+		} else {
+			this.getTokenizer().setsDocumentGraph(getDocument().getDocumentGraph());
+			tokens = this.getTokenizer().tokenize(sText, null, 0, sText.getText().length());
+		}
+
+		List<List<SToken>> segmentTokens = new ArrayList<>(starts.length);
+		for (int i = 0; i < starts.length; i++) {
+			segmentTokens.add(new ArrayList<SToken>());
+		}
+		if (tokens != null) {
+			for (SToken token : tokens) {
+				int segment = Arrays.binarySearch(starts, getTextualStart(token));
+				if (segment < 0) {// the token starts inside of a segment
+					segment = -segment - 2;
+				}
+				// skip empty segments sharing the same start offset
+				while ((segment + 1 < starts.length) && (starts[segment + 1] == starts[segment])) {
+					segment++;
 				}
-				if ((tokens != null) && (!tokens.isEmpty())) {// if tokens exist
-					SStructure sStruct = SaltFactory.createSStructure();
-					sStruct.setName(segment.getId());
-					String nodeKindKey = ((RSTImporterProperties) this.getProperties()).getNodeKindName();
-					String nodeTypeKey = ((RSTImporterProperties) this.getProperties()).getNodeTypeName();
-					sStruct.createAnnotation(null, nodeKindKey, NODE_KIND_SEGMENT);
-					if (segment.getType() != null)
-						sStruct.createAnnotation(null, nodeTypeKey, segment.getType());
-
-					// puts segment.id and mapped SStructure-object into table
-					this.rstId2SStructure.put(segment.getId(), sStruct);
-					UUID uuid = UUID.randomUUID();
-					sStruct.createAnnotation("TEMP", "uuid", uuid);
-					this.rstId2UUID.put(segment.getId(), uuid);
-					this.getDocument().getDocumentGraph().addNode(sStruct);
-
-					for (SToken sToken : tokens) {// put each token in
-						// SDocumentGraph
-						SDominanceRelation sDomRel = SaltFactory.createSDominanceRelation();
-						sDomRel.setSource(sStruct);
-						sDomRel.setTarget(sToken);
-						this.getDocument().getDocumentGraph().addRelation(sDomRel);
-					}// put each token in SDocumentGraph
-				}// if tokens exist
-			}// for all segments
+				segmentTokens.get(Math.max(segment, 0)).add(token);
+			}
+		}
+		return (segmentTokens);
+	}
+
+	/**
+	 * Tokenizes the given range of the {@link STextualDS} with the
+	 * {@link SimpleTokenizer} and returns the created tokens in the order of
+	 * the text. The SimpleTokenizer adds the tokens to the graph but returns
+	 * none, so they are taken from the end of
+	 * {@link SDocumentGraph#getTokens()}, which is a view of the token index
+	 * of the graph listing the tokens in the order they were added.
+	 *
+	 * @param simpleTokenizer
+	 *            the tokenizer working on the document graph
+	 * @param sText
+	 *            the {@link STextualDS} containing the range
+	 * @param start
+	 *            start offset of the range
+	 * @param end
+	 *            end offset of the range
+	 * @param seps
+	 *            separators for the simple tokenization
+	 * @return the created tokens
+	 */
+	private List<SToken> simpleTokenize(SimpleTokenizer simpleTokenizer, STextualDS sText, int start, int end, Character[] seps) {
+		SDocumentGraph graph = getDocument().getDocumentGraph();
+		int seenTokens = graph.getTokens().size();
+		simpleTokenizer.tokenize(sText, start, end, seps);
+		List<SToken> tokens = graph.getTokens();
+		return (new ArrayList<>(tokens.subList(seenTokens, tokens.size())));
+	}
+
+	/**
+	 * Returns the start offset of the given token in its {@link STextualDS}.
+	 *
+	 * @param token
+	 * @return the start offset or -1, if the token is not related to a text
+	 */
+	private static int getTextualStart(SToken token) {
+		for (SRelation<?, ?> relation : token.getOutRelations()) {
+			if (relation instanceof STextualRelation) {
+				return (((STextualRelation) relation).getStart());
+			}
+		}
+		return (-1);
+	}
+
+	/**
+	 * Concatenates the text of all given segments separated by the passed
+	 * separator into one buffer, which is sized up front. The start and end
+	 * offset of each segment are written to <code>starts</code> and
+	 * <code>ends</code>. As before, the range of a segment starts in front of
+	 * the separator preceding it. A segment without text contributes an empty
+	 * string.
+	 *
+	 * @param segments
+	 *            a list of {@link Segment} objects
+	 * @param segmentSeparator
+	 *            the separator to be put between two segments
+	 * @param starts
+	 *            array to be filled with the start offset of each segment
+	 * @param ends
+	 *            array to be filled with the end offset of each segment
+	 * @return the primary text of all segments
+	 */
+	private String assembleText(List<Segment> segments, String segmentSeparator, int[] starts, int[] ends) {
+		if (segmentSeparator == null) {
+			segmentSeparator = "";
+		}
+		int capacity = 0;
+		for (Segment segment : segments) {
+			if (segment.getText() != null) {
+				capacity += segment.getText().length();
+			}
+		}
+		capacity += segmentSeparator.length() * (segments.size() - 1);
+
+		StringBuilder text = new StringBuilder(capacity);
+		int i = 0;
+		for (Segment segment : segments) {
+			starts[i] = text.length();
+			if (i > 0) {
+				text.append(segmentSeparator);
+			}
+			if (segment.getText() != null) {
+				text.append(segment.getText());
+			}
+			ends[i] = text.length();
+			i++;
+		}
+		return (text.toString());
+	}
+
+	/**
+	 * Concatenates the text of all segments of the given
+	 * {@link CompactRSTDocument} like
+	 * {@link #assembleText(List, String, int[], int[])}.
+	 */
+	private String assembleText(CompactRSTDocument rstDocument, String segmentSeparator, int[] starts, int[] ends) {
+		if (segmentSeparator == null) {
+			segmentSeparator = "";
 		}
+		int segmentCount = rstDocument.getSegmentCount();
+		int capacity = segmentSeparator.length() * (segmentCount - 1);
+		for (int i = 0; i < segmentCount; i++) {
+			capacity += rstDocument.getSegmentTextLength(i);
+		}
+
+		StringBuilder text = new StringBuilder(capacity);
+		for (int i = 0; i < segmentCount; i++) {
+			starts[i] = text.length();
+			if (i > 0) {
+				text.append(segmentSeparator);
+			}
+			rstDocument.appendSegmentText(i, text);
+			ends[i] = text.length();
+		}
+		return (text.toString());
 	}
 
 	/**
@@ -268,54 +951,61 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	 * @return
 	 */
 	private void mapSegmentsWithoutTokenize(List<Segment> segments) {
-		STextualDS sText = null;
 		if ((segments != null) && (!segments.isEmpty())) {
-			sText = SaltFactory.createSTextualDS();
-			this.getDocument().getDocumentGraph().addNode(sText);
-			StringBuffer strBuffer = new StringBuffer();
-
+			String[] ids = new String[segments.size()];
+			String[] types = new String[segments.size()];
+			String[] texts = new String[segments.size()];
 			int i = 0;
-			for (Segment segment : segments) {// for all segments adding their
-				// text, creating tokens, and
-				// relations
+			for (Segment segment : segments) {
+				ids[i] = segment.getId();
+				types[i] = segment.getType();
+				texts[i] = segment.getText();
 				i++;
-				SStructure sStruct = SaltFactory.createSStructure();
-				String nodeKindKey = ((RSTImporterProperties) this.getProperties()).getNodeKindName();
-				String nodeTypeKey = ((RSTImporterProperties) this.getProperties()).getNodeTypeName();
-				sStruct.createAnnotation(null, nodeKindKey, NODE_KIND_SEGMENT);
-				if (segment.getType() != null)
-					sStruct.createAnnotation(null, nodeTypeKey, segment.getType());
-				sStruct.setName(segment.getId());
-				// puts segment.id and mapped SStructure-object into table
-				this.rstId2SStructure.put(segment.getId(), sStruct);
-				UUID uuid = UUID.randomUUID();
-				sStruct.createAnnotation("TEMP", "uuid", uuid);
-				this.rstId2UUID.put(segment.getId(), uuid);
-				this.getDocument().getDocumentGraph().addNode(sStruct);
-
-				SToken sToken = SaltFactory.createSToken();
-				this.getDocument().getDocumentGraph().addNode(sToken);
-
-				STextualRelation sTextRel = SaltFactory.createSTextualRelation();
-				sTextRel.setTarget(sText);
-				sTextRel.setSource(sToken);
-				sTextRel.setStart(strBuffer.length());
-				sTextRel.setEnd(strBuffer.length() + segment.getText().length());
-				this.getDocument().getDocumentGraph().addRelation(sTextRel);
-
-				SDominanceRelation sDomRel = SaltFactory.createSDominanceRelation();
-				sDomRel.setSource(sStruct);
-				sDomRel.setTarget(sToken);
-				this.getDocument().getDocumentGraph().addRelation(sDomRel);
-
-				if (i != 0)
-					strBuffer.append(((RSTImporterProperties) this.getProperties()).getSegmentSeparator());
-				strBuffer.append(segment.getText());
-			}// for all segments
-			sText.setText(strBuffer.toString());
+			}
+			this.mapSegmentsWithoutTokenize(ids, types, texts);
 		}
 	}
 
+	/**
+	 * Maps the segments given by their ids, types and texts like
+	 * {@link #mapSegmentsWithoutTokenize(List)}. A segment without text
+	 * contributes an empty string, as when the text is tokenized.
+	 */
+	private void mapSegmentsWithoutTokenize(String[] ids, String[] types, String[] texts) {
+		long start = System.nanoTime();
+		STextualDS sText = SaltFactory.createSTextualDS();
+		this.getDocument().getDocumentGraph().addNode(sText);
+		StringBuffer strBuffer = new StringBuffer();
+		String segmentSeparator = this.getSettings().getSegmentSeparator();
+
+		for (int i = 0; i < ids.length; i++) {// for all segments adding their
+			// text, creating tokens, and
+			// relations
+			SStructure sStruct = this.createSegmentStructure(ids[i], types[i]);
+
+			SToken sToken = SaltFactory.createSToken();
+			this.getDocument().getDocumentGraph().addNode(sToken);
+
+			STextualRelation sTextRel = SaltFactory.createSTextualRelation();
+			sTextRel.setTarget(sText);
+			sTextRel.setSource(sToken);
+			String text = (texts[i] == null) ? "" : texts[i];
+			sTextRel.setStart(strBuffer.length());
+			sTextRel.setEnd(strBuffer.length() + text.length());
+			this.getDocument().getDocumentGraph().addRelation(sTextRel);
+
+			SDominanceRelation sDomRel = SaltFactory.createSDominanceRelation();
+			sDomRel.setSource(sStruct);
+			sDomRel.setTarget(sToken);
+			this.getDocument().getDocumentGraph().addRelation(sDomRel);
+
+			strBuffer.append(segmentSeparator);
+			strBuffer.append(text);
+		}// for all segments
+		sText.setText(strBuffer.toString());
+		this.getStatistics().record(Phase.STRUCTURES, start);
+	}
+
 	/**
 	 * Maps the given group to a SStructure object, The SStructure object will
 	 * be added to the graph
@@ -326,29 +1016,111 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	private SStructure mapGroup2SStructure(Group group) {
 		SStructure sStructure = null;
 		if (group != null) {
-			sStructure = SaltFactory.createSStructure();
-			sStructure.setName(group.getId());
-			String nodeNameKey = ((RSTImporterProperties) this.getProperties()).getNodeTypeName();
-			if (group.getType() != null)
-				sStructure.createAnnotation(null, nodeNameKey, group.getType());
-
-			// puts segment.id and mapped SSTructure-object into table
-			this.rstId2SStructure.put(group.getId(), sStructure);
-			UUID uuid = UUID.randomUUID();
-			sStructure.createAnnotation("TEMP", "uuid", uuid);
-			this.rstId2UUID.put(group.getId(), uuid);
+			sStructure = this.mapGroup2SStructure(group.getId(), group.getType());
+		}
+		return (sStructure);
+	}
 
-			{// create SAnnotation containing the group as value
-				SAnnotation sAnno = SaltFactory.createSAnnotation();
-				sAnno.setName(((RSTImporterProperties) this.getProperties()).getNodeKindName());
-				sAnno.setValue(NODE_KIND_GROUP);
-				sStructure.addAnnotation(sAnno);
-			}// create SAnnotation containing the group as value
-			this.getDocument().getDocumentGraph().addNode(sStructure);
+	/**
+	 * Maps the group given by its id and type to a SStructure object, The
+	 * SStructure object will be added to the graph
+	 *
+	 * @param id
+	 * @param type
+	 * @return the created SStructure-object
+	 */
+	private SStructure mapGroup2SStructure(String id, String type) {
+		UUID uuid = this.createUUID();
+		SStructure sStructure = this.createGroupStructure(id, type, uuid, this.getSettings().getNodeTypeName(), this.getSettings().getNodeKindName());
+		this.addGroupStructure(id, sStructure, uuid);
+		return (sStructure);
+	}
+
+	/**
+	 * Creates the SStructure object of the group given by its id and type,
+	 * without adding it to the graph or the tables.
+	 *
+	 * @param id
+	 * @param type
+	 * @param uuid
+	 * @param nodeTypeKey
+	 *            the name of the annotation of the type
+	 * @param nodeKindKey
+	 *            the name of the annotation of the kind of node
+	 * @return the created SStructure-object
+	 */
+	private SStructure createGroupStructure(String id, String type, UUID uuid, String nodeTypeKey, String nodeKindKey) {
+		SStructure sStructure = SaltFactory.createSStructure();
+		sStructure.setName(id);
+		if (type != null)
+			sStructure.createAnnotation(null, nodeTypeKey, type);
+		if (this.isToCreateTempAnnotations()) {
+			sStructure.createAnnotation("TEMP", "uuid", uuid);
 		}
+
+		{// create SAnnotation containing the group as value
+			SAnnotation sAnno = SaltFactory.createSAnnotation();
+			sAnno.setName(nodeKindKey);
+			sAnno.setValue(NODE_KIND_GROUP);
+			sStructure.addAnnotation(sAnno);
+		}// create SAnnotation containing the group as value
 		return (sStructure);
 	}
 
+	/**
+	 * Adds the SStructure object created by
+	 * {@link #createGroupStructure(String, String, UUID, String, String)} to the tables, the
+	 * {@link RSTDiscourseIndex} and the graph.
+	 */
+	private void addGroupStructure(String id, SStructure sStructure, UUID uuid) {
+		// puts segment.id and mapped SSTructure-object into table
+		this.rstId2SStructure.put(id, sStructure);
+		this.rstId2UUID.put(id, uuid);
+		this.discourseIndex.addStructure(id, uuid);
+		this.getDocument().getDocumentGraph().addNode(sStructure);
+	}
+
+	/**
+	 * Maps the given groups like {@link #mapGroup2SStructure(Group)}, but
+	 * creates their SStructure objects in parallel.
+	 */
+	private void mapGroupsInParallel(List<Group> groups) {
+		List<String> ids = new ArrayList<>(groups.size());
+		List<String> types = new ArrayList<>(groups.size());
+		for (Group group : groups) {
+			if (group != null) {
+				ids.add(group.getId());
+				types.add(group.getType());
+			}
+		}
+		this.mapGroupsInParallel(ids.toArray(new String[ids.size()]), types.toArray(new String[types.size()]));
+	}
+
+	/**
+	 * Maps the groups given by their ids and types like
+	 * {@link #mapGroup2SStructure(String, String)}, but creates their
+	 * SStructure objects in parallel.
+	 */
+	private void mapGroupsInParallel(final String[] ids, final String[] types) {
+		// the uuids are created in the order of the document
+		final UUID[] uuids = new UUID[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			uuids[i] = this.createUUID();
+		}
+		final String nodeTypeKey = this.getSettings().getNodeTypeName();
+		final String nodeKindKey = this.getSettings().getNodeKindName();
+		final SStructure[] structures = new SStructure[ids.length];
+		forEach(ids.length, new IndexedJob() {
+			@Override
+			public void run(int i) {
+				structures[i] = createGroupStructure(ids[i], types[i], uuids[i], nodeTypeKey, nodeKindKey);
+			}
+		});
+		for (int i = 0; i < ids.length; i++) {
+			this.addGroupStructure(ids[i], structures[i], uuids[i]);
+		}
+	}
+
 	/**
 	 * Mapps the given relation to one in the Salt model. Further artificial
 	 * ones will be created.
@@ -357,146 +1129,554 @@ public class RST2SaltMapper extends PepperMapperImpl implements PepperMapper {
 	 */
 	private void mapRelation(Relation relation) {
 		if (relation != null) {
-			if (relation.getParent() == null)
-				throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
-						+ "', because the parent of a relation is empty.");
-			if (relation.getChild() == null)
-				throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
-						+ "', because the child of a relation is empty.");
-
-			SStructure sSource = this.rstId2SStructure.get(relation.getParent().getId());
-			SStructure sTarget = this.rstId2SStructure.get(relation.getChild().getId());
-			if (sSource == null)
-				throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
-						+ "', because the parent of a relation points to a non existing node with id '"
-						+ relation.getChild().getId() + "'.");
-			if (sTarget == null)
-				throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
-						+ "', because the parent of a relation belongs to a non existing node with id '"
-						+ relation.getParent().getId() + "'.");
+			this.mapRelation((relation.getParent() == null ? null : relation.getParent().getId()),
+					(relation.getChild() == null ? null : relation.getChild().getId()), relation.getName(),
+					relation.getType());
+		}
+	}
 
-			SDominanceRelation sDomRel = SaltFactory.createSDominanceRelation();
-			if (relation.getType() != null)
-				sDomRel.setType(relation.getType());
-			sDomRel.setSource(sSource);
-			sDomRel.setTarget(sTarget);
-			this.getDocument().getDocumentGraph().addRelation(sDomRel);
-			this.primaryEdgeIndex.put(relation.getChild().getId(), sDomRel);
+	/**
+	 * Maps the relation given by the ids of its parent and child, its name and
+	 * type to a {@link SDominanceRelation}.
+	 *
+	 * @param parentId
+	 * @param childId
+	 * @param name
+	 * @param type
+	 */
+	private void mapRelation(String parentId, String childId, String name, String type) {
+		this.addDominanceRelation(childId, this.createDominanceRelation(parentId, childId, name, type, this.getSettings().getRelationName()));
+	}
+
+	/**
+	 * Creates the {@link SDominanceRelation} of the relation given by the ids
+	 * of its parent and child, its name and type, without adding it to the
+	 * graph.
+	 *
+	 * @param parentId
+	 * @param childId
+	 * @param name
+	 * @param type
+	 * @param relationNameKey
+	 *            the name of the annotation of the name
+	 * @return the created relation
+	 */
+	private SDominanceRelation createDominanceRelation(String parentId, String childId, String name, String type, String relationNameKey) {
+		if (parentId == null)
+			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
+					+ "', because the parent of a relation is empty.");
+		if (childId == null)
+			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
+					+ "', because the child of a relation is empty.");
+
+		SStructure sSource = this.rstId2SStructure.get(parentId);
+		SStructure sTarget = this.rstId2SStructure.get(childId);
+		if (sSource == null)
+			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
+					+ "', because the parent of a relation points to a non existing node with id '"
+					+ childId + "'.");
+		if (sTarget == null)
+			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
+					+ "', because the parent of a relation belongs to a non existing node with id '"
+					+ parentId + "'.");
+
+		SDominanceRelation sDomRel = SaltFactory.createSDominanceRelation();
+		if (type != null)
+			sDomRel.setType(type);
+		sDomRel.setSource(sSource);
+		sDomRel.setTarget(sTarget);
 
-			if (relation.getName() != null) {
-				String relationNameKey = ((RSTImporterProperties) this.getProperties()).getRelationName();
-				sDomRel.createAnnotation(null, relationNameKey, relation.getName());
+		if (name != null) {
+			sDomRel.createAnnotation(null, relationNameKey, name);
+		}
+		return (sDomRel);
+	}
+
+	/**
+	 * Adds the relation created by
+	 * {@link #createDominanceRelation(String, String, String, String, String)} to the
+	 * graph.
+	 */
+	private void addDominanceRelation(String childId, SDominanceRelation sDomRel) {
+		this.getDocument().getDocumentGraph().addRelation(sDomRel);
+		this.primaryEdgeIndex.put(childId, sDomRel);
+	}
+
+	/**
+	 * Maps the given relations like {@link #mapRelation(Relation)}, but
+	 * creates their {@link SDominanceRelation}s in parallel.
+	 */
+	private void mapRelationsInParallel(List<Relation> relations) {
+		List<Relation> nonNull = new ArrayList<>(relations.size());
+		for (Relation relation : relations) {
+			if (relation != null) {
+				nonNull.add(relation);
+			}
+		}
+		String[] parentIds = new String[nonNull.size()];
+		String[] childIds = new String[parentIds.length];
+		String[] names = new String[parentIds.length];
+		String[] types = new String[parentIds.length];
+		for (int i = 0; i < parentIds.length; i++) {
+			Relation relation = nonNull.get(i);
+			parentIds[i] = (relation.getParent() == null ? null : relation.getParent().getId());
+			childIds[i] = (relation.getChild() == null ? null : relation.getChild().getId());
+			names[i] = relation.getName();
+			types[i] = relation.getType();
+		}
+		this.mapRelationsInParallel(parentIds, childIds, names, types);
+	}
+
+	/**
+	 * Maps the relations given by the ids of their parents and children, their
+	 * names and types like {@link #mapRelation(String, String, String, String)},
+	 * but creates their {@link SDominanceRelation}s in parallel.
+	 */
+	private void mapRelationsInParallel(final String[] parentIds, final String[] childIds, final String[] names, final String[] types) {
+		final String relationNameKey = this.getSettings().getRelationName();
+		final SDominanceRelation[] relations = new SDominanceRelation[parentIds.length];
+		forEach(parentIds.length, new IndexedJob() {
+			@Override
+			public void run(int i) {
+				relations[i] = createDominanceRelation(parentIds[i], childIds[i], names[i], types[i], relationNameKey);
 			}
+		});
+		for (int i = 0; i < relations.length; i++) {
+			this.addDominanceRelation(childIds[i], relations[i]);
 		}
 	}
 
 	private void markSignals() {
 		List<Signal> signals = this.getCurrentRSTDocument().getSignals();
 		if (signals != null && !signals.isEmpty()) {
+			if (this.getSettings().isToMapInParallel()) {
+				this.markSignalsInParallel(signals);
+				return;
+			}
 			for (Signal signal : this.getCurrentRSTDocument().getSignals()) {
 				this.markSignal(signal);
 			}
 		}
 	}
 
+	/**
+	 * Marks the given signals like {@link #markSignal(Signal)}, but prepares
+	 * their entries in parallel.
+	 */
+	private void markSignalsInParallel(List<Signal> signals) {
+		List<Signal> nonNull = new ArrayList<>(signals.size());
+		for (Signal signal : signals) {
+			if (signal != null) {
+				nonNull.add(signal);
+			}
+		}
+		String[] sourceIds = new String[nonNull.size()];
+		String[] types = new String[sourceIds.length];
+		String[] subtypes = new String[sourceIds.length];
+		int[][] tokenIds = new int[sourceIds.length][];
+		for (int i = 0; i < sourceIds.length; i++) {
+			Signal signal = nonNull.get(i);
+			sourceIds[i] = (signal.getSource() == null ? null : signal.getSource().getId());
+			types[i] = signal.getType();
+			subtypes[i] = signal.getSubtype();
+			tokenIds[i] = signal.getTokens();
+		}
+		this.markSignalsInParallel(sourceIds, types, subtypes, tokenIds);
+	}
+
+	/**
+	 * Marks the signals given by the ids of their sources, their types,
+	 * subtypes and token ids like
+	 * {@link #markSignal(String, String, String, int[])}, but prepares their
+	 * entries in parallel.
+	 */
+	private void markSignalsInParallel(final String[] sourceIds, final String[] types, final String[] subtypes, final int[][] tokenIds) {
+		this.discourseIndex.buildLookup();
+		final boolean tempAnnotations = this.isToCreateTempAnnotations();
+		final PreparedSignal[] prepared = new PreparedSignal[sourceIds.length];
+		forEach(sourceIds.length, new IndexedJob() {
+			@Override
+			public void run(int i) {
+				prepared[i] = prepareSignal(sourceIds[i], types[i], subtypes[i], tokenIds[i], tempAnnotations);
+			}
+		});
+		for (PreparedSignal signal : prepared) {
+			this.addSignal(signal);
+		}
+	}
+
 	private void markSignal(Signal signal) {
 		// If the signal is null or its source attribute is null, quit
 		if (signal == null) {
 			return;
 		}
-		if (signal.getSource() == null) {
+		this.markSignal((signal.getSource() == null ? null : signal.getSource().getId()), signal.getType(),
+				signal.getSubtype(), signal.getTokens());
+	}
+
+	/**
+	 * Adds the signal given by the id of its source, its type, subtype and
+	 * token ids to the TEMP::signals annotation of the source.
+	 *
+	 * @param signalSourceId
+	 * @param type
+	 * @param subtype
+	 * @param signalTokenIds
+	 *            may be null
+	 */
+	private void markSignal(String signalSourceId, String type, String subtype, int[] signalTokenIds) {
+		this.addSignal(this.prepareSignal(signalSourceId, type, subtype, signalTokenIds, this.isToCreateTempAnnotations()));
+	}
+
+	/**
+	 * The entry of a signal in the {@link RSTDiscourseIndex} and its
+	 * TEMP::signals annotation, created by
+	 * {@link RST2SaltMapper#prepareSignal(String, String, String, int[], boolean)}.
+	 */
+	private static class PreparedSignal {
+		private int carrier;
+		private int secondSource;
+		private String type;
+		private String subtype;
+		private int[] tokens;
+		/** the annotated node, null if no TEMP annotations are created **/
+		private SNode node;
+		private Map<Object, Object> signalMap;
+	}
+
+	/**
+	 * Validates the signal given by the id of its source, its type, subtype
+	 * and token ids and creates its entries, without changing the index or
+	 * the graph. The TEMP::signals entry is only created if tempAnnotations
+	 * is true.
+	 */
+	private PreparedSignal prepareSignal(String signalSourceId, String type, String subtype, int[] signalTokenIds, boolean tempAnnotations) {
+		if (signalSourceId == null) {
 			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
 					+ "', because the source of a signal is empty.");
 		}
 
-		String sourceId = signal.getSource().getId();
-		sourceId = sourceId.contains("-") ? sourceId.split("-")[0] : sourceId;
-		SNode n = this.rstId2SStructure.get(sourceId);
-		if (n.getAnnotation("TEMP", "signals") == null) {
-			n.createAnnotation("TEMP", "signals", new ArrayList<Map<Object, Object>>());
+		String sourceId = signalSourceId.contains("-") ? signalSourceId.split("-")[0] : signalSourceId;
+		int carrier = this.discourseIndex.indexOfStructure(sourceId);
+		if (carrier == RSTDiscourseIndex.NONE) {
+			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
+					+ "', because the source of a signal points to a non existing node with id '" + sourceId + "'.");
 		}
-		List<Map<Object, Object>> signalList = (List<Map<Object, Object>>) n.getAnnotation("TEMP", "signals").getValue();
+		int secondSource = RSTDiscourseIndex.NONE;
+		if (signalSourceId.contains("-")) {
+			secondSource = this.discourseIndex.indexOfStructure(signalSourceId.split("-")[1]);
+		}
+		int[] tokens = null;
+		if (signalTokenIds != null) {
+			tokens = new int[signalTokenIds.length];
+			for (int i = 0; i < tokens.length; i++) {
+				// token ids are 1-based positions in the document
+				int tid = signalTokenIds[i];
+				tokens[i] = (tid > 0 && tid <= this.tokenUUIDs.length) ? tid - 1 : RSTDiscourseIndex.NONE;
+			}
+		}
+		PreparedSignal prepared = new PreparedSignal();
+		prepared.carrier = carrier;
+		prepared.secondSource = secondSource;
+		prepared.type = type;
+		prepared.subtype = subtype;
+		prepared.tokens = tokens;
+		if (!tempAnnotations) {
+			return (prepared);
+		}
+
 		Map<Object, Object> signalMap = new HashMap<>();
-		List<UUID> tokenIds = new ArrayList<>();
-		if (signal.getTokenIds() != null) {
-			for (Integer tid : signal.getTokenIds()) {
-				tokenIds.add(this.rstId2UUID.get("token" + tid));
+		List<UUID> tokenIds = new ArrayList<>((signalTokenIds == null) ? 0 : signalTokenIds.length);
+		if (signalTokenIds != null) {
+			for (int tid : signalTokenIds) {
+				// token ids are 1-based positions in the document
+				tokenIds.add((tid > 0 && tid <= this.tokenUUIDs.length) ? this.tokenUUIDs[tid - 1] : null);
 			}
 		}
-		signalMap.put("signal:type", signal.getType());
-		signalMap.put("signal:subtype", signal.getSubtype());
+		signalMap.put("signal:type", type);
+		signalMap.put("signal:subtype", subtype);
 		signalMap.put("signal:tokens", tokenIds);
 
 		List<UUID> source = new ArrayList<>();
-		if (signal.getSource().getId().contains("-")) {
-			String part1 = signal.getSource().getId().split("-")[0];
-			String part2 = signal.getSource().getId().split("-")[1];
+		if (signalSourceId.contains("-")) {
+			String part1 = signalSourceId.split("-")[0];
+			String part2 = signalSourceId.split("-")[1];
 			source.add(this.rstId2UUID.get(part1));
 			source.add(this.rstId2UUID.get(part2));
 		} else {
-			source.add(this.rstId2UUID.get(signal.getSource().getId()));
+			source.add(this.rstId2UUID.get(signalSourceId));
 		}
 		signalMap.put("signal:source", source);
-		signalList.add(signalMap);
+		prepared.node = this.rstId2SStructure.get(sourceId);
+		prepared.signalMap = signalMap;
+		return (prepared);
+	}
+
+	/**
+	 * Adds the signal prepared by
+	 * {@link #prepareSignal(String, String, String, int[], boolean)} to the
+	 * {@link RSTDiscourseIndex} and to the TEMP::signals annotation of its
+	 * source.
+	 */
+	private void addSignal(PreparedSignal signal) {
+		this.discourseIndex.addSignal(signal.carrier, signal.carrier, signal.secondSource, signal.type, signal.subtype, signal.tokens);
+		if (signal.node == null) {
+			return;
+		}
+		SNode n = signal.node;
+		if (n.getAnnotation("TEMP", "signals") == null) {
+			n.createAnnotation("TEMP", "signals", new ArrayList<Map<Object, Object>>());
+		}
+		((List<Map<Object, Object>>) n.getAnnotation("TEMP", "signals").getValue()).add(signal.signalMap);
 	}
 
 	private void markSecondaryEdges() {
 	List<SecondaryEdge> secondaryEdges = this.getCurrentRSTDocument().getSecondaryEdges();
 		if (secondaryEdges != null && !secondaryEdges.isEmpty()) {
+			if (this.getSettings().isToMapInParallel()) {
+				this.markSecondaryEdgesInParallel(secondaryEdges);
+				return;
+			}
 			for (SecondaryEdge e : this.getCurrentRSTDocument().getSecondaryEdges()) {
 				this.markSecondaryEdge(e);
 			}
 		}
 	}
 
+	/**
+	 * Marks the given secondary edges like
+	 * {@link #markSecondaryEdge(SecondaryEdge)}, but prepares their entries in
+	 * parallel.
+	 */
+	private void markSecondaryEdgesInParallel(List<SecondaryEdge> secondaryEdges) {
+		List<SecondaryEdge> nonNull = new ArrayList<>(secondaryEdges.size());
+		for (SecondaryEdge e : secondaryEdges) {
+			if (e != null) {
+				nonNull.add(e);
+			}
+		}
+		String[] ids = new String[nonNull.size()];
+		String[] sourceIds = new String[ids.length];
+		String[] targetIds = new String[ids.length];
+		String[] relationNames = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			SecondaryEdge e = nonNull.get(i);
+			ids[i] = e.getId();
+			sourceIds[i] = (e.getSource() == null ? null : e.getSource().getId());
+			targetIds[i] = (e.getTarget() == null ? null : e.getTarget().getId());
+			relationNames[i] = e.getRelationName();
+		}
+		this.markSecondaryEdgesInParallel(ids, sourceIds, targetIds, relationNames);
+	}
+
+	/**
+	 * Marks the secondary edges given by their ids, the ids of their sources
+	 * and targets and their relation names like
+	 * {@link #markSecondaryEdge(String, String, String, String)}, but prepares
+	 * their entries in parallel.
+	 */
+	private void markSecondaryEdgesInParallel(final String[] ids, final String[] sourceIds, final String[] targetIds, final String[] relationNames) {
+		this.discourseIndex.buildLookup();
+		final boolean tempAnnotations = this.isToCreateTempAnnotations();
+		final PreparedSecondaryEdge[] prepared = new PreparedSecondaryEdge[ids.length];
+		forEach(ids.length, new IndexedJob() {
+			@Override
+			public void run(int i) {
+				prepared[i] = prepareSecondaryEdge(ids[i], sourceIds[i], targetIds[i], relationNames[i], tempAnnotations);
+			}
+		});
+		for (PreparedSecondaryEdge e : prepared) {
+			this.addSecondaryEdge(e);
+		}
+	}
+
 	private void markSecondaryEdge(SecondaryEdge e) {
 		if (e == null) {
 			return;
 		}
+		this.markSecondaryEdge(e.getId(), (e.getSource() == null ? null : e.getSource().getId()),
+				(e.getTarget() == null ? null : e.getTarget().getId()), e.getRelationName());
+	}
 
-		if (e.getSource() == null) {
+	/**
+	 * Adds the secondary edge given by its id, the ids of its source and
+	 * target and its relation name to the TEMP::secedges annotation of the
+	 * source.
+	 *
+	 * @param id
+	 * @param sourceId
+	 * @param targetId
+	 * @param relationName
+	 */
+	private void markSecondaryEdge(String id, String sourceId, String targetId, String relationName) {
+		this.addSecondaryEdge(this.prepareSecondaryEdge(id, sourceId, targetId, relationName, this.isToCreateTempAnnotations()));
+	}
+
+	/**
+	 * The entry of a secondary edge in the {@link RSTDiscourseIndex} and its
+	 * TEMP::secedges annotation, created by
+	 * {@link RST2SaltMapper#prepareSecondaryEdge(String, String, String, String, boolean)}.
+	 */
+	private static class PreparedSecondaryEdge {
+		private int source;
+		private int edgeSource;
+		private int edgeTarget;
+		private String relationName;
+		/** the annotated node, null if no TEMP annotations are created **/
+		private SStructure node;
+		private Map<String, Object> edgeMap;
+	}
+
+	/**
+	 * Validates the secondary edge given by its id, the ids of its source and
+	 * target and its relation name and creates its entries, without changing
+	 * the index or the graph. The TEMP::secedges entry is only created if
+	 * tempAnnotations is true.
+	 */
+	private PreparedSecondaryEdge prepareSecondaryEdge(String id, String sourceId, String targetId, String relationName, boolean tempAnnotations) {
+		if (sourceId == null) {
 			throw new PepperModuleException(this, "Cannot map the rst-model of file '" + this.getResourceURI()
 					+ "', because the source of a secondary edge is empty.");
 		}
-		if (e.getTarget() == null) {
+		if (targetId == null) {
 			throw new PepperModuleException(this, "Cannot map the rst-model of file '" + this.getResourceURI()
 					+ "', because the target of a secondary edge is empty.");
 		}
 
-		SStructure sSource = this.rstId2SStructure.get(e.getSource().getId());
-		SStructure sTarget = this.rstId2SStructure.get(e.getTarget().getId());
+		SStructure sSource = this.rstId2SStructure.get(sourceId);
+		SStructure sTarget = this.rstId2SStructure.get(targetId);
 		if (sSource == null) {
 			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
 					+ "', because the source of a secondary edge points to a non existing node with id '"
-					+ e.getSource().getId() + "'.");
+					+ sourceId + "'.");
 		}
 		if (sTarget == null) {
 			throw new PepperModuleException(this, "Cannot map the rst-model of file'" + this.getResourceURI()
 					+ "', because the target of a secondary edgepoints to a non existing node with id '"
-					+ e.getTarget().getId() + "'.");
+					+ targetId + "'.");
 		}
 
-		if (sSource.getAnnotation("TEMP", "secedges") == null) {
-			sSource.createAnnotation("TEMP", "secedges", new ArrayList<Map<String, String>>());
+		PreparedSecondaryEdge prepared = new PreparedSecondaryEdge();
+		prepared.source = this.discourseIndex.indexOfStructure(sourceId);
+		prepared.edgeSource = this.discourseIndex.indexOfStructure(id.split("-")[0]);
+		prepared.edgeTarget = this.discourseIndex.indexOfStructure(id.split("-")[1]);
+		prepared.relationName = relationName;
+		if (!tempAnnotations) {
+			return (prepared);
 		}
+
 		Map<String, Object> sMap = new HashMap<>();
-		sMap.put("edgeSource", this.rstId2UUID.get(e.getId().split("-")[0]));
-		sMap.put("edgeTarget", this.rstId2UUID.get(e.getId().split("-")[1]));
-		sMap.put("relationName", e.getRelationName());
-		((List<Map<String, Object>>) sSource.getAnnotation("TEMP", "secedges").getValue()).add(sMap);
+		sMap.put("edgeSource", this.rstId2UUID.get(id.split("-")[0]));
+		sMap.put("edgeTarget", this.rstId2UUID.get(id.split("-")[1]));
+		sMap.put("relationName", relationName);
+		prepared.node = sSource;
+		prepared.edgeMap = sMap;
+		return (prepared);
+	}
+
+	/**
+	 * Adds the secondary edge prepared by
+	 * {@link #prepareSecondaryEdge(String, String, String, String, boolean)} to the
+	 * {@link RSTDiscourseIndex} and to the TEMP::secedges annotation of its
+	 * source.
+	 */
+	private void addSecondaryEdge(PreparedSecondaryEdge e) {
+		this.discourseIndex.addSecondaryEdge(e.source, e.edgeSource, e.edgeTarget, e.relationName);
+		if (e.node == null) {
+			return;
+		}
+		if (e.node.getAnnotation("TEMP", "secedges") == null) {
+			e.node.createAnnotation("TEMP", "secedges", new ArrayList<Map<String, String>>());
+		}
+		((List<Map<String, Object>>) e.node.getAnnotation("TEMP", "secedges").getValue()).add(e.edgeMap);
+	}
+
+	/**
+	 * A job run for each index of a loop by {@link #forEach(int, IndexedJob)}.
+	 */
+	private interface IndexedJob {
+		void run(int i);
+	}
+
+	/**
+	 * Runs an {@link IndexedJob} for a range of indexes. The range is split in
+	 * halves as long as the worker has few queued tasks, which idle workers
+	 * may steal, otherwise it is run by the worker itself. So the size of the
+	 * chunks follows the number of cores and the load of the pool instead of
+	 * a fixed threshold.
+	 */
+	private static class IndexedAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		/** the number of queued tasks up to which a range is split further **/
+		private static final int MAX_SURPLUS_TASKS = 3;
+		private final IndexedJob job;
+		private final int from;
+		private final int to;
+
+		private IndexedAction(IndexedJob job, int from, int to) {
+			this.job = job;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > 1 && getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new IndexedAction(this.job, this.from, middle), new IndexedAction(this.job, middle, this.to));
+			} else {
+				for (int i = this.from; i < this.to; i++) {
+					this.job.run(i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the given job for all indexes from 0 to count - 1 in the common
+	 * fork-join pool and returns when all are done. The job must not change
+	 * the mapper, everything it reads has to be prepared before.
+	 *
+	 * @throws RuntimeException
+	 *             the first exception thrown by the job
+	 */
+	private static void forEach(int count, IndexedJob job) {
+		if (count == 0) {
+			return;
+		}
+		try {
+			ForkJoinPool.commonPool().invoke(new IndexedAction(job, 0, count));
+		} catch (RuntimeException e) {
+			// the pool rethrows an exception of another thread as a copy of
+			// the same class, whose cause is the original
+			if ((e.getCause() != null) && (e.getCause().getClass() == e.getClass())) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
 	}
 
 	private void markTokens() {
+		List<SToken> tokens = getDocument().getDocumentGraph().getTokens();
+		boolean tempAnnotations = this.isToCreateTempAnnotations();
+		this.tokenUUIDs = new UUID[tokens.size()];
 		int i = 1;
-		for (SToken t : getDocument().getDocumentGraph().getTokens()) {
-			UUID uuid = UUID.randomUUID();
-			t.createAnnotation("TEMP", "uuid", uuid);
-			this.rstId2UUID.put("token" + i++, uuid);
+		for (SToken t : tokens) {
+			UUID uuid = this.createUUID();
+			this.tokenUUIDs[i - 1] = uuid;
+			if (tempAnnotations) {
+				t.createAnnotation("TEMP", "uuid", uuid);
+				this.rstId2UUID.put("token" + i, uuid);
+			}
+			i++;
 		}
+		this.discourseIndex.setTokenUUIDs(this.tokenUUIDs);
 
-		SNode n = getDocument().getDocumentGraph().getNodes().get(0);
-		if (n != null) {
-			n.createAnnotation("TEMP", "rstid2uuid", this.rstId2UUID);
+		if (tempAnnotations) {
+			SNode n = getDocument().getDocumentGraph().getNodes().get(0);
+			if (n != null) {
+				n.createAnnotation("TEMP", "rstid2uuid", this.rstId2UUID);
+			}
 		}
 	}
 }
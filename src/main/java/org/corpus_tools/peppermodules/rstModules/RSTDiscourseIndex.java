@@ -0,0 +1,487 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.common.SStructure;
+import org.corpus_tools.salt.core.SFeature;
+
+/**
+ * Holds the identifiers, signals and secondary edges of a mapped rst document
+ * in primitive arrays. The {@link RST2SaltMapper} attaches the arrays to the
+ * {@link SDocumentGraph} as features in the namespace {@value #NAMESPACE} by
+ * {@link #attachTo(SDocumentGraph)}, exporters read them via
+ * {@link #get(SDocumentGraph)}. The values are arrays of <code>int</code>,
+ * <code>long</code> and {@link String}, so that a graph stored as SaltXML
+ * can be loaded without the classes of this module.
+ * <br/>
+ * Segments and groups are addressed by their structure index, which is the
+ * order in which they were mapped, tokens by their 0-based position in the
+ * document. The name of the {@link SStructure} of a segment or group is its
+ * rst id.
+ * <br/>
+ * It contains the information of the former annotations TEMP::uuid,
+ * TEMP::rstid2uuid, TEMP::signals and TEMP::secedges, which are only created
+ * if {@link RSTImporterProperties#PROP_TEMP_ANNOTATIONS} is switched on.
+ */
+public class RSTDiscourseIndex {
+	/** namespace of the features containing the index **/
+	public static final String NAMESPACE = "rst";
+	/** the rst ids of all structures, a String[] **/
+	public static final String FEATURE_STRUCTURE_IDS = "structureIds";
+	/** the uuids of all structures, two longs each, a long[] **/
+	public static final String FEATURE_STRUCTURE_UUIDS = "structureUUIDs";
+	/** the uuids of all tokens, two longs each, a long[] **/
+	public static final String FEATURE_TOKEN_UUIDS = "tokenUUIDs";
+	/** the types, subtypes and relation names, a String[] **/
+	public static final String FEATURE_DICTIONARY = "dictionary";
+	/**
+	 * structure index of the carrier, source and second source, dictionary
+	 * index of type and subtype and the end of the tokens of all signals, six
+	 * ints each, an int[]
+	 **/
+	public static final String FEATURE_SIGNALS = "signals";
+	/** the tokens of all signals, an int[] **/
+	public static final String FEATURE_SIGNAL_TOKENS = "signalTokens";
+	/**
+	 * structure index of carrier, source and target and dictionary index of
+	 * the relation name of all secondary edges, four ints each, an int[]
+	 **/
+	public static final String FEATURE_SECONDARY_EDGES = "secondaryEdges";
+
+	/** marks a missing structure or token **/
+	public static final int NONE = -1;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Returns the index attached to the given graph. The returned index shares
+	 * the arrays of the features, it is not meant to be modified.
+	 *
+	 * @param graph
+	 * @return the index or null, if the graph was not created by the
+	 *         {@link RST2SaltMapper}
+	 */
+	public static RSTDiscourseIndex get(SDocumentGraph graph) {
+		if ((graph == null) || (graph.getFeature(NAMESPACE, FEATURE_STRUCTURE_IDS) == null)) {
+			return (null);
+		}
+		RSTDiscourseIndex index = new RSTDiscourseIndex();
+		index.structureIds = (String[]) getValue(graph, FEATURE_STRUCTURE_IDS);
+		index.structureCount = index.structureIds.length;
+		index.structureUUIDs = (long[]) getValue(graph, FEATURE_STRUCTURE_UUIDS);
+		index.tokenUUIDs = (long[]) getValue(graph, FEATURE_TOKEN_UUIDS);
+		index.dictionary.addAll(Arrays.asList((String[]) getValue(graph, FEATURE_DICTIONARY)));
+		int[] signals = (int[]) getValue(graph, FEATURE_SIGNALS);
+		index.signalCount = signals.length / 6;
+		index.signalCarriers = new int[index.signalCount];
+		index.signalSources = new int[2 * index.signalCount];
+		index.signalTypes = new int[2 * index.signalCount];
+		index.signalTokenEnds = new int[index.signalCount];
+		for (int i = 0; i < index.signalCount; i++) {
+			index.signalCarriers[i] = signals[6 * i];
+			index.signalSources[2 * i] = signals[6 * i + 1];
+			index.signalSources[2 * i + 1] = signals[6 * i + 2];
+			index.signalTypes[2 * i] = signals[6 * i + 3];
+			index.signalTypes[2 * i + 1] = signals[6 * i + 4];
+			index.signalTokenEnds[i] = signals[6 * i + 5];
+		}
+		index.signalTokens = (int[]) getValue(graph, FEATURE_SIGNAL_TOKENS);
+		index.signalTokenCount = index.signalTokens.length;
+		int[] secondaryEdges = (int[]) getValue(graph, FEATURE_SECONDARY_EDGES);
+		index.secondaryEdgeCount = secondaryEdges.length / 4;
+		index.secondaryEdgeStructures = new int[3 * index.secondaryEdgeCount];
+		index.secondaryEdgeNames = new int[index.secondaryEdgeCount];
+		for (int i = 0; i < index.secondaryEdgeCount; i++) {
+			System.arraycopy(secondaryEdges, 4 * i, index.secondaryEdgeStructures, 3 * i, 3);
+			index.secondaryEdgeNames[i] = secondaryEdges[4 * i + 3];
+		}
+		return (index);
+	}
+
+	private static Object getValue(SDocumentGraph graph, String name) {
+		SFeature feature = graph.getFeature(NAMESPACE, name);
+		if ((feature == null) || (feature.getValue() == null)) {
+			throw new IllegalStateException("The feature " + NAMESPACE + "::" + name + " of the discourse index is missing.");
+		}
+		return (feature.getValue());
+	}
+
+	/**
+	 * Trims this index and attaches its arrays to the given graph, replacing
+	 * the features of an index attached before.
+	 */
+	void attachTo(SDocumentGraph graph) {
+		this.trim();
+		int[] signals = new int[6 * this.signalCount];
+		for (int i = 0; i < this.signalCount; i++) {
+			signals[6 * i] = this.signalCarriers[i];
+			signals[6 * i + 1] = this.signalSources[2 * i];
+			signals[6 * i + 2] = this.signalSources[2 * i + 1];
+			signals[6 * i + 3] = this.signalTypes[2 * i];
+			signals[6 * i + 4] = this.signalTypes[2 * i + 1];
+			signals[6 * i + 5] = this.signalTokenEnds[i];
+		}
+		int[] secondaryEdges = new int[4 * this.secondaryEdgeCount];
+		for (int i = 0; i < this.secondaryEdgeCount; i++) {
+			System.arraycopy(this.secondaryEdgeStructures, 3 * i, secondaryEdges, 4 * i, 3);
+			secondaryEdges[4 * i + 3] = this.secondaryEdgeNames[i];
+		}
+		setValue(graph, FEATURE_STRUCTURE_IDS, this.structureIds);
+		setValue(graph, FEATURE_STRUCTURE_UUIDS, this.structureUUIDs);
+		setValue(graph, FEATURE_TOKEN_UUIDS, this.tokenUUIDs);
+		setValue(graph, FEATURE_DICTIONARY, this.dictionary.toArray(new String[this.dictionary.size()]));
+		setValue(graph, FEATURE_SIGNALS, signals);
+		setValue(graph, FEATURE_SIGNAL_TOKENS, this.signalTokens);
+		setValue(graph, FEATURE_SECONDARY_EDGES, secondaryEdges);
+	}
+
+	private static void setValue(SDocumentGraph graph, String name, Object value) {
+		SFeature feature = graph.getFeature(NAMESPACE, name);
+		if (feature == null) {
+			graph.createFeature(NAMESPACE, name, value);
+		} else {
+			feature.setValue(value);
+		}
+	}
+
+	// ================================================ start: dictionary
+	private final List<String> dictionary = new ArrayList<>();
+	private Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+	private int intern(String value) {
+		if (value == null) {
+			return (NONE);
+		}
+		Integer index = this.dictionaryIndex.get(value);
+		if (index == null) {
+			index = this.dictionary.size();
+			this.dictionary.add(value);
+			this.dictionaryIndex.put(value, index);
+		}
+		return (index);
+	}
+
+	private String lookup(int index) {
+		return ((index == NONE) ? null : this.dictionary.get(index));
+	}
+
+	// ================================================ end: dictionary
+	// ================================================ start: structures and tokens
+	private String[] structureIds = new String[INITIAL_CAPACITY];
+	/** most and least significant bits of the uuid of each structure **/
+	private long[] structureUUIDs = new long[2 * INITIAL_CAPACITY];
+	private int structureCount = 0;
+	private Map<String, Integer> structureIndex = null;
+
+	/** most and least significant bits of the uuid of each token **/
+	private long[] tokenUUIDs = new long[0];
+
+	/**
+	 * Adds the structure of a segment or group.
+	 *
+	 * @return the structure index
+	 */
+	int addStructure(String id, UUID uuid) {
+		if (this.structureCount == this.structureIds.length) {
+			this.structureIds = Arrays.copyOf(this.structureIds, this.structureCount * 2);
+			this.structureUUIDs = Arrays.copyOf(this.structureUUIDs, this.structureCount * 4);
+		}
+		this.structureIds[this.structureCount] = id;
+		this.structureUUIDs[2 * this.structureCount] = uuid.getMostSignificantBits();
+		this.structureUUIDs[2 * this.structureCount + 1] = uuid.getLeastSignificantBits();
+		if (this.structureIndex != null) {
+			this.structureIndex.put(id, this.structureCount);
+		}
+		return (this.structureCount++);
+	}
+
+	/**
+	 * Sets the uuids of all tokens in the order of their position.
+	 */
+	void setTokenUUIDs(UUID[] uuids) {
+		this.tokenUUIDs = new long[2 * uuids.length];
+		for (int i = 0; i < uuids.length; i++) {
+			this.tokenUUIDs[2 * i] = uuids[i].getMostSignificantBits();
+			this.tokenUUIDs[2 * i + 1] = uuids[i].getLeastSignificantBits();
+		}
+	}
+
+	public int getStructureCount() {
+		return (this.structureCount);
+	}
+
+	/**
+	 * Returns the rst id of the segment or group with the given structure
+	 * index.
+	 */
+	public String getStructureId(int structure) {
+		return (this.structureIds[structure]);
+	}
+
+	public UUID getStructureUUID(int structure) {
+		if (structure == NONE) {
+			return (null);
+		}
+		return (new UUID(this.structureUUIDs[2 * structure], this.structureUUIDs[2 * structure + 1]));
+	}
+
+	/**
+	 * Builds the table of the structure indexes by rst id, which is then kept
+	 * up to date by {@link #addStructure(String, UUID)}. Otherwise it is
+	 * built by the first call of {@link #indexOfStructure(String)}, therefore
+	 * it has to be built before {@link #indexOfStructure(String)} is called
+	 * by several threads. The table is read only afterwards, as long as no
+	 * structure is added.
+	 */
+	void buildLookup() {
+		if (this.structureIndex == null) {
+			this.structureIndex = new HashMap<>(this.structureCount * 2);
+			for (int i = 0; i < this.structureCount; i++) {
+				this.structureIndex.put(this.structureIds[i], i);
+			}
+		}
+	}
+
+	/**
+	 * Returns the structure index of the segment or group with the given rst
+	 * id.
+	 *
+	 * @return the index or {@link #NONE}
+	 */
+	public int indexOfStructure(String id) {
+		this.buildLookup();
+		Integer index = (id == null) ? null : this.structureIndex.get(id);
+		return ((index == null) ? NONE : index);
+	}
+
+	public int getTokenCount() {
+		return (this.tokenUUIDs.length / 2);
+	}
+
+	/**
+	 * Returns the uuid of the token at the given 0-based position.
+	 */
+	public UUID getTokenUUID(int position) {
+		if ((position == NONE) || (position >= this.getTokenCount())) {
+			return (null);
+		}
+		return (new UUID(this.tokenUUIDs[2 * position], this.tokenUUIDs[2 * position + 1]));
+	}
+
+	/**
+	 * Returns the uuid for an rst id or a token key "token" followed by the
+	 * 1-based position, like the former TEMP::rstid2uuid map.
+	 *
+	 * @return the uuid or null
+	 */
+	public UUID getUUID(String rstId) {
+		int structure = this.indexOfStructure(rstId);
+		if (structure != NONE) {
+			return (this.getStructureUUID(structure));
+		}
+		if ((rstId != null) && rstId.startsWith("token")) {
+			try {
+				return (this.getTokenUUID(Integer.parseInt(rstId.substring("token".length())) - 1));
+			} catch (NumberFormatException | IndexOutOfBoundsException e) {
+				return (null);
+			}
+		}
+		return (null);
+	}
+
+	// ================================================ end: structures and tokens
+	// ================================================ start: signals
+	private int[] signalCarriers = new int[INITIAL_CAPACITY];
+	private int[] signalSources = new int[2 * INITIAL_CAPACITY];
+	private int[] signalTypes = new int[2 * INITIAL_CAPACITY];
+	private int[] signalTokenEnds = new int[INITIAL_CAPACITY];
+	private int signalCount = 0;
+	/** 0-based positions of the tokens of all signals **/
+	private int[] signalTokens = new int[INITIAL_CAPACITY];
+	private int signalTokenCount = 0;
+
+	/**
+	 * Adds a signal.
+	 *
+	 * @param carrier
+	 *            structure index of the node the signal belongs to
+	 * @param source
+	 *            structure index of the source
+	 * @param secondSource
+	 *            structure index of the target, if the source is a secondary
+	 *            edge, {@link #NONE} otherwise
+	 * @param tokens
+	 *            0-based positions of the tokens, may be null
+	 */
+	void addSignal(int carrier, int source, int secondSource, String type, String subtype, int[] tokens) {
+		if (this.signalCount == this.signalCarriers.length) {
+			this.signalCarriers = Arrays.copyOf(this.signalCarriers, this.signalCount * 2);
+			this.signalSources = Arrays.copyOf(this.signalSources, this.signalCount * 4);
+			this.signalTypes = Arrays.copyOf(this.signalTypes, this.signalCount * 4);
+			this.signalTokenEnds = Arrays.copyOf(this.signalTokenEnds, this.signalCount * 2);
+		}
+		this.signalCarriers[this.signalCount] = carrier;
+		this.signalSources[2 * this.signalCount] = source;
+		this.signalSources[2 * this.signalCount + 1] = secondSource;
+		this.signalTypes[2 * this.signalCount] = this.intern(type);
+		this.signalTypes[2 * this.signalCount + 1] = this.intern(subtype);
+		if (tokens != null) {
+			if (this.signalTokenCount + tokens.length > this.signalTokens.length) {
+				this.signalTokens = Arrays.copyOf(this.signalTokens, Math.max(this.signalTokens.length * 2, this.signalTokenCount + tokens.length));
+			}
+			System.arraycopy(tokens, 0, this.signalTokens, this.signalTokenCount, tokens.length);
+			this.signalTokenCount += tokens.length;
+		}
+		this.signalTokenEnds[this.signalCount] = this.signalTokenCount;
+		this.signalCount++;
+	}
+
+	public int getSignalCount() {
+		return (this.signalCount);
+	}
+
+	/**
+	 * Returns the structure index of the segment or group the signal belongs
+	 * to.
+	 */
+	public int getSignalCarrier(int signal) {
+		return (this.signalCarriers[signal]);
+	}
+
+	public String getSignalType(int signal) {
+		return (this.lookup(this.signalTypes[2 * signal]));
+	}
+
+	public String getSignalSubtype(int signal) {
+		return (this.lookup(this.signalTypes[2 * signal + 1]));
+	}
+
+	/**
+	 * Returns the uuid of the source of the signal, or the uuids of source and
+	 * target, if the source is a secondary edge.
+	 */
+	public List<UUID> getSignalSourceUUIDs(int signal) {
+		List<UUID> uuids = new ArrayList<>(2);
+		uuids.add(this.getStructureUUID(this.signalSources[2 * signal]));
+		if (this.signalSources[2 * signal + 1] != NONE) {
+			uuids.add(this.getStructureUUID(this.signalSources[2 * signal + 1]));
+		}
+		return (uuids);
+	}
+
+	/**
+	 * Returns the 0-based positions of the tokens of the signal.
+	 */
+	public int[] getSignalTokens(int signal) {
+		int start = (signal == 0) ? 0 : this.signalTokenEnds[signal - 1];
+		return (Arrays.copyOfRange(this.signalTokens, start, this.signalTokenEnds[signal]));
+	}
+
+	/**
+	 * Returns the uuids of the tokens of the signal.
+	 */
+	public List<UUID> getSignalTokenUUIDs(int signal) {
+		int[] tokens = this.getSignalTokens(signal);
+		List<UUID> uuids = new ArrayList<>(tokens.length);
+		for (int token : tokens) {
+			uuids.add(this.getTokenUUID(token));
+		}
+		return (uuids);
+	}
+
+	// ================================================ end: signals
+	// ================================================ start: secondary edges
+	/** carrier, source and target structure index of each secondary edge **/
+	private int[] secondaryEdgeStructures = new int[3 * INITIAL_CAPACITY];
+	private int[] secondaryEdgeNames = new int[INITIAL_CAPACITY];
+	private int secondaryEdgeCount = 0;
+
+	/**
+	 * Adds a secondary edge.
+	 *
+	 * @param carrier
+	 *            structure index of the node the edge belongs to
+	 * @param source
+	 *            structure index of the source
+	 * @param target
+	 *            structure index of the target
+	 */
+	void addSecondaryEdge(int carrier, int source, int target, String relationName) {
+		if (this.secondaryEdgeCount == this.secondaryEdgeNames.length) {
+			this.secondaryEdgeStructures = Arrays.copyOf(this.secondaryEdgeStructures, this.secondaryEdgeCount * 6);
+			this.secondaryEdgeNames = Arrays.copyOf(this.secondaryEdgeNames, this.secondaryEdgeCount * 2);
+		}
+		this.secondaryEdgeStructures[3 * this.secondaryEdgeCount] = carrier;
+		this.secondaryEdgeStructures[3 * this.secondaryEdgeCount + 1] = source;
+		this.secondaryEdgeStructures[3 * this.secondaryEdgeCount + 2] = target;
+		this.secondaryEdgeNames[this.secondaryEdgeCount] = this.intern(relationName);
+		this.secondaryEdgeCount++;
+	}
+
+	public int getSecondaryEdgeCount() {
+		return (this.secondaryEdgeCount);
+	}
+
+	/**
+	 * Returns the structure index of the segment or group the secondary edge
+	 * belongs to.
+	 */
+	public int getSecondaryEdgeCarrier(int secondaryEdge) {
+		return (this.secondaryEdgeStructures[3 * secondaryEdge]);
+	}
+
+	public UUID getSecondaryEdgeSourceUUID(int secondaryEdge) {
+		return (this.getStructureUUID(this.secondaryEdgeStructures[3 * secondaryEdge + 1]));
+	}
+
+	public UUID getSecondaryEdgeTargetUUID(int secondaryEdge) {
+		return (this.getStructureUUID(this.secondaryEdgeStructures[3 * secondaryEdge + 2]));
+	}
+
+	public String getSecondaryEdgeRelationName(int secondaryEdge) {
+		return (this.lookup(this.secondaryEdgeNames[secondaryEdge]));
+	}
+
+	// ================================================ end: secondary edges
+
+	/**
+	 * Shrinks all arrays to their used size and releases the lookup tables
+	 * only needed while the index is filled.
+	 */
+	private void trim() {
+		this.dictionaryIndex = null;
+		this.structureIndex = null;
+		this.structureIds = Arrays.copyOf(this.structureIds, this.structureCount);
+		this.structureUUIDs = Arrays.copyOf(this.structureUUIDs, 2 * this.structureCount);
+		this.signalCarriers = Arrays.copyOf(this.signalCarriers, this.signalCount);
+		this.signalSources = Arrays.copyOf(this.signalSources, 2 * this.signalCount);
+		this.signalTypes = Arrays.copyOf(this.signalTypes, 2 * this.signalCount);
+		this.signalTokenEnds = Arrays.copyOf(this.signalTokenEnds, this.signalCount);
+		this.signalTokens = Arrays.copyOf(this.signalTokens, this.signalTokenCount);
+		this.secondaryEdgeStructures = Arrays.copyOf(this.secondaryEdgeStructures, 3 * this.secondaryEdgeCount);
+		this.secondaryEdgeNames = Arrays.copyOf(this.secondaryEdgeNames, this.secondaryEdgeCount);
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules;
+
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics.Phase;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Java Flight Recorder events of the import. This is the only class
+ * referring to jdk.jfr, it is only loaded by {@link RSTFlightRecorder} if
+ * the running JVM provides the flight recorder.
+ */
+final class RSTEvents {
+	private RSTEvents() {
+	}
+
+	@Category({ "Pepper", "RST Import" })
+	abstract static class RSTEvent extends Event {
+		@Label("Document")
+		@Description("Id of the Salt document or location of the file")
+		String document;
+	}
+
+	@Name("org.corpus_tools.rst.Parse")
+	@Label("RST Parse")
+	@Description("Reading a rs3 or rs4 file into the model")
+	static class ParseEvent extends RSTEvent {
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Segments")
+		int segments;
+
+		@Label("Relations")
+		int relations;
+	}
+
+	@Name("org.corpus_tools.rst.Tokenize")
+	@Label("RST Tokenize")
+	@Description("Tokenizing the primary text of a document")
+	static class TokenizeEvent extends RSTEvent {
+		@Label("Characters")
+		int characters;
+
+		@Label("Tokens")
+		int tokens;
+	}
+
+	@Name("org.corpus_tools.rst.MapRelations")
+	@Label("RST Map Relations")
+	@Description("Mapping the relations of a document to dominance relations")
+	static class RelationsEvent extends RSTEvent {
+		@Label("Relations")
+		int relations;
+	}
+
+	@Name("org.corpus_tools.rst.MarkSignals")
+	@Label("RST Mark Signals")
+	@Description("Marking the secondary edges and signals of a document")
+	static class SignalsEvent extends RSTEvent {
+		@Label("Signals")
+		int signals;
+
+		@Label("Secondary Edges")
+		int secondaryEdges;
+	}
+
+	static Object begin(Phase phase) {
+		RSTEvent event;
+		switch (phase) {
+		case PARSE:
+			event = new ParseEvent();
+			break;
+		case TOKENIZE:
+			event = new TokenizeEvent();
+			break;
+		case RELATIONS:
+			event = new RelationsEvent();
+			break;
+		case SIGNALS:
+			event = new SignalsEvent();
+			break;
+		default:
+			return (null);
+		}
+		if (!event.isEnabled()) {
+			return (null);
+		}
+		event.begin();
+		return (event);
+	}
+
+	static void commitParse(Object object, String document, long bytes, int segments, int relations) {
+		ParseEvent event = (ParseEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = document;
+			event.bytes = bytes;
+			event.segments = segments;
+			event.relations = relations;
+			event.commit();
+		}
+	}
+
+	static void commitTokenize(Object object, String document, int characters, int tokens) {
+		TokenizeEvent event = (TokenizeEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = document;
+			event.characters = characters;
+			event.tokens = tokens;
+			event.commit();
+		}
+	}
+
+	static void commitRelations(Object object, String document, int relations) {
+		RelationsEvent event = (RelationsEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = document;
+			event.relations = relations;
+			event.commit();
+		}
+	}
+
+	static void commitSignals(Object object, String document, int signals, int secondaryEdges) {
+		SignalsEvent event = (SignalsEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = document;
+			event.signals = signals;
+			event.secondaryEdges = secondaryEdges;
+			event.commit();
+		}
+	}
+}
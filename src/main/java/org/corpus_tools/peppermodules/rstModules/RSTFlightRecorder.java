@@ -0,0 +1,91 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules;
+
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics.Phase;
+
+/**
+ * Emits Java Flight Recorder events for parsing, tokenizing, mapping
+ * relations and marking signals of a document (see {@link RSTEvents}). On a
+ * JVM without the flight recorder or when the package jdk.jfr is not visible
+ * to the bundle, all methods do nothing. When no recording is running,
+ * {@link #begin(Phase)} returns null and no event is created.
+ * <br/>
+ * Usage:
+ *
+ * <pre>
+ * Object event = RSTFlightRecorder.begin(Phase.RELATIONS);
+ * ...
+ * RSTFlightRecorder.commitRelations(event, documentId, relations);
+ * </pre>
+ */
+final class RSTFlightRecorder {
+	private RSTFlightRecorder() {
+	}
+
+	private static final boolean AVAILABLE = checkAvailable();
+
+	private static boolean checkAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, RSTFlightRecorder.class.getClassLoader());
+			return (true);
+		} catch (ClassNotFoundException | LinkageError | SecurityException e) {
+			return (false);
+		}
+	}
+
+	/**
+	 * Returns if events can be emitted.
+	 */
+	static boolean isAvailable() {
+		return (AVAILABLE);
+	}
+
+	/**
+	 * Begins the event of the given phase.
+	 *
+	 * @return the event, or null if no event is recorded
+	 */
+	static Object begin(Phase phase) {
+		return (AVAILABLE ? RSTEvents.begin(phase) : null);
+	}
+
+	static void commitParse(Object event, String document, long bytes, int segments, int relations) {
+		if (event != null) {
+			RSTEvents.commitParse(event, document, bytes, segments, relations);
+		}
+	}
+
+	static void commitTokenize(Object event, String document, int characters, int tokens) {
+		if (event != null) {
+			RSTEvents.commitTokenize(event, document, characters, tokens);
+		}
+	}
+
+	static void commitRelations(Object event, String document, int relations) {
+		if (event != null) {
+			RSTEvents.commitRelations(event, document, relations);
+		}
+	}
+
+	static void commitSignals(Object event, String document, int signals, int secondaryEdges) {
+		if (event != null) {
+			RSTEvents.commitSignals(event, document, signals, secondaryEdges);
+		}
+	}
+}
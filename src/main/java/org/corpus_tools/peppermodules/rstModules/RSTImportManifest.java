@@ -0,0 +1,341 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.corpus_tools.peppermodules.rstModules.reader.CompressedInput;
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.util.SaltUtil;
+import org.eclipse.emf.common.util.URI;
+
+/**
+ * Records for each imported document the SHA-256 hash of its content and a
+ * hash of the properties it was mapped with, so that the next import of the
+ * corpus recognizes unchanged documents, see
+ * {@link RSTImporterProperties#PROP_INCREMENTAL_DIRECTORY}. The manifest is
+ * stored in the file {@value #MANIFEST_FILE} of the directory, next to the
+ * document graphs of the mapped documents in SaltXML, which are loaded for
+ * unchanged documents instead of mapping them again. Salt stores feature and
+ * annotation values, which are not strings, numbers or booleans, as
+ * serialized Java objects and deserializes them with its own class loader.
+ * Therefore the mapper only creates values of JDK types, which every bundle
+ * can load, never objects of classes of this module.
+ * <br/>
+ * The {@link RSTImporter} passes one instance to all of its mappers, which
+ * call {@link #createEntry(String, URI, RSTImporterSettings)} and
+ * {@link #put(Entry, SDocumentGraph)} in parallel, and stores it with
+ * {@link #save()} when the import ends. Entries of documents, which were not
+ * imported again, are dropped then.
+ */
+public class RSTImportManifest {
+	/** name of the file containing the manifest **/
+	public static final String MANIFEST_FILE = "manifest.properties";
+
+	/**
+	 * version of the mapping, part of the hash of the properties so that
+	 * entries of former versions are not used
+	 **/
+	private static final String VERSION = "1";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The hashes of one document.
+	 */
+	public static class Entry {
+		private final String documentId;
+		private final String contentHash;
+		private final String settingsHash;
+
+		public Entry(String documentId, String contentHash, String settingsHash) {
+			this.documentId = documentId;
+			this.contentHash = contentHash;
+			this.settingsHash = settingsHash;
+		}
+
+		public String getDocumentId() {
+			return documentId;
+		}
+
+		public String getContentHash() {
+			return contentHash;
+		}
+
+		public String getSettingsHash() {
+			return settingsHash;
+		}
+
+		/** the value stored in the manifest **/
+		private String toValue() {
+			return (contentHash + " " + settingsHash);
+		}
+
+		/**
+		 * The name of the file of the document graph, which changes with
+		 * the document and the properties, so that a graph is never
+		 * overwritten by one of another version.
+		 */
+		private String getGraphFileName() {
+			return (toHex(digest().digest((documentId + "\n" + toValue()).getBytes(UTF_8))) + "." + SaltUtil.FILE_ENDING_SALT_XML);
+		}
+	}
+
+	private final File directory;
+
+	/** the entries of the former import, document id to value **/
+	private final Map<String, String> previous;
+
+	/** the entries of the current import **/
+	private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+	/**
+	 * Reads the manifest of the former import from the given directory,
+	 * which is created if it does not exist.
+	 *
+	 * @param directory
+	 * @throws IOException
+	 *             if the directory cannot be created or the manifest cannot
+	 *             be read
+	 */
+	public RSTImportManifest(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the directory '" + directory.getAbsolutePath() + "'.");
+		}
+		this.directory = directory;
+		Map<String, String> previous = new HashMap<>();
+		File manifestFile = new File(directory, MANIFEST_FILE);
+		if (manifestFile.isFile()) {
+			Properties manifest = new Properties();
+			try (InputStream in = new FileInputStream(manifestFile)) {
+				manifest.load(in);
+			}
+			for (String documentId : manifest.stringPropertyNames()) {
+				previous.put(documentId, manifest.getProperty(documentId));
+			}
+		}
+		this.previous = Collections.unmodifiableMap(previous);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return (MessageDigest.getInstance("SHA-256"));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("The JVM does not provide SHA-256.", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(2 * bytes.length);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return (hex.toString());
+	}
+
+	/**
+	 * Returns the hash of the content the given uri points to, for
+	 * compressed files and entries of archives of the decompressed content.
+	 */
+	public static String hashContent(URI uri) throws IOException {
+		MessageDigest digest = digest();
+		byte[] buffer = new byte[64 << 10];
+		try (InputStream in = CompressedInput.open(uri)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return (toHex(digest.digest()));
+	}
+
+	/**
+	 * Returns the hash of the values of all properties, which change the
+	 * mapped document graph.
+	 * <br/>
+	 * The parser, the compact model and the parallel mapping are deliberately
+	 * left out, they change how a document is read and mapped, but not the
+	 * resulting graph. The same
+	 * holds for the cache, the statistics file and the manifest itself.
+	 */
+	public static String hashSettings(RSTImporterSettings settings) {
+		StringBuilder values = new StringBuilder(VERSION);
+		values.append('\n').append(settings.isToTokenize());
+		values.append('\n').append(settings.getSimpleTokenizationSeparators());
+		values.append('\n').append(settings.isToBatchTokenize());
+		values.append('\n').append(settings.getNodeKindName());
+		values.append('\n').append(settings.getNodeTypeName());
+		values.append('\n').append(settings.getRelationName());
+		values.append('\n').append(settings.getSegmentSeparator());
+		values.append('\n').append(settings.isToMarkIsSignaled());
+		values.append('\n').append(settings.isToUseRandomUUIDs());
+		values.append('\n').append(settings.isToCreateTempAnnotations());
+		return (toHex(digest().digest(values.toString().getBytes(UTF_8))));
+	}
+
+	/**
+	 * Creates the entry of the given document.
+	 *
+	 * @param documentId
+	 *            the id of the SDocument
+	 * @param uri
+	 *            the location of the rs3 or rs4 file
+	 * @param settings
+	 *            the properties the document is mapped with
+	 * @return the entry or null, if the file cannot be read
+	 */
+	public Entry createEntry(String documentId, URI uri, RSTImporterSettings settings) {
+		try {
+			return (new Entry(documentId, hashContent(uri), hashSettings(settings)));
+		} catch (IOException e) {
+			return (null);
+		}
+	}
+
+	/**
+	 * Returns if the former import contained the document of the given entry
+	 * with the same content and properties.
+	 */
+	public boolean isUnchanged(Entry entry) {
+		return (entry.toValue().equals(this.previous.get(entry.getDocumentId())));
+	}
+
+	/**
+	 * Loads the document graph stored for the given entry by the former
+	 * import.
+	 *
+	 * @return the graph or null, if none was stored or it cannot be loaded
+	 */
+	public SDocumentGraph loadGraph(Entry entry) {
+		File graphFile = new File(this.directory, entry.getGraphFileName());
+		if (!graphFile.isFile()) {
+			return (null);
+		}
+		try {
+			return (SaltUtil.loadDocumentGraph(URI.createFileURI(graphFile.getAbsolutePath())));
+		} catch (RuntimeException e) {
+			return (null);
+		}
+	}
+
+	/**
+	 * Adds the given entry to the manifest of the current import and stores
+	 * the given document graph.
+	 *
+	 * @param entry
+	 * @param graph
+	 *            the mapped graph or null, if it is not to be stored
+	 * @throws IOException
+	 *             if the graph cannot be stored
+	 */
+	public void put(Entry entry, SDocumentGraph graph) throws IOException {
+		if (graph != null) {
+			File graphFile = new File(this.directory, entry.getGraphFileName());
+			if (!graphFile.isFile()) {
+				File tmpFile = new File(this.directory, graphFile.getName() + "." + Thread.currentThread().getId() + ".tmp." + SaltUtil.FILE_ENDING_SALT_XML);
+				try {
+					SaltUtil.saveDocumentGraph(graph, URI.createFileURI(tmpFile.getAbsolutePath()));
+				} catch (RuntimeException e) {
+					tmpFile.delete();
+					throw new IOException("Cannot store the document graph of '" + entry.getDocumentId() + "'.", e);
+				}
+				try {
+					Files.move(tmpFile.toPath(), graphFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tmpFile.toPath(), graphFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+		this.current.put(entry.getDocumentId(), entry);
+	}
+
+	/**
+	 * Returns the number of documents of the current import, which were
+	 * unchanged since the former one.
+	 */
+	public int getUnchangedCount() {
+		int unchanged = 0;
+		for (Entry entry : this.current.values()) {
+			if (this.isUnchanged(entry)) {
+				unchanged++;
+			}
+		}
+		return (unchanged);
+	}
+
+	/**
+	 * Writes the entries of the current import to the manifest and deletes
+	 * the stored document graphs, which are not referred to any more.
+	 *
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		Properties manifest = new Properties();
+		Set<String> graphFileNames = new HashSet<>();
+		for (Entry entry : this.current.values()) {
+			manifest.setProperty(entry.getDocumentId(), entry.toValue());
+			graphFileNames.add(entry.getGraphFileName());
+		}
+		File manifestFile = new File(this.directory, MANIFEST_FILE);
+		File tmpFile = new File(this.directory, MANIFEST_FILE + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmpFile)) {
+			manifest.store(out, "rst documents of the last import: content hash, properties hash");
+		}
+		try {
+			Files.move(tmpFile.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		File[] graphFiles = this.directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return (name.endsWith("." + SaltUtil.FILE_ENDING_SALT_XML));
+			}
+		});
+		if (graphFiles != null) {
+			for (File graphFile : graphFiles) {
+				if (!graphFileNames.contains(graphFile.getName())) {
+					graphFile.delete();
+				}
+			}
+		}
+	}
+}
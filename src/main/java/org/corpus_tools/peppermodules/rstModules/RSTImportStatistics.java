@@ -0,0 +1,170 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the time spent in each phase of the import and counts the
+ * imported elements. The {@link RSTImporter} passes one instance to all of
+ * its mappers, so that the values are aggregated per corpus, and reports
+ * them when the import ends. Since mappers run in parallel, all values are
+ * updated atomically.
+ */
+public class RSTImportStatistics {
+
+	/** the phases of reading and mapping a document **/
+	public enum Phase {
+		/** reading the rs3 or rs4 file into the model **/
+		PARSE,
+		/** concatenating the text of all segments **/
+		TEXT,
+		/** tokenizing the text and creating the identifiers of tokens **/
+		TOKENIZE,
+		/** mapping segments and groups to SStructures **/
+		STRUCTURES,
+		/** mapping relations to SDominanceRelations **/
+		RELATIONS,
+		/** marking signals **/
+		SIGNALS,
+		/** marking secondary edges **/
+		SECONDARY_EDGES
+	}
+
+	/** the counted values **/
+	public enum Counter {
+		DOCUMENTS, BYTES, SEGMENTS, GROUPS, TOKENS, RELATIONS, SIGNALS, SECONDARY_EDGES,
+		/** documents not mapped, since they have not changed since the last import **/
+		UNCHANGED_DOCUMENTS
+	}
+
+	private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+	private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+
+	/**
+	 * Adds the time since <code>start</code> to the given phase.
+	 *
+	 * @param phase
+	 * @param start
+	 *            a value of {@link System#nanoTime()}
+	 * @return the current value of {@link System#nanoTime()}, to be passed as
+	 *         start of the next phase
+	 */
+	public long record(Phase phase, long start) {
+		long now = System.nanoTime();
+		nanos.addAndGet(phase.ordinal(), now - start);
+		return (now);
+	}
+
+	/**
+	 * Adds the given value to the given counter.
+	 */
+	public void count(Counter counter, long value) {
+		counts.addAndGet(counter.ordinal(), value);
+	}
+
+	/**
+	 * Returns the time spent in the given phase in nanoseconds.
+	 */
+	public long getNanos(Phase phase) {
+		return (nanos.get(phase.ordinal()));
+	}
+
+	/**
+	 * Returns the value of the given counter.
+	 */
+	public long getCount(Counter counter) {
+		return (counts.get(counter.ordinal()));
+	}
+
+	/**
+	 * Sets all values to 0.
+	 */
+	public void reset() {
+		for (int i = 0; i < nanos.length(); i++) {
+			nanos.set(i, 0);
+		}
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	private static String toName(Enum<?> value) {
+		StringBuilder name = new StringBuilder();
+		boolean upper = false;
+		for (char c : value.name().toCharArray()) {
+			if (c == '_') {
+				upper = true;
+			} else {
+				name.append(upper ? c : Character.toLowerCase(c));
+				upper = false;
+			}
+		}
+		return (name.toString());
+	}
+
+	/**
+	 * Returns all values as a JSON object with the members "counters" and
+	 * "phases", the latter in milliseconds.
+	 */
+	public String toJSON() {
+		StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+		for (Counter counter : Counter.values()) {
+			json.append(counter.ordinal() == 0 ? "\n" : ",\n");
+			json.append("    \"").append(toName(counter)).append("\": ").append(getCount(counter));
+		}
+		json.append("\n  },\n  \"phases\": {");
+		for (Phase phase : Phase.values()) {
+			json.append(phase.ordinal() == 0 ? "\n" : ",\n");
+			json.append("    \"").append(toName(phase)).append("\": ").append(String.format(Locale.ROOT, "%.3f", getNanos(phase) / 1e6));
+		}
+		json.append("\n  }\n}\n");
+		return (json.toString());
+	}
+
+	/**
+	 * Writes {@link #toJSON()} to the given file.
+	 */
+	public void writeJSON(File file) throws IOException {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			writer.write(toJSON());
+		}
+	}
+
+	/**
+	 * Returns all values in one line per counter and phase.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		for (Counter counter : Counter.values()) {
+			str.append(String.format(Locale.ROOT, "%-16s %,d%n", toName(counter) + ":", getCount(counter)));
+		}
+		for (Phase phase : Phase.values()) {
+			str.append(String.format(Locale.ROOT, "%-16s %,.1f ms%n", toName(phase) + ":", getNanos(phase) / 1e6));
+		}
+		return (str.toString());
+	}
+}
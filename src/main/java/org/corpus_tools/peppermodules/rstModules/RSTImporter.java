@@ -17,10 +17,24 @@
  */
 package org.corpus_tools.peppermodules.rstModules;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
 import org.corpus_tools.pepper.common.PepperConfiguration;
 import org.corpus_tools.pepper.impl.PepperImporterImpl;
 import org.corpus_tools.pepper.modules.PepperImporter;
 import org.corpus_tools.pepper.modules.PepperMapper;
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocumentCache;
+import org.corpus_tools.peppermodules.rstModules.models.RSTException;
+import org.corpus_tools.peppermodules.rstModules.reader.CompressedInput;
+import org.corpus_tools.salt.common.SCorpus;
+import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.graph.Identifier;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.ResourceSet;
@@ -53,6 +67,121 @@ public class RSTImporter extends PepperImporterImpl implements PepperImporter {
 		getDocumentEndings().add(FILE_ENDING_RS4);
 	}
 
+	/**
+	 * Returns the name of the document stored in a file with the given name,
+	 * which is the name without the document ending and a gzip ending.
+	 *
+	 * @param fileName
+	 * @return the name of the document or null, if the file does not end with
+	 *         one of the document endings
+	 */
+	private String getDocumentName(String fileName) {
+		String name = CompressedInput.removeGzipEnding(fileName);
+		int dot = name.lastIndexOf('.');
+		if ((dot <= 0) || (!this.getDocumentEndings().contains(name.substring(dot + 1)))) {
+			return (null);
+		}
+		return (name.substring(0, dot));
+	}
+
+	/**
+	 * Additionally to the resources imported by {@link PepperImporterImpl},
+	 * imports rs3 and rs4 files compressed with gzip (e.g. "doc.rs3.gz") as
+	 * documents and zip archives as corpora, see
+	 * {@link #importArchive(URI, SCorpus)}. Compressed content is
+	 * decompressed while it is parsed, nothing is extracted to disk.
+	 */
+	@Override
+	protected Boolean importCorpusStructureRec(URI currURI, SCorpus parent) {
+		String name = currURI.lastSegment();
+		if ((name == null) || (this.getIgnoreEndings().contains(name)) || (!new File(currURI.toFileString()).isFile())) {
+			return (super.importCorpusStructureRec(currURI, parent));
+		}
+		boolean isArchive = CompressedInput.isZip(name);
+		String documentName = CompressedInput.isGzip(name) ? this.getDocumentName(name) : null;
+		if ((!isArchive) && (documentName == null)) {
+			return (super.importCorpusStructureRec(currURI, parent));
+		}
+		if ((this.getCorpusGraph().getName() == null) || (this.getCorpusGraph().getName().isEmpty())) {
+			this.getCorpusGraph().setName(name);
+		}
+		if (isArchive) {
+			return (this.importArchive(currURI, parent));
+		}
+		if (parent == null) {
+			// a single document is imported into a corpus of the same name
+			parent = this.getCorpusGraph().createCorpus(null, documentName);
+			this.getIdentifier2ResourceTable().put(parent.getIdentifier(), currURI);
+		}
+		SDocument sDocument = this.getCorpusGraph().createDocument(parent, documentName);
+		this.getIdentifier2ResourceTable().put(sDocument.getIdentifier(), currURI);
+		return (true);
+	}
+
+	/**
+	 * Imports the zip archive located at the given uri as a corpus named like
+	 * the archive. Each entry ending with a document ending, optionally
+	 * followed by a gzip ending, becomes a document, each folder inside the
+	 * archive containing such entries a sub corpus. The documents are read
+	 * from the archive via uris created by
+	 * {@link CompressedInput#createArchiveURI(File, String)}.
+	 *
+	 * @param archiveURI
+	 * @param parent
+	 *            the corpus containing the archive, null for the root
+	 * @return true, if the archive contains documents
+	 */
+	protected Boolean importArchive(URI archiveURI, SCorpus parent) {
+		File archive = new File(archiveURI.toFileString());
+		String corpusName = archiveURI.lastSegment().substring(0, archiveURI.lastSegment().length() - CompressedInput.ZIP_ENDING.length() - 1);
+		SCorpus sCorpus = this.getCorpusGraph().createCorpus(parent, corpusName);
+		this.getIdentifier2ResourceTable().put(sCorpus.getIdentifier(), archiveURI);
+
+		// maps the path of each folder in the archive to its corpus
+		Map<String, SCorpus> folders = new HashMap<>();
+		folders.put("", sCorpus);
+		boolean hasDocuments = false;
+		try (ZipFile zipFile = new ZipFile(archive)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				String entryName = entry.getName();
+				int slash = entryName.lastIndexOf('/');
+				String fileName = entryName.substring(slash + 1);
+				String documentName = this.getDocumentName(fileName);
+				if ((documentName == null) || (this.getIgnoreEndings().contains(fileName))) {
+					continue;
+				}
+				SCorpus folder = this.getFolderCorpus(archive, folders, slash < 0 ? "" : entryName.substring(0, slash));
+				SDocument sDocument = this.getCorpusGraph().createDocument(folder, documentName);
+				this.getIdentifier2ResourceTable().put(sDocument.getIdentifier(), CompressedInput.createArchiveURI(archive, entryName));
+				hasDocuments = true;
+			}
+		} catch (IOException e) {
+			throw new PepperModuleException(this, "Cannot read the zip archive '" + archive.getAbsolutePath() + "'. ", e);
+		}
+		return (hasDocuments);
+	}
+
+	/**
+	 * Returns the corpus of the folder with the given path inside the archive
+	 * and creates it and its parents if necessary.
+	 */
+	private SCorpus getFolderCorpus(File archive, Map<String, SCorpus> folders, String path) {
+		SCorpus sCorpus = folders.get(path);
+		if (sCorpus == null) {
+			int slash = path.lastIndexOf('/');
+			SCorpus parent = this.getFolderCorpus(archive, folders, slash < 0 ? "" : path.substring(0, slash));
+			sCorpus = this.getCorpusGraph().createCorpus(parent, path.substring(slash + 1));
+			this.getIdentifier2ResourceTable().put(sCorpus.getIdentifier(), CompressedInput.createArchiveURI(archive, path));
+			folders.put(path, sCorpus);
+		}
+		return (sCorpus);
+	}
+
 	/** resourceSet for loading EMF models **/
 	private ResourceSet resourceSet = null;
 
@@ -63,6 +192,98 @@ public class RSTImporter extends PepperImporterImpl implements PepperImporter {
 	@Override
 	public PepperMapper createPepperMapper(Identifier sElementId) {
 		RST2SaltMapper mapper = new RST2SaltMapper();
+		mapper.setStatistics(this.getStatistics());
+		mapper.setCache(this.getCache());
+		mapper.setManifest(this.getManifest());
 		return mapper;
 	}
+
+	/** cache of parsed documents, created with the first mapper **/
+	private RSTDocumentCache cache = null;
+
+	/**
+	 * Returns the cache of parsed documents in the directory given by
+	 * {@link RSTImporterProperties#PROP_CACHE_DIRECTORY}.
+	 * 
+	 * @return the cache or null, if no directory is set
+	 */
+	public synchronized RSTDocumentCache getCache() {
+		if (this.cache == null) {
+			RSTImporterProperties props = (RSTImporterProperties) this.getProperties();
+			File cacheDirectory = props.getCacheDirectory();
+			if (cacheDirectory != null) {
+				try {
+					this.cache = new RSTDocumentCache(cacheDirectory, props.getCacheSize());
+				} catch (RSTException e) {
+					throw new PepperModuleException(this, e.getMessage(), e);
+				}
+			}
+		}
+		return (this.cache);
+	}
+
+	/** manifest of an incremental import, created with the first mapper **/
+	private RSTImportManifest manifest = null;
+
+	/**
+	 * Returns the manifest of the last import read from the directory given
+	 * by {@link RSTImporterProperties#PROP_INCREMENTAL_DIRECTORY}.
+	 * 
+	 * @return the manifest or null, if no directory is set
+	 */
+	public synchronized RSTImportManifest getManifest() {
+		if (this.manifest == null) {
+			File incrementalDirectory = ((RSTImporterProperties) this.getProperties()).getIncrementalDirectory();
+			if (incrementalDirectory != null) {
+				try {
+					this.manifest = new RSTImportManifest(incrementalDirectory);
+				} catch (IOException e) {
+					throw new PepperModuleException(this, "Cannot read the manifest of the last import from '" + incrementalDirectory + "'. ", e);
+				}
+			}
+		}
+		return (this.manifest);
+	}
+
+	/** time per phase and number of elements of all mapped documents **/
+	private final RSTImportStatistics statistics = new RSTImportStatistics();
+
+	/**
+	 * Returns the time per phase and the number of elements of all documents
+	 * mapped by this importer.
+	 */
+	public RSTImportStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Reports the {@link RSTImportStatistics} of the corpus and writes them
+	 * to the file given by {@link RSTImporterProperties#PROP_STATISTICS_FILE}.
+	 * The manifest of an incremental import is written as well.
+	 */
+	@Override
+	public void end() throws PepperModuleException {
+		super.end();
+		if (this.manifest != null) {
+			try {
+				this.manifest.save();
+			} catch (IOException e) {
+				throw new PepperModuleException(this, "Cannot write the manifest of the import to '" + this.manifest.getDirectory() + "'. ", e);
+			}
+		}
+		if (this.getStatistics().getCount(RSTImportStatistics.Counter.DOCUMENTS) + this.getStatistics().getCount(RSTImportStatistics.Counter.UNCHANGED_DOCUMENTS) > 0) {
+			logger.info("Imported rst documents of '{}':\n{}", this.getCorpusDesc() == null ? null : this.getCorpusDesc().getCorpusPath(), this.getStatistics());
+			if (this.cache != null) {
+				logger.info("Read {} rst documents from the cache '{}', parsed {}, failed to store {}.", this.cache.getHits(), this.cache.getDirectory(), this.cache.getMisses(), this.cache.getFailures());
+			}
+			File statisticsFile = ((RSTImporterProperties) this.getProperties()).getStatisticsFile();
+			if (statisticsFile != null) {
+				try {
+					this.getStatistics().writeJSON(statisticsFile);
+				} catch (IOException e) {
+					throw new PepperModuleException(this, "Cannot write statistics to file '" + statisticsFile + "'. ", e);
+				}
+			}
+		}
+	}
 }
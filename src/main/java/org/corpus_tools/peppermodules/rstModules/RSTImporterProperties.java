@@ -17,10 +17,19 @@
  */
 package org.corpus_tools.peppermodules.rstModules;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.corpus_tools.pepper.modules.PepperModuleProperties;
 import org.corpus_tools.pepper.modules.PepperModuleProperty;
+import org.corpus_tools.pepper.modules.exceptions.PepperModulePropertyException;
+import org.corpus_tools.peppermodules.rstModules.models.CompactRSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
 import org.corpus_tools.salt.common.STextualDS;
 import org.corpus_tools.salt.core.SAnnotation;
 
@@ -46,6 +55,14 @@ public class RSTImporterProperties extends PepperModuleProperties {
 	 * name attribute of a relation is mapped to
 	 */
 	public final static String PROP_SIMPLE_TOKENIZE = "simpleTokenize";
+	/**
+	 * yes/no property to tokenize the entire primary text of a document in one
+	 * pass instead of tokenizing the text of each segment separately. The
+	 * TreeTagger tokenizer then detects the language once for the entire
+	 * text instead of once per segment, so the tokens of a document mixing
+	 * languages may differ.
+	 */
+	public final static String PROP_BATCH_TOKENIZE = PREFIX + "batchTokenize";
 	/**
 	 * Name of the property to specify the sName of the {@link SAnnotation} to
 	 * which the kind of a node (segment or group) is mapped.
@@ -77,46 +94,169 @@ public class RSTImporterProperties extends PepperModuleProperties {
 	 */
 	public final static String PROP_MARK_IS_SIGNALED = PREFIX + "markIsSignaled";
 
+	/**
+	 * Name of the property to specify the XML parser reading the rs3 and rs4
+	 * files, either 'sax' or 'stax'.
+	 */
+	public final static String PROP_PARSER = PREFIX + "parser";
+
+	/**
+	 * yes/no property to read the rs3 and rs4 files into a
+	 * {@link CompactRSTDocument} instead of a {@link RSTDocument}.
+	 */
+	public final static String PROP_COMPACT_MODEL = PREFIX + "compactModel";
+
+	/**
+	 * yes/no property to create the uuids of nodes with
+	 * {@link java.util.UUID#randomUUID()} instead of deriving them from the
+	 * document.
+	 */
+	public final static String PROP_RANDOM_UUIDS = PREFIX + "randomUUIDs";
+
+	/**
+	 * yes/no property to create the annotations TEMP::uuid, TEMP::rstid2uuid,
+	 * TEMP::signals and TEMP::secedges in addition to the
+	 * {@link org.corpus_tools.peppermodules.rstModules.RSTDiscourseIndex}, off
+	 * by default.
+	 */
+	public final static String PROP_TEMP_ANNOTATIONS = PREFIX + "tempAnnotations";
+
+	/**
+	 * path of a file to which the {@link RSTImportStatistics} of the corpus
+	 * are written as JSON.
+	 */
+	public final static String PROP_STATISTICS_FILE = PREFIX + "statisticsFile";
+
+	/**
+	 * path of a directory in which the parsed rs3 and rs4 files are cached,
+	 * see {@link org.corpus_tools.peppermodules.rstModules.models.RSTDocumentCache}.
+	 */
+	public final static String PROP_CACHE_DIRECTORY = PREFIX + "cacheDirectory";
+
+	/**
+	 * maximal size of the {@link #PROP_CACHE_DIRECTORY} in megabytes.
+	 */
+	public final static String PROP_CACHE_SIZE = PREFIX + "cacheSize";
+
+	/**
+	 * path of a directory in which the {@link RSTImportManifest} of the last
+	 * import and the mapped document graphs are stored, to import only
+	 * changed documents again.
+	 */
+	public final static String PROP_INCREMENTAL_DIRECTORY = PREFIX + "incrementalDirectory";
+
+	/**
+	 * yes/no property to remove unchanged documents from the import instead
+	 * of loading their document graphs from the
+	 * {@link #PROP_INCREMENTAL_DIRECTORY}.
+	 */
+	public final static String PROP_SKIP_UNCHANGED = PREFIX + "skipUnchanged";
+
+	/**
+	 * yes/no property to create the structures, relations, signals and
+	 * secondary edges of a document in parallel, see {@link RST2SaltMapper}.
+	 */
+	public final static String PROP_PARALLEL_MAPPING = PREFIX + "parallelMapping";
+
 	public RSTImporterProperties() {
 		this.addProperty(new PepperModuleProperty<String>(PROP_TOKENIZE, String.class, "Determines if the rst data have to be tokenized during import. Possible values are 'yes' and 'no'.", "yes", false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_SIMPLE_TOKENIZE, String.class, "Switches on a very simple tokenization. With this property you can pass a list of characters, which should be used as separators to find the borders of tokens e.g. \"' ','.'\" to use a blank and a dot. Note that using this property will overwrite the default TreeTagger tokenizer. This property needs "+PROP_SIMPLE_TOKENIZE+" to be set to true. ", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_BATCH_TOKENIZE, String.class, "When set to 'yes', the entire primary text of a document is tokenized in one pass with a single tokenizer and the tokens are assigned to the segments afterwards. Otherwise the text of each segment is tokenized separately. Unless simpleTokenize is set, the language used by the tokenizer is then detected once for the entire text instead of for each segment, so the tokens of a document mixing languages may differ. Possible values are 'yes' and 'no'.", "no", false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_NODE_KIND_NAME, String.class, "Specifies the sName of the SAnnotation to which the kind of a node (segment or group) is mapped to.", "kind", false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_NODE_TYPE_NAME, String.class, "Specifies the sName of the SAnnotation to which the type attribute of a node is mapped to.", "type", false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_RELATION_NAME, String.class, "Specifies the sName of the SAnnotation to which the name attribute of a relation is mapped to.", "relname", false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_SEGMENT_SEPARATOR, String.class, "A property to add a a separator like a blank between the text of segments, when it is concatenated to the primary text in STextualDS.For instance the segment text 'Is' of segment1 and the segment text 'this' of segment2 will be concatenated to an sText value 'is'SEPARATOR'this'.", " ", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_PARSER, String.class, "Specifies the XML parser reading the rs3 and rs4 files. Possible values are 'sax' for a SAX parser and 'stax' for a StAX pull parser.", "sax", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_COMPACT_MODEL, String.class, "When set to 'yes', the rs3 and rs4 files are read into a compact array based model instead of one object per node, relation and signal. This reduces the memory needed for large documents, the mapped Salt model is the same. Cannot be combined with " + PROP_CACHE_DIRECTORY + ". Possible values are 'yes' and 'no'.", "no", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_RANDOM_UUIDS, String.class, "When set to 'yes', the identifiers of segments, groups and tokens stored in the index in the features of the namespace rst and in the TEMP::uuid annotations are random UUIDs. Otherwise they are derived from the document id and the position of the node, which makes them reproducible across runs. Possible values are 'yes' and 'no'.", "no", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_TEMP_ANNOTATIONS, String.class, "When set to 'yes', the uuid of each segment, group and token is annotated as TEMP::uuid, the map of all rst ids to uuids is annotated as TEMP::rstid2uuid to the first node, and signals and secondary edges are annotated as lists of maps TEMP::signals and TEMP::secedges to their source node, as in former versions. When set to 'no', this information is only contained in the features of the namespace rst of the document graph. Possible values are 'yes' and 'no'.", "no", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_STATISTICS_FILE, String.class, "Path of a file to which the time spent in each phase of the import and the numbers of imported segments, tokens, relations, signals etc. are written as JSON, when the import ends. These values are logged in any case.", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_CACHE_DIRECTORY, String.class, "Path of a directory in which each parsed rs3 and rs4 file is stored in a binary format. A file, which has not changed since, is read from there instead of being parsed again. Entries of zip archives are not cached.", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_CACHE_SIZE, String.class, "Maximal size of the cache directory in megabytes. When it is exceeded, the least recently used files are removed.", "1024", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_INCREMENTAL_DIRECTORY, String.class, "Path of a directory in which the hashes of the content of all imported documents and of the properties are recorded, together with the mapped document graphs. When the corpus is imported again, the graph of a document, whose content and properties have not changed, is loaded from there instead of being mapped again.", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_SKIP_UNCHANGED, String.class, "When set to 'yes' together with " + PROP_INCREMENTAL_DIRECTORY + ", documents, which have not changed since the last import, are removed from the corpus instead of being loaded, so that the following modules only process changed documents. Possible values are 'yes' and 'no'.", "no", false));
+		this.addProperty(new PepperModuleProperty<String>(PROP_PARALLEL_MAPPING, String.class, "When set to 'yes', the structures of the groups, the dominance relations, the signals and the secondary edges of a document are created by several threads and added to the document graph afterwards. This shortens the mapping of very large documents, the mapped Salt model is the same. Possible values are 'yes' and 'no'.", "no", false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_MARK_IS_SIGNALED, String.class, "When set to 'yes', adds a new annotation 'is_signaled' to each edge indicating whether there is at least one signal associated with it.", "no", false));
 	}
 
-	// ================================================ start: tokenizing
+	/** the properties, whose values are either 'yes' or 'no' **/
+	private static final Set<String> YES_NO_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(PROP_TOKENIZE, PROP_BATCH_TOKENIZE, PROP_MARK_IS_SIGNALED, PROP_COMPACT_MODEL, PROP_RANDOM_UUIDS, PROP_TEMP_ANNOTATIONS, PROP_SKIP_UNCHANGED, PROP_PARALLEL_MAPPING)));
+
 	/**
-	 * Stores if a tokenization has to be done.
+	 * Additionally checks that the value of a yes/no property is either 'yes'
+	 * or 'no', that the parser is a known one and that the compact model is
+	 * not combined with the cache, so that a misconfigured workflow fails
+	 * before the import starts.
+	 * 
+	 * @throws PepperModulePropertyException
+	 *             if the value of a yes/no property, the parser or the cache
+	 *             size is invalid or the compact model is combined with the
+	 *             cache
 	 */
-	private Boolean isToTokenize = null;
+	@Override
+	public boolean checkProperty(PepperModuleProperty<?> prop) {
+		boolean valid = super.checkProperty(prop);
+		if (YES_NO_PROPERTIES.contains(prop.getName())) {
+			this.isYes(prop.getName(), false);
+			if (PROP_COMPACT_MODEL.equals(prop.getName())) {
+				RSTImporterSettings.checkCompactModel(this.isToUseCompactModel(), this.getCacheDirectory());
+			}
+		} else if (PROP_PARSER.equals(prop.getName())) {
+			this.getParser();
+		} else if (PROP_CACHE_SIZE.equals(prop.getName())) {
+			this.getCacheSize();
+		}
+		return (valid);
+	}
 
+	/**
+	 * Returns the value of the given yes/no property, case is ignored.
+	 * 
+	 * @param name
+	 *            the name of the property
+	 * @param defaultValue
+	 *            the value returned, if the property is not set
+	 * @return true for 'yes', false for 'no'
+	 * @throws PepperModulePropertyException
+	 *             if the value is neither 'yes' nor 'no'
+	 */
+	private boolean isYes(String name, boolean defaultValue) {
+		Object value = this.getProperty(name).getValue();
+		if ((value == null) || (value.toString().trim().isEmpty())) {
+			return (defaultValue);
+		}
+		String yesNo = value.toString().trim();
+		if ("yes".equalsIgnoreCase(yesNo)) {
+			return (true);
+		} else if ("no".equalsIgnoreCase(yesNo)) {
+			return (false);
+		}
+		throw new PepperModulePropertyException("The value '" + value + "' of the property '" + name + "' is invalid, possible values are 'yes' and 'no'.");
+	}
+
+	/**
+	 * Returns a snapshot of the current values of all properties, see
+	 * {@link RSTImporterSettings}.
+	 * 
+	 * @throws PepperModulePropertyException
+	 *             if the value of a yes/no property is invalid
+	 */
+	public RSTImporterSettings createSettings() {
+		return (new RSTImporterSettings(this));
+	}
+
+	// ================================================ start: tokenizing
 	/**
 	 * Returns if a tokenization has to be done.
 	 * 
 	 * @return the isToTokenize
 	 */
 	public Boolean isToTokenize() {
-		if (isToTokenize == null) {
-			String tokenize = null;
-
-			tokenize = ((String) this.getProperty(PROP_TOKENIZE).getValue());
-			if (tokenize != null) {
-				if ("yes".equalsIgnoreCase(tokenize))
-					this.isToTokenize = true;
-				else if ("no".equalsIgnoreCase(tokenize)) {
-					this.isToTokenize = false;
-				}
-			} else
-				this.isToTokenize = true;
-		}
-		return isToTokenize;
+		return (this.isYes(PROP_TOKENIZE, true));
 	}
 
 	/** list of separators in case of simple tokenization is used **/
-	private List<Character> simpleTokSeparators = null;
+	private volatile List<Character> simpleTokSeparators = null;
 
 	/**
 	 * Returns a list of separators in case of simple tokenization is used.
@@ -133,6 +273,16 @@ public class RSTImporterProperties extends PepperModuleProperties {
 		return simpleTokSeparators;
 	}
 
+	/**
+	 * Returns if the entire primary text of a document is tokenized in one
+	 * pass.
+	 * 
+	 * @return true, if the text is tokenized in one pass
+	 */
+	public boolean isToBatchTokenize() {
+		return (this.isYes(PROP_BATCH_TOKENIZE, false));
+	}
+
 	// ================================================ end: tokenizing
 
 	/**
@@ -180,7 +330,136 @@ public class RSTImporterProperties extends PepperModuleProperties {
 	}
 
 	public boolean getMarkIsSignaled() {
-		String markIsSignaled = ((String) this.getProperty(PROP_MARK_IS_SIGNALED).getValue());
-		return markIsSignaled.equalsIgnoreCase("yes");
+		return (this.isYes(PROP_MARK_IS_SIGNALED, false));
+	}
+
+	/**
+	 * Returns the XML parser to read the rs3 and rs4 files, case is ignored.
+	 * 
+	 * @return the parser, {@link Parser#SAX} if none is set
+	 * @throws PepperModulePropertyException
+	 *             if the value is neither 'sax' nor 'stax'
+	 */
+	public Parser getParser() {
+		Object value = this.getProperty(PROP_PARSER).getValue();
+		if ((value == null) || (value.toString().trim().isEmpty())) {
+			return (Parser.SAX);
+		}
+		String parser = value.toString().trim();
+		if ("sax".equalsIgnoreCase(parser)) {
+			return (Parser.SAX);
+		} else if ("stax".equalsIgnoreCase(parser)) {
+			return (Parser.STAX);
+		}
+		throw new PepperModulePropertyException("The value '" + value + "' of the property '" + PROP_PARSER + "' is invalid, possible values are 'sax' and 'stax'.");
+	}
+
+	/**
+	 * Returns if the rs3 and rs4 files are read into a
+	 * {@link CompactRSTDocument}.
+	 * 
+	 * @return true, if the compact model is used
+	 */
+	public boolean isToUseCompactModel() {
+		return (this.isYes(PROP_COMPACT_MODEL, false));
+	}
+
+	/**
+	 * Returns if the identifiers of nodes are random UUIDs.
+	 * 
+	 * @return true, if random UUIDs are used
+	 */
+	public boolean isToUseRandomUUIDs() {
+		return (this.isYes(PROP_RANDOM_UUIDS, false));
+	}
+
+	/**
+	 * Returns if the annotations TEMP::uuid, TEMP::rstid2uuid, TEMP::signals
+	 * and TEMP::secedges are created.
+	 * 
+	 * @return true, if the annotations are created
+	 */
+	public boolean isToCreateTempAnnotations() {
+		return (this.isYes(PROP_TEMP_ANNOTATIONS, false));
+	}
+
+	/**
+	 * Returns the file to which the statistics of the import are written.
+	 * 
+	 * @return the file or null, if none is set
+	 */
+	public File getStatisticsFile() {
+		String statisticsFile = ((String) this.getProperty(PROP_STATISTICS_FILE).getValue());
+		if ((statisticsFile == null) || (statisticsFile.trim().isEmpty())) {
+			return (null);
+		}
+		return (new File(statisticsFile.trim()));
+	}
+
+	/**
+	 * Returns the directory of the cache of parsed documents.
+	 * 
+	 * @return the directory or null, if none is set
+	 */
+	public File getCacheDirectory() {
+		String cacheDirectory = ((String) this.getProperty(PROP_CACHE_DIRECTORY).getValue());
+		if ((cacheDirectory == null) || (cacheDirectory.trim().isEmpty())) {
+			return (null);
+		}
+		return (new File(cacheDirectory.trim()));
+	}
+
+	/**
+	 * Returns the maximal size of the cache of parsed documents.
+	 * 
+	 * @return the size in bytes
+	 * @throws PepperModulePropertyException
+	 *             if the value is not a positive number
+	 */
+	public long getCacheSize() {
+		Object value = this.getProperty(PROP_CACHE_SIZE).getValue();
+		if ((value == null) || (value.toString().trim().isEmpty())) {
+			return (1024L << 20);
+		}
+		try {
+			long megabytes = Long.parseLong(value.toString().trim());
+			if (megabytes > 0) {
+				return (megabytes << 20);
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new PepperModulePropertyException("The value '" + value + "' of the property '" + PROP_CACHE_SIZE + "' is invalid, it has to be a positive number of megabytes.");
+	}
+
+	/**
+	 * Returns the directory of the manifest of incremental imports.
+	 * 
+	 * @return the directory or null, if none is set
+	 */
+	public File getIncrementalDirectory() {
+		String incrementalDirectory = ((String) this.getProperty(PROP_INCREMENTAL_DIRECTORY).getValue());
+		if ((incrementalDirectory == null) || (incrementalDirectory.trim().isEmpty())) {
+			return (null);
+		}
+		return (new File(incrementalDirectory.trim()));
+	}
+
+	/**
+	 * Returns if unchanged documents are removed from an incremental import.
+	 * 
+	 * @return true, if they are removed
+	 */
+	public boolean isToSkipUnchanged() {
+		return (this.isYes(PROP_SKIP_UNCHANGED, false));
+	}
+
+	/**
+	 * Returns if the pieces of a document are created in parallel.
+	 * 
+	 * @return true, if documents are mapped in parallel
+	 */
+	public boolean isToMapInParallel() {
+		return (this.isYes(PROP_PARALLEL_MAPPING, false));
 	}
 }
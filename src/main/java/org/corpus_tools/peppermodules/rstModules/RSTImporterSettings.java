@@ -0,0 +1,198 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.corpus_tools.pepper.modules.exceptions.PepperModulePropertyException;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
+
+/**
+ * An immutable snapshot of the {@link RSTImporterProperties}, in which all
+ * values are resolved and validated once. Each {@link RST2SaltMapper} takes
+ * one snapshot before mapping its document and uses it in its loops instead
+ * of looking up and converting the properties again and again.
+ */
+public final class RSTImporterSettings {
+	private final boolean toTokenize;
+	private final List<Character> simpleTokenizationSeparators;
+	private final boolean toBatchTokenize;
+	private final String nodeKindName;
+	private final String nodeTypeName;
+	private final String relationName;
+	private final String segmentSeparator;
+	private final boolean toMarkIsSignaled;
+	private final Parser parser;
+	private final boolean toUseCompactModel;
+	private final boolean toUseRandomUUIDs;
+	private final boolean toCreateTempAnnotations;
+	private final File statisticsFile;
+	private final File cacheDirectory;
+	private final long cacheSize;
+	private final File incrementalDirectory;
+	private final boolean toSkipUnchanged;
+	private final boolean toMapInParallel;
+
+	/**
+	 * Resolves the current values of the given properties.
+	 *
+	 * @param props
+	 * @throws PepperModulePropertyException
+	 *             if a yes/no property has another value, the cache size is
+	 *             invalid or the compact model is combined with a property it
+	 *             does not support
+	 */
+	public RSTImporterSettings(RSTImporterProperties props) {
+		this.toTokenize = props.isToTokenize();
+		List<Character> separators = props.getSimpleTokenizationSeparators();
+		this.simpleTokenizationSeparators = (separators == null) ? null : Collections.unmodifiableList(new ArrayList<>(separators));
+		this.toBatchTokenize = props.isToBatchTokenize();
+		this.nodeKindName = props.getNodeKindName();
+		this.nodeTypeName = props.getNodeTypeName();
+		this.relationName = props.getRelationName();
+		this.segmentSeparator = props.getSegmentSeparator();
+		this.toMarkIsSignaled = props.getMarkIsSignaled();
+		this.parser = props.getParser();
+		this.toUseCompactModel = props.isToUseCompactModel();
+		this.toUseRandomUUIDs = props.isToUseRandomUUIDs();
+		this.toCreateTempAnnotations = props.isToCreateTempAnnotations();
+		this.statisticsFile = props.getStatisticsFile();
+		this.cacheDirectory = props.getCacheDirectory();
+		this.cacheSize = props.getCacheSize();
+		this.incrementalDirectory = props.getIncrementalDirectory();
+		this.toSkipUnchanged = props.isToSkipUnchanged();
+		this.toMapInParallel = props.isToMapInParallel();
+		checkCompactModel(this.toUseCompactModel, this.cacheDirectory);
+	}
+
+	/**
+	 * Checks that the compact model is not combined with the cache, which
+	 * only applies to the list based
+	 * {@link org.corpus_tools.peppermodules.rstModules.models.RSTDocument}
+	 * and would be ignored otherwise.
+	 *
+	 * @throws PepperModulePropertyException
+	 *             if the compact model is combined with the cache
+	 */
+	static void checkCompactModel(boolean compactModel, File cacheDirectory) {
+		if (compactModel && (cacheDirectory != null)) {
+			throw new PepperModulePropertyException("The property '" + RSTImporterProperties.PROP_COMPACT_MODEL + "' cannot be combined with '" + RSTImporterProperties.PROP_CACHE_DIRECTORY + "', which is not supported by the compact model.");
+		}
+	}
+
+	/** see {@link RSTImporterProperties#PROP_TOKENIZE} **/
+	public boolean isToTokenize() {
+		return toTokenize;
+	}
+
+	/**
+	 * see {@link RSTImporterProperties#PROP_SIMPLE_TOKENIZE}
+	 *
+	 * @return an unmodifiable list or null, if no simple tokenization is used
+	 */
+	public List<Character> getSimpleTokenizationSeparators() {
+		return simpleTokenizationSeparators;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_BATCH_TOKENIZE} **/
+	public boolean isToBatchTokenize() {
+		return toBatchTokenize;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_NODE_KIND_NAME} **/
+	public String getNodeKindName() {
+		return nodeKindName;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_NODE_TYPE_NAME} **/
+	public String getNodeTypeName() {
+		return nodeTypeName;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_RELATION_NAME} **/
+	public String getRelationName() {
+		return relationName;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_SEGMENT_SEPARATOR} **/
+	public String getSegmentSeparator() {
+		return segmentSeparator;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_MARK_IS_SIGNALED} **/
+	public boolean isToMarkIsSignaled() {
+		return toMarkIsSignaled;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_PARSER} **/
+	public Parser getParser() {
+		return parser;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_COMPACT_MODEL} **/
+	public boolean isToUseCompactModel() {
+		return toUseCompactModel;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_RANDOM_UUIDS} **/
+	public boolean isToUseRandomUUIDs() {
+		return toUseRandomUUIDs;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_TEMP_ANNOTATIONS} **/
+	public boolean isToCreateTempAnnotations() {
+		return toCreateTempAnnotations;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_STATISTICS_FILE} **/
+	public File getStatisticsFile() {
+		return statisticsFile;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_CACHE_DIRECTORY} **/
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * see {@link RSTImporterProperties#PROP_CACHE_SIZE}
+	 *
+	 * @return the size in bytes
+	 */
+	public long getCacheSize() {
+		return cacheSize;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_INCREMENTAL_DIRECTORY} **/
+	public File getIncrementalDirectory() {
+		return incrementalDirectory;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_SKIP_UNCHANGED} **/
+	public boolean isToSkipUnchanged() {
+		return toSkipUnchanged;
+	}
+
+	/** see {@link RSTImporterProperties#PROP_PARALLEL_MAPPING} **/
+	public boolean isToMapInParallel() {
+		return toMapInParallel;
+	}
+}
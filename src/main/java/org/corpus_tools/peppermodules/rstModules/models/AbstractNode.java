@@ -20,6 +20,8 @@ package org.corpus_tools.peppermodules.rstModules.models;
 public abstract class AbstractNode {
     private String type;
     private String id;
+    /** the document indexing the relations of this node **/
+    private RSTDocument document;
 
     public String getType() {
         return type;
@@ -31,7 +33,19 @@ public abstract class AbstractNode {
     public String getId() {
         return id;
     }
+    /**
+     * Sets the id and updates the index of the {@link RSTDocument} containing
+     * relations of this node.
+     */
     public void setId(String s) {
+        String oldId = id;
         id = s;
+        if (document != null) {
+            document.rekey(this, oldId);
+        }
+    }
+
+    void setDocument(RSTDocument d) {
+        document = d;
     }
 }
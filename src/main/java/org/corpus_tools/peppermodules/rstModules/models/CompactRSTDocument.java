@@ -0,0 +1,507 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
+import org.corpus_tools.peppermodules.rstModules.reader.RSTReader;
+import org.eclipse.emf.common.util.URI;
+
+/**
+ * A compact alternative to {@link RSTDocument} for large documents. Instead of
+ * one object per segment, group, relation and signal, all nodes are mapped to
+ * dense int ordinals and their properties are stored in parallel primitive
+ * arrays. Types, relation names and signal types are interned into a small
+ * dictionary and referenced by their index, the text of all segments is kept
+ * in one buffer.
+ * <br/>
+ * The {@link RSTReader} fills this model directly via
+ * {@link #addSegment(String, String, String, String, String)},
+ * {@link #addGroup(String, String, String, String, String)},
+ * {@link #addSignal(String, String, String, String)} and
+ * {@link #addSecondaryEdge(String, String, String, String)}. A node may be
+ * referenced as parent before it is declared, it gets its ordinal on first
+ * mention.
+ */
+public class CompactRSTDocument {
+    /** marks an absent reference, e.g. a node without type **/
+    public static final int NONE = -1;
+
+    /** kind of a node which was referenced, but never declared **/
+    public static final byte KIND_UNDECLARED = 0;
+    /** kind of a node declared by a &lt;segment/&gt; **/
+    public static final byte KIND_SEGMENT = 1;
+    /** kind of a node declared by a &lt;group/&gt; **/
+    public static final byte KIND_GROUP = 2;
+    /** kind of a node declared by a &lt;secedge/&gt; **/
+    public static final byte KIND_SECONDARY_EDGE = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // ========================= start: dictionary
+    private final List<String> dictionary = new ArrayList<>();
+    private Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+    /**
+     * Returns the index of the given value in the dictionary and adds it, if
+     * it is not contained so far.
+     *
+     * @param value
+     * @return the index or {@link #NONE} if value is null
+     */
+    private int intern(String value) {
+        if (value == null) {
+            return (NONE);
+        }
+        Integer index = this.dictionaryIndex.get(value);
+        if (index == null) {
+            index = this.dictionary.size();
+            this.dictionary.add(value);
+            this.dictionaryIndex.put(value, index);
+        }
+        return (index);
+    }
+
+    private String lookup(int index) {
+        return (index == NONE ? null : this.dictionary.get(index));
+    }
+
+    /**
+     * Returns the number of distinct types, relation names and signal types.
+     */
+    public int getDictionarySize() {
+        return (this.dictionary.size());
+    }
+
+    // ========================= end: dictionary
+    // ========================= start: nodes
+    /** maps the id of a node to its ordinal, released by {@link #trim()} **/
+    private Map<String, Integer> ordinals = new HashMap<>();
+    private String[] nodeIds = new String[INITIAL_CAPACITY];
+    private byte[] nodeKinds = new byte[INITIAL_CAPACITY];
+    private int[] nodeTypes = new int[INITIAL_CAPACITY];
+    private int nodeCount = 0;
+
+    /**
+     * Returns the ordinal of the node with the given id and creates an
+     * undeclared node, if there is none so far.
+     */
+    private int ordinal(String id) {
+        Integer ordinal = this.ordinals.get(id);
+        if (ordinal == null) {
+            if (this.nodeCount == this.nodeIds.length) {
+                int capacity = this.nodeCount * 2;
+                this.nodeIds = Arrays.copyOf(this.nodeIds, capacity);
+                this.nodeKinds = Arrays.copyOf(this.nodeKinds, capacity);
+                this.nodeTypes = Arrays.copyOf(this.nodeTypes, capacity);
+            }
+            ordinal = this.nodeCount++;
+            this.nodeIds[ordinal] = id;
+            this.nodeKinds[ordinal] = KIND_UNDECLARED;
+            this.nodeTypes[ordinal] = NONE;
+            this.ordinals.put(id, ordinal);
+        }
+        return (ordinal);
+    }
+
+    /**
+     * Returns the ordinal of an already declared node.
+     *
+     * @return the ordinal or {@link #NONE}, if no such node was declared
+     */
+    private int declaredOrdinal(String id) {
+        Integer ordinal = (id == null ? null : this.ordinals.get(id));
+        if ((ordinal == null) || (this.nodeKinds[ordinal] == KIND_UNDECLARED)) {
+            return (NONE);
+        }
+        return (ordinal);
+    }
+
+    private int declare(String id, byte kind, String type) {
+        int ordinal = this.ordinal(id);
+        this.nodeKinds[ordinal] = kind;
+        this.nodeTypes[ordinal] = this.intern(type);
+        return (ordinal);
+    }
+
+    /**
+     * Returns the id of a declared node or null, if the ordinal is
+     * {@link #NONE} or belongs to an undeclared node.
+     */
+    private String declaredId(int ordinal) {
+        if ((ordinal == NONE) || (this.nodeKinds[ordinal] == KIND_UNDECLARED)) {
+            return (null);
+        }
+        return (this.nodeIds[ordinal]);
+    }
+
+    /**
+     * Returns the number of segments, groups and secondary edges, including
+     * nodes referenced as parent but never declared.
+     */
+    public int getNodeCount() {
+        return (this.nodeCount);
+    }
+
+    // ========================= end: nodes
+    // ========================= start: segments and groups
+    /** ordinals of the segments in document order **/
+    private int[] segments = new int[INITIAL_CAPACITY];
+    private int[] textStarts = new int[INITIAL_CAPACITY];
+    private int[] textEnds = new int[INITIAL_CAPACITY];
+    private int segmentCount = 0;
+    /** the text of all segments **/
+    private StringBuilder text = new StringBuilder();
+    /** the segments, whose text was set **/
+    private BitSet segmentsWithText = new BitSet();
+
+    /** ordinals of the groups in document order **/
+    private int[] groups = new int[INITIAL_CAPACITY];
+    private int groupCount = 0;
+
+    /**
+     * Adds a segment and the relation to its parent, if a parent is given.
+     * The text of the segment is set via {@link #setText(CharSequence)}.
+     */
+    public void addSegment(String id, String type, String parentId, String relName, String relType) {
+        int ordinal = this.declare(id, KIND_SEGMENT, type);
+        if (this.segmentCount == this.segments.length) {
+            int capacity = this.segmentCount * 2;
+            this.segments = Arrays.copyOf(this.segments, capacity);
+            this.textStarts = Arrays.copyOf(this.textStarts, capacity);
+            this.textEnds = Arrays.copyOf(this.textEnds, capacity);
+        }
+        this.segments[this.segmentCount] = ordinal;
+        this.textStarts[this.segmentCount] = this.text.length();
+        this.textEnds[this.segmentCount] = this.text.length();
+        this.segmentCount++;
+        this.addRelation(parentId, ordinal, relName, relType);
+    }
+
+    /**
+     * Sets the text of the segment added last.
+     */
+    public void setText(CharSequence segmentText) {
+        if (this.segmentCount == 0) {
+            throw new RSTException("Cannot set a text, because no segment was added so far.");
+        }
+        int segment = this.segmentCount - 1;
+        this.text.setLength(this.textStarts[segment]);
+        this.text.append(segmentText);
+        this.textEnds[segment] = this.text.length();
+        this.segmentsWithText.set(segment);
+    }
+
+    /**
+     * Adds a group and the relation to its parent, if a parent is given.
+     */
+    public void addGroup(String id, String type, String parentId, String relName, String relType) {
+        int ordinal = this.declare(id, KIND_GROUP, type);
+        if (this.groupCount == this.groups.length) {
+            this.groups = Arrays.copyOf(this.groups, this.groupCount * 2);
+        }
+        this.groups[this.groupCount++] = ordinal;
+        this.addRelation(parentId, ordinal, relName, relType);
+    }
+
+    public int getSegmentCount() {
+        return (this.segmentCount);
+    }
+
+    public String getSegmentId(int segment) {
+        return (this.nodeIds[this.segments[segment]]);
+    }
+
+    public String getSegmentType(int segment) {
+        return (this.lookup(this.nodeTypes[this.segments[segment]]));
+    }
+
+    /**
+     * Returns the text of the given segment, null if the segment does not
+     * contain any text, like {@link Segment#getText()}.
+     */
+    public String getSegmentText(int segment) {
+        if (!this.segmentsWithText.get(segment)) {
+            return (null);
+        }
+        return (this.text.substring(this.textStarts[segment], this.textEnds[segment]));
+    }
+
+    /**
+     * Returns the length of the text of the given segment.
+     */
+    public int getSegmentTextLength(int segment) {
+        return (this.textEnds[segment] - this.textStarts[segment]);
+    }
+
+    /**
+     * Appends the text of the given segment to the passed buffer without
+     * creating an intermediate string.
+     */
+    public void appendSegmentText(int segment, StringBuilder buffer) {
+        buffer.append(this.text, this.textStarts[segment], this.textEnds[segment]);
+    }
+
+    public int getGroupCount() {
+        return (this.groupCount);
+    }
+
+    public String getGroupId(int group) {
+        return (this.nodeIds[this.groups[group]]);
+    }
+
+    public String getGroupType(int group) {
+        return (this.lookup(this.nodeTypes[this.groups[group]]));
+    }
+
+    // ========================= end: segments and groups
+    // ========================= start: relations
+    private int[] relationParents = new int[INITIAL_CAPACITY];
+    private int[] relationChildren = new int[INITIAL_CAPACITY];
+    private int[] relationNames = new int[INITIAL_CAPACITY];
+    private int[] relationTypes = new int[INITIAL_CAPACITY];
+    private int relationCount = 0;
+
+    private void addRelation(String parentId, int child, String relName, String relType) {
+        if (parentId == null) {
+            return;
+        }
+        if (this.relationCount == this.relationParents.length) {
+            int capacity = this.relationCount * 2;
+            this.relationParents = Arrays.copyOf(this.relationParents, capacity);
+            this.relationChildren = Arrays.copyOf(this.relationChildren, capacity);
+            this.relationNames = Arrays.copyOf(this.relationNames, capacity);
+            this.relationTypes = Arrays.copyOf(this.relationTypes, capacity);
+        }
+        this.relationParents[this.relationCount] = this.ordinal(parentId);
+        this.relationChildren[this.relationCount] = child;
+        this.relationNames[this.relationCount] = this.intern(relName);
+        this.relationTypes[this.relationCount] = this.intern(relType);
+        this.relationCount++;
+    }
+
+    public int getRelationCount() {
+        return (this.relationCount);
+    }
+
+    /**
+     * Returns the id of the parent of the given relation or null, if the
+     * parent was never declared.
+     */
+    public String getRelationParentId(int relation) {
+        return (this.declaredId(this.relationParents[relation]));
+    }
+
+    public String getRelationChildId(int relation) {
+        return (this.nodeIds[this.relationChildren[relation]]);
+    }
+
+    public String getRelationName(int relation) {
+        return (this.lookup(this.relationNames[relation]));
+    }
+
+    public String getRelationType(int relation) {
+        return (this.lookup(this.relationTypes[relation]));
+    }
+
+    // ========================= end: relations
+    // ========================= start: signals
+    private int[] signalSources = new int[INITIAL_CAPACITY];
+    private int[] signalTypes = new int[INITIAL_CAPACITY];
+    private int[] signalSubtypes = new int[INITIAL_CAPACITY];
+    /** range of the token ids of a signal in {@link #tokenIds} **/
+    private int[] signalTokenStarts = new int[INITIAL_CAPACITY];
+    private int[] signalTokenEnds = new int[INITIAL_CAPACITY];
+    private int signalCount = 0;
+    /** the token ids of all signals **/
+    private int[] tokenIds = new int[INITIAL_CAPACITY];
+    private int tokenIdCount = 0;
+
+    /**
+     * Adds a signal. The source must be declared before, otherwise the signal
+     * has no source.
+     *
+     * @param sourceId
+     * @param type
+     * @param subtype
+     * @param tokens
+     *            the token ids separated by commas
+     */
+    public void addSignal(String sourceId, String type, String subtype, String tokens) {
+        if (this.signalCount == this.signalSources.length) {
+            int capacity = this.signalCount * 2;
+            this.signalSources = Arrays.copyOf(this.signalSources, capacity);
+            this.signalTypes = Arrays.copyOf(this.signalTypes, capacity);
+            this.signalSubtypes = Arrays.copyOf(this.signalSubtypes, capacity);
+            this.signalTokenStarts = Arrays.copyOf(this.signalTokenStarts, capacity);
+            this.signalTokenEnds = Arrays.copyOf(this.signalTokenEnds, capacity);
+        }
+        this.signalSources[this.signalCount] = this.declaredOrdinal(sourceId);
+        this.signalTypes[this.signalCount] = this.intern(type);
+        this.signalSubtypes[this.signalCount] = this.intern(subtype);
+        this.signalTokenStarts[this.signalCount] = this.tokenIdCount;
+        // tokens are integers separated by commas
+        if ((tokens != null) && (tokens.length() > 0)) {
+            int[] ids = Signal.parseTokenIds(tokens);
+            if (this.tokenIdCount + ids.length > this.tokenIds.length) {
+                this.tokenIds = Arrays.copyOf(this.tokenIds, Math.max(this.tokenIds.length * 2, this.tokenIdCount + ids.length));
+            }
+            System.arraycopy(ids, 0, this.tokenIds, this.tokenIdCount, ids.length);
+            this.tokenIdCount += ids.length;
+        }
+        this.signalTokenEnds[this.signalCount] = this.tokenIdCount;
+        this.signalCount++;
+    }
+
+    public int getSignalCount() {
+        return (this.signalCount);
+    }
+
+    /**
+     * Returns the id of the source of the given signal or null, if the source
+     * was not declared before the signal.
+     */
+    public String getSignalSourceId(int signal) {
+        return (this.declaredId(this.signalSources[signal]));
+    }
+
+    public String getSignalType(int signal) {
+        return (this.lookup(this.signalTypes[signal]));
+    }
+
+    public String getSignalSubtype(int signal) {
+        return (this.lookup(this.signalSubtypes[signal]));
+    }
+
+    /**
+     * Returns the ids of the tokens of the given signal.
+     */
+    public int[] getSignalTokenIds(int signal) {
+        return (Arrays.copyOfRange(this.tokenIds, this.signalTokenStarts[signal], this.signalTokenEnds[signal]));
+    }
+
+    // ========================= end: signals
+    // ========================= start: secondary edges
+    private int[] secondaryEdges = new int[INITIAL_CAPACITY];
+    private int[] secondaryEdgeSources = new int[INITIAL_CAPACITY];
+    private int[] secondaryEdgeTargets = new int[INITIAL_CAPACITY];
+    private int[] secondaryEdgeNames = new int[INITIAL_CAPACITY];
+    private int secondaryEdgeCount = 0;
+
+    /**
+     * Adds a secondary edge. Source and target must be declared before.
+     */
+    public void addSecondaryEdge(String id, String sourceId, String targetId, String relName) {
+        int source = this.declaredOrdinal(sourceId);
+        if (source == NONE) {
+            throw new RSTException("Secondary edge references a source node that doesn't exist!");
+        }
+        int target = this.declaredOrdinal(targetId);
+        if (target == NONE) {
+            throw new RSTException("Secondary edge references a target node that doesn't exist!");
+        }
+        if (this.secondaryEdgeCount == this.secondaryEdges.length) {
+            int capacity = this.secondaryEdgeCount * 2;
+            this.secondaryEdges = Arrays.copyOf(this.secondaryEdges, capacity);
+            this.secondaryEdgeSources = Arrays.copyOf(this.secondaryEdgeSources, capacity);
+            this.secondaryEdgeTargets = Arrays.copyOf(this.secondaryEdgeTargets, capacity);
+            this.secondaryEdgeNames = Arrays.copyOf(this.secondaryEdgeNames, capacity);
+        }
+        this.secondaryEdges[this.secondaryEdgeCount] = this.declare(id, KIND_SECONDARY_EDGE, null);
+        this.secondaryEdgeSources[this.secondaryEdgeCount] = source;
+        this.secondaryEdgeTargets[this.secondaryEdgeCount] = target;
+        this.secondaryEdgeNames[this.secondaryEdgeCount] = this.intern(relName);
+        this.secondaryEdgeCount++;
+    }
+
+    public int getSecondaryEdgeCount() {
+        return (this.secondaryEdgeCount);
+    }
+
+    public String getSecondaryEdgeId(int secondaryEdge) {
+        return (this.nodeIds[this.secondaryEdges[secondaryEdge]]);
+    }
+
+    public String getSecondaryEdgeSourceId(int secondaryEdge) {
+        return (this.nodeIds[this.secondaryEdgeSources[secondaryEdge]]);
+    }
+
+    public String getSecondaryEdgeTargetId(int secondaryEdge) {
+        return (this.nodeIds[this.secondaryEdgeTargets[secondaryEdge]]);
+    }
+
+    public String getSecondaryEdgeRelationName(int secondaryEdge) {
+        return (this.lookup(this.secondaryEdgeNames[secondaryEdge]));
+    }
+
+    // ========================= end: secondary edges
+
+    public CompactRSTDocument() {
+    }
+
+    /**
+     * Loads the rs3 or rs4 file located at the given uri with the given
+     * parser and trims the model afterwards.
+     *
+     * @param uri
+     * @param parser
+     */
+    public CompactRSTDocument(URI uri, Parser parser) {
+        RSTReader rstReader = new RSTReader();
+        rstReader.setCompactRSTDocument(this);
+        RSTDocument.load(uri, parser, rstReader);
+        this.trim();
+    }
+
+    /**
+     * Releases the lookup tables only needed while the model is filled and
+     * shrinks all arrays to their used size. No nodes can be added afterwards.
+     */
+    public void trim() {
+        this.ordinals = null;
+        this.dictionaryIndex = null;
+        this.nodeIds = Arrays.copyOf(this.nodeIds, this.nodeCount);
+        this.nodeKinds = Arrays.copyOf(this.nodeKinds, this.nodeCount);
+        this.nodeTypes = Arrays.copyOf(this.nodeTypes, this.nodeCount);
+        this.segments = Arrays.copyOf(this.segments, this.segmentCount);
+        this.textStarts = Arrays.copyOf(this.textStarts, this.segmentCount);
+        this.textEnds = Arrays.copyOf(this.textEnds, this.segmentCount);
+        this.text.trimToSize();
+        this.groups = Arrays.copyOf(this.groups, this.groupCount);
+        this.relationParents = Arrays.copyOf(this.relationParents, this.relationCount);
+        this.relationChildren = Arrays.copyOf(this.relationChildren, this.relationCount);
+        this.relationNames = Arrays.copyOf(this.relationNames, this.relationCount);
+        this.relationTypes = Arrays.copyOf(this.relationTypes, this.relationCount);
+        this.signalSources = Arrays.copyOf(this.signalSources, this.signalCount);
+        this.signalTypes = Arrays.copyOf(this.signalTypes, this.signalCount);
+        this.signalSubtypes = Arrays.copyOf(this.signalSubtypes, this.signalCount);
+        this.signalTokenStarts = Arrays.copyOf(this.signalTokenStarts, this.signalCount);
+        this.signalTokenEnds = Arrays.copyOf(this.signalTokenEnds, this.signalCount);
+        this.tokenIds = Arrays.copyOf(this.tokenIds, this.tokenIdCount);
+        this.secondaryEdges = Arrays.copyOf(this.secondaryEdges, this.secondaryEdgeCount);
+        this.secondaryEdgeSources = Arrays.copyOf(this.secondaryEdgeSources, this.secondaryEdgeCount);
+        this.secondaryEdgeTargets = Arrays.copyOf(this.secondaryEdgeTargets, this.secondaryEdgeCount);
+        this.secondaryEdgeNames = Arrays.copyOf(this.secondaryEdgeNames, this.secondaryEdgeCount);
+    }
+}
@@ -17,25 +17,37 @@
  */
 package org.corpus_tools.peppermodules.rstModules.models;
 
+import org.corpus_tools.peppermodules.rstModules.reader.CompressedInput;
+import org.corpus_tools.peppermodules.rstModules.reader.EncodingDetector;
+import org.corpus_tools.peppermodules.rstModules.reader.FileChannelReader;
 import org.corpus_tools.peppermodules.rstModules.reader.RSTReader;
+import org.corpus_tools.peppermodules.rstModules.reader.RSTStreamReader;
+import org.corpus_tools.peppermodules.rstModules.reader.SAXParserPool;
 import org.eclipse.emf.common.util.URI;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 
 import java.io.*;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 public class RSTDocument {
     private List<Segment> segments;
     private List<Group> groups;
-    private List<Relation> relations;
+    private RelationList relations;
     private List<Signal> signals;
     private List<SecondaryEdge> secondaryEdges;
 
@@ -47,6 +59,12 @@ public class RSTDocument {
         return groups;
     }
 
+    /**
+     * Returns the relations of this document. The list can be modified, the
+     * lookups by parent and child follow every change of the list. A relation
+     * is contained in one document at most, adding it to this document
+     * removes it from the document containing it so far.
+     */
     public List<Relation> getRelations() {
         return relations;
     }
@@ -59,45 +77,50 @@ public class RSTDocument {
         return secondaryEdges;
     }
 
+    /**
+     * Relations indexed by the id of their child. Built on first access and
+     * maintained by the list of relations, the setters of parent and child of
+     * each {@link Relation} contained in this document and
+     * {@link AbstractNode#setId(String)} of their nodes.
+     */
+    private Map<String, List<Relation>> incomingIndex = null;
+    /**
+     * Relations indexed by the id of their parent, maintained like
+     * {@link #incomingIndex}.
+     */
+    private Map<String, List<Relation>> outgoingIndex = null;
+
+    /**
+     * Returns all relations having the node with the given id as child.
+     *
+     * @param id
+     * @return the relations or null if there are none
+     */
     public List<Relation> getIncomingRelations(String id) {
-        List<Relation> retVal = null;
-        if (this.getRelations() != null) {
-            for (Relation relation : this.getRelations()) {
-                if (relation.getChild().getId().equals(id)) {
-                    if (retVal == null)
-                        retVal = new ArrayList<Relation>();
-                    retVal.add(relation);
-                }
-            }
-        }
-        return (retVal);
+        List<Relation> slot = this.getIncomingIndex().get(id);
+        return (slot == null ? null : new ArrayList<Relation>(slot));
     }
 
+    /**
+     * Returns the first relation having the node with the given id as parent.
+     *
+     * @param id
+     * @return the relation or null if there is none
+     */
     public Relation getOutgoingRelation(String id) {
-        Relation retVal = null;
-        if (this.getRelations() != null) {
-            for (Relation relation : this.getRelations()) {
-                if (relation.getParent().getId().equals(id)) {
-                    retVal = relation;
-                    break;
-                }
-            }
-        }
-        return (retVal);
+        List<Relation> slot = this.getOutgoingIndex().get(id);
+        return (slot == null ? null : slot.get(0));
     }
 
+    /**
+     * Returns all relations having the node with the given id as parent.
+     *
+     * @param id
+     * @return the relations or null if there are none
+     */
     public List<Relation> getOutgoingRelations(String id) {
-        List<Relation> retVal = null;
-        if (this.getRelations() != null) {
-            for (Relation relation : this.getRelations()) {
-                if (relation.getParent().getId().equals(id)) {
-                    if (retVal == null)
-                        retVal = new ArrayList<Relation>();
-                    retVal.add(relation);
-                }
-            }
-        }
-        return (retVal);
+        List<Relation> slot = this.getOutgoingIndex().get(id);
+        return (slot == null ? null : new ArrayList<Relation>(slot));
     }
 
     public Relation createRelation(AbstractNode parent, AbstractNode child, String name, String type) {
@@ -106,14 +129,245 @@ public class RSTDocument {
         rel.setChild(child);
         rel.setName(name);
         rel.setType(type);
-        this.getRelations().add(rel);
+        this.addRelation(rel);
         return (rel);
     }
 
+    /**
+     * Adds the given relation to this document like
+     * <code>getRelations().add(relation)</code>.
+     *
+     * @param relation
+     */
+    public void addRelation(Relation relation) {
+        this.relations.add(relation);
+    }
+
+    /**
+     * Removes the given relation from this document like
+     * <code>getRelations().remove(relation)</code>.
+     *
+     * @param relation
+     * @return true, if the relation was contained in this document
+     */
+    public boolean removeRelation(Relation relation) {
+        return (this.relations.remove(relation));
+    }
+
+    /**
+     * The list of relations of a document, which keeps the lookups and the
+     * document of each relation up to date.
+     */
+    private class RelationList extends AbstractList<Relation> implements RandomAccess {
+        private final ArrayList<Relation> elements = new ArrayList<Relation>();
+
+        @Override
+        public Relation get(int index) {
+            return elements.get(index);
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+
+        /**
+         * @throws IllegalArgumentException
+         *             if the relation is already contained in this document
+         */
+        @Override
+        public void add(int index, Relation relation) {
+            checkNotContained(relation);
+            elements.add(index, relation);
+            modCount++;
+            attach(relation);
+        }
+
+        /**
+         * @throws IllegalArgumentException
+         *             if the relation is already contained in this document
+         *             at another position
+         */
+        @Override
+        public Relation set(int index, Relation relation) {
+            Relation old = elements.get(index);
+            if (old == relation) {
+                return old;
+            }
+            checkNotContained(relation);
+            detach(old);
+            elements.set(index, relation);
+            attach(relation);
+            return old;
+        }
+
+        @Override
+        public Relation remove(int index) {
+            Relation relation = elements.remove(index);
+            modCount++;
+            detach(relation);
+            return relation;
+        }
+
+        @Override
+        public void clear() {
+            for (Relation relation : elements) {
+                if (relation != null) {
+                    relation.setDocument(null);
+                }
+            }
+            elements.clear();
+            modCount++;
+            if (incomingIndex != null) {
+                incomingIndex.clear();
+                outgoingIndex.clear();
+            }
+        }
+
+        private void checkNotContained(Relation relation) {
+            if (relation != null && relation.getDocument() == RSTDocument.this) {
+                throw new IllegalArgumentException("The relation is already contained in this document.");
+            }
+        }
+
+        /**
+         * Removes the given relation from the document containing it so far
+         * and indexes it in this document.
+         */
+        private void attach(Relation relation) {
+            if (relation == null) {
+                return;
+            }
+            if (relation.getDocument() != null) {
+                relation.getDocument().relations.remove(relation);
+            }
+            relation.setDocument(RSTDocument.this);
+            index(relation);
+        }
+
+        private void detach(Relation relation) {
+            if (relation == null) {
+                return;
+            }
+            unindex(relation);
+            relation.setDocument(null);
+        }
+    }
+
+    private Map<String, List<Relation>> getIncomingIndex() {
+        this.validateIndex();
+        return (this.incomingIndex);
+    }
+
+    private Map<String, List<Relation>> getOutgoingIndex() {
+        this.validateIndex();
+        return (this.outgoingIndex);
+    }
+
+    /**
+     * Builds the indexes if they do not exist.
+     */
+    private void validateIndex() {
+        if (this.incomingIndex == null) {
+            this.incomingIndex = new HashMap<>();
+            this.outgoingIndex = new HashMap<>();
+            for (Relation relation : this.relations) {
+                if (relation != null) {
+                    this.index(relation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the given relation to the indexes, if they are built.
+     */
+    void index(Relation relation) {
+        if (this.incomingIndex == null) {
+            return;
+        }
+        if (relation.getChild() != null) {
+            addToSlot(this.incomingIndex, relation.getChild().getId(), relation);
+            relation.getChild().setDocument(this);
+        }
+        if (relation.getParent() != null) {
+            addToSlot(this.outgoingIndex, relation.getParent().getId(), relation);
+            relation.getParent().setDocument(this);
+        }
+    }
+
+    /**
+     * Moves the relations of the given node in the indexes from its former id
+     * to its current one. Called by {@link AbstractNode#setId(String)}.
+     */
+    void rekey(AbstractNode node, String oldId) {
+        if (this.incomingIndex == null || Objects.equals(oldId, node.getId())) {
+            return;
+        }
+        moveSlot(this.incomingIndex, oldId, node, true);
+        moveSlot(this.outgoingIndex, oldId, node, false);
+    }
+
+    private static void moveSlot(Map<String, List<Relation>> index, String oldId, AbstractNode node, boolean child) {
+        List<Relation> slot = index.get(oldId);
+        if (slot == null) {
+            return;
+        }
+        List<Relation> moved = new ArrayList<Relation>(2);
+        for (Iterator<Relation> iter = slot.iterator(); iter.hasNext();) {
+            Relation relation = iter.next();
+            if ((child ? relation.getChild() : relation.getParent()) == node) {
+                iter.remove();
+                moved.add(relation);
+            }
+        }
+        if (slot.isEmpty()) {
+            index.remove(oldId);
+        }
+        for (Relation relation : moved) {
+            addToSlot(index, node.getId(), relation);
+        }
+    }
+
+    /**
+     * Removes the given relation from the indexes, if they are built. Must be
+     * called before the parent or child of the relation changes.
+     */
+    void unindex(Relation relation) {
+        if (this.incomingIndex == null) {
+            return;
+        }
+        if (relation.getChild() != null) {
+            removeFromSlot(this.incomingIndex, relation.getChild().getId(), relation);
+        }
+        if (relation.getParent() != null) {
+            removeFromSlot(this.outgoingIndex, relation.getParent().getId(), relation);
+        }
+    }
+
+    private static void removeFromSlot(Map<String, List<Relation>> index, String id, Relation relation) {
+        List<Relation> slot = index.get(id);
+        if (slot != null) {
+            slot.remove(relation);
+            if (slot.isEmpty()) {
+                index.remove(id);
+            }
+        }
+    }
+
+    private static void addToSlot(Map<String, List<Relation>> index, String id, Relation relation) {
+        List<Relation> slot = index.get(id);
+        if (slot == null) {
+            slot = new ArrayList<Relation>(2);
+            index.put(id, slot);
+        }
+        slot.add(relation);
+    }
+
     private void init() {
         segments = new ArrayList<Segment>();
         groups = new ArrayList<Group>();
-        relations = new ArrayList<Relation>();
+        relations = new RelationList();
         signals = new ArrayList<Signal>();
         secondaryEdges = new ArrayList<SecondaryEdge>();
     }
@@ -122,17 +376,83 @@ public class RSTDocument {
         init();
     }
 
+    /**
+     * The XML parsers which can be used to read a rs3 or rs4 file.
+     */
+    public enum Parser {
+        /** the SAX based {@link RSTReader} **/
+        SAX,
+        /** the StAX based {@link RSTStreamReader} **/
+        STAX
+    }
+
     public RSTDocument(URI uri) {
+        this(uri, Parser.SAX);
+    }
+
+    /**
+     * Loads the rs3 or rs4 file located at the given uri with the given
+     * parser.
+     *
+     * @param uri
+     * @param parser
+     */
+    public RSTDocument(URI uri, Parser parser) {
+        this(uri, parser, null);
+    }
+
+    /**
+     * Loads the rs3 or rs4 file located at the given uri like
+     * {@link #RSTDocument(URI, Parser)}. If a cache is given, the model is
+     * taken from it when the file has not changed since it was stored, and a
+     * parsed model is stored in it. Entries of zip archives are not cached.
+     *
+     * @param uri
+     * @param parser
+     * @param cache
+     *            the cache or null
+     */
+    public RSTDocument(URI uri, Parser parser, RSTDocumentCache cache) {
         init();
-        loadFile(uri);
+        File rstFile = null;
+        if (cache != null && uri != null && !uri.isArchive()) {
+            rstFile = CompressedInput.getFile(uri);
+            RSTDocument cached = cache.read(rstFile);
+            if (cached != null) {
+                this.segments = cached.segments;
+                this.groups = cached.groups;
+                List<Relation> cachedRelations = new ArrayList<Relation>(cached.relations);
+                cached.relations.clear();
+                this.relations.addAll(cachedRelations);
+                this.signals = cached.signals;
+                this.secondaryEdges = cached.secondaryEdges;
+                return;
+            }
+        }
+        RSTReader rstReader = new RSTReader();
+        rstReader.setRSTDocument(this);
+        load(uri, parser, rstReader);
+        if (rstFile != null) {
+            cache.write(rstFile, this);
+        }
     }
 
-    private void loadFile(URI uri) {
+    /**
+     * Reads the rs3 or rs4 file located at the given uri with the given parser
+     * into the model the passed {@link RSTReader} is set up to fill. The uri
+     * may point to a gzip compressed file or to an entry of a zip archive,
+     * see {@link CompressedInput}.
+     *
+     * @param uri
+     * @param parser
+     * @param rstReader
+     */
+    static void load(URI uri, Parser parser, RSTReader rstReader) {
         if (uri == null) {
             throw new RSTException("Cannot load any resource, because no uri is given.");
         }
 
-        File rstFile = new File(uri.toFileString());
+        File rstFile = CompressedInput.getFile(uri);
         if (!rstFile.exists()) {
             throw new RSTException("Cannot load resource, because the file does not exist: " + rstFile);
         }
@@ -141,53 +461,81 @@ public class RSTDocument {
             throw new RSTException("Cannot load resource, because the file can not be read: " + rstFile);
         }
 
-        SAXParser parser;
-        XMLReader xmlReader;
-        RSTReader rstReader = new RSTReader();
         rstReader.setRstFile(rstFile);
-        rstReader.setRSTDocument(this);
+        String location = CompressedInput.getLocation(uri);
+        if (Parser.STAX.equals(parser)) {
+            loadFileWithStreamReader(uri, location, new RSTStreamReader(rstReader));
+            return;
+        }
 
-        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser saxParser = null;
 
-        try {
-            parser = factory.newSAXParser();
-            xmlReader = parser.getXMLReader();
+        // the encoding is detected up front, so that the file is parsed exactly
+        // once, large files are memory-mapped and decoded in chunks
+        try (Reader reader = openReader(uri)) {
+            saxParser = SAXParserPool.acquire();
+            XMLReader xmlReader = saxParser.getXMLReader();
             // setting LexicalHandler to read DTD
-            xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", rstReader);
+            xmlReader.setProperty(SAXParserPool.PROPERTY_LEXICAL_HANDLER, rstReader);
             xmlReader.setContentHandler(rstReader);
-        } catch (ParserConfigurationException e) {
-            throw new RSTException("Cannot load RST from resource '" + rstFile.getAbsolutePath() + "'.", e);
-        } catch (Exception e) {
-            throw new RSTException("Cannot load RST from resource '" + rstFile.getAbsolutePath() + "'.", e);
-        }
-        try {
-            InputStream inputStream = new FileInputStream(rstFile);
-            Reader reader = new InputStreamReader(inputStream, "UTF-8");
 
-            InputSource is = new InputSource(reader);
-            is.setEncoding("UTF-8");
+            xmlReader.parse(new InputSource(reader));
+        } catch (FileNotFoundException e) {
+            throw new RSTException("File not found: " + location + ".", e);
+        } catch (SAXParseException e) {
+            throw new RSTException("Cannot load RST from resource '" + location + "', because of an error at line " + e.getLineNumber() + ", column " + e.getColumnNumber() + ": " + e.getMessage(), e);
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new RSTException("Cannot load RST from resource '" + location + "'.", e);
+        } catch (IOException e) {
+            throw new RSTException("Error reading " + location + ".", e);
+        } finally {
+            SAXParserPool.release(saxParser);
+        }
+    }
 
-            xmlReader.parse(is);
+    /**
+     * Opens a reader decoding the content the given uri points to. Plain files
+     * are read by a {@link FileChannelReader}, compressed files and entries of
+     * archives are decompressed while they are read.
+     *
+     * @param uri
+     * @return the reader positioned behind the byte order mark
+     * @throws IOException
+     */
+    private static Reader openReader(URI uri) throws IOException {
+        if (!CompressedInput.isCompressed(uri)) {
+            return (new FileChannelReader(CompressedInput.getFile(uri)));
+        }
+        InputStream in = CompressedInput.open(uri);
+        try {
+            return (EncodingDetector.createReader(in));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
 
+    /**
+     * Reads the content the given uri points to with the StAX based
+     * {@link RSTStreamReader}.
+     *
+     * @param uri
+     * @param location
+     *            the location of the content used in messages
+     * @param rstReader
+     */
+    private static void loadFileWithStreamReader(URI uri, String location, RSTStreamReader rstReader) {
+        try (Reader reader = openReader(uri)) {
+            rstReader.read(reader);
         } catch (FileNotFoundException e) {
-            throw new RSTException("File not found: " + rstFile.getAbsolutePath() + ".", e);
-        } catch (UnsupportedEncodingException e) {
-            throw new RSTException("File not in supported encoding: " + rstFile.getAbsolutePath() + ".", e);
-        } catch(IOException e) {
-            throw new RSTException("Error reading " + rstFile.getAbsolutePath() + ".", e);
-        } catch (SAXException e) {
-
-            try {
-                parser = factory.newSAXParser();
-                xmlReader = parser.getXMLReader();
-                xmlReader.parse(rstFile.getAbsolutePath());
-                // setting LexicalHandler to read DTD
-                xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", rstReader);
-                xmlReader.setContentHandler(rstReader);
-            } catch (Exception e1) {
-                throw new RSTException("Cannot load RST from resource '" + rstFile.getAbsolutePath() + "'.", e1);
+            throw new RSTException("File not found: " + location + ".", e);
+        } catch (IOException e) {
+            throw new RSTException("Error reading " + location + ".", e);
+        } catch (XMLStreamException e) {
+            if (e.getLocation() != null) {
+                throw new RSTException("Cannot load RST from resource '" + location + "', because of an error at line " + e.getLocation().getLineNumber() + ", column " + e.getLocation().getColumnNumber() + ": " + e.getMessage(), e);
             }
+            throw new RSTException("Cannot load RST from resource '" + location + "'.", e);
         }
     }
 }
-
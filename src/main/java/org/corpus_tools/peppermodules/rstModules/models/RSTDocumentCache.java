@@ -0,0 +1,570 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.models;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of parsed {@link RSTDocument}s on disk. Each rs3 or rs4 file has
+ * one entry, named after a hash of its path, which stores the model in a
+ * compact binary format: a table of all distinct strings followed by arrays
+ * of integers for segments, groups, secondary edges, relations and signals,
+ * in which strings and nodes are referred to by their index.
+ * <br/>
+ * An entry is used, if the path and the size of the file are the same as
+ * when it was stored and either the modification time or the SHA-256 hash of
+ * the content is the same. Reading an entry updates its modification time;
+ * when the entries exceed the size limit, the least recently used ones are
+ * deleted. Entries are written to a temporary file and renamed, so that
+ * several mappers and processes can share the directory.
+ */
+public class RSTDocumentCache {
+    /** the ending of the files of the entries **/
+    public static final String FILE_ENDING = "rstcache";
+
+    /** "RSTC" **/
+    private static final int MAGIC = 0x52535443;
+
+    /** version of the format, entries of other versions are ignored **/
+    private static final int VERSION = 1;
+
+    /** position of the modification time in an entry **/
+    private static final int MTIME_POSITION = 16;
+
+    /** number of bytes of a SHA-256 hash **/
+    private static final int DIGEST_LENGTH = 32;
+
+    /** fraction of the size limit the entries are reduced to when evicting **/
+    private static final double LOW_WATERMARK = 0.9;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final long maxSize;
+
+    /** total number of bytes of all entries, guarded by this **/
+    private long size = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Opens the cache in the given directory, which is created if it does
+     * not exist.
+     *
+     * @param directory
+     * @param maxSize
+     *            maximal number of bytes of all entries
+     * @throws RSTException
+     *             if the directory cannot be created
+     */
+    public RSTDocumentCache(File directory, long maxSize) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RSTException("Cannot create the cache directory '" + directory.getAbsolutePath() + "'.");
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        for (File entry : this.listEntries()) {
+            this.size += entry.length();
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the total number of bytes of all entries.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /** number of documents read from the cache **/
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** number of documents not found in the cache or changed since stored **/
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** number of documents, which could not be stored **/
+    public long getFailures() {
+        return failures.get();
+    }
+
+    private File[] listEntries() {
+        File[] entries = this.directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return (name.endsWith("." + FILE_ENDING));
+            }
+        });
+        return (entries == null ? new File[0] : entries);
+    }
+
+    /**
+     * Returns the file of the entry of the given rs3 or rs4 file.
+     */
+    public File getEntryFile(File rstFile) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : newDigest().digest(rstFile.getAbsolutePath().getBytes(UTF_8))) {
+            name.append(String.format("%02x", b));
+        }
+        return (new File(this.directory, name.append('.').append(FILE_ENDING).toString()));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return (MessageDigest.getInstance("SHA-256"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RSTException("The JVM does not provide SHA-256.", e);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of the content of the given file.
+     */
+    static byte[] digest(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 << 10];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return (digest.digest());
+    }
+
+    /**
+     * Returns the model of the given file stored in the cache.
+     *
+     * @param rstFile
+     *            the rs3 or rs4 file
+     * @return the model or null, if there is no entry for the file or the file
+     *         has changed since the entry was stored
+     */
+    public RSTDocument read(File rstFile) {
+        File entryFile = this.getEntryFile(rstFile);
+        if (!entryFile.isFile()) {
+            this.misses.incrementAndGet();
+            return (null);
+        }
+        RSTDocument rstDocument = null;
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(entryFile.toPath()));
+            if (this.isUpToDate(in, rstFile, entryFile)) {
+                rstDocument = readDocument(in);
+            }
+        } catch (IOException e) {
+            // deleted meanwhile by another process
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // a corrupt entry
+            this.delete(entryFile);
+        }
+        if (rstDocument == null) {
+            this.misses.incrementAndGet();
+            return (null);
+        }
+        entryFile.setLastModified(System.currentTimeMillis());
+        this.hits.incrementAndGet();
+        return (rstDocument);
+    }
+
+    /**
+     * Checks the header of an entry against the given file and positions the
+     * buffer behind it. If only the modification time differs, the content is
+     * compared by its hash and the modification time in the entry updated.
+     */
+    private boolean isUpToDate(ByteBuffer in, File rstFile, File entryFile) throws IOException {
+        if ((in.getInt() != MAGIC) || (in.getInt() != VERSION) || (in.getLong() != rstFile.length())) {
+            return (false);
+        }
+        long lastModified = in.getLong();
+        byte[] digest = new byte[DIGEST_LENGTH];
+        in.get(digest);
+        byte[] path = new byte[readLength(in, 1)];
+        in.get(path);
+        if (!rstFile.getAbsolutePath().equals(new String(path, UTF_8))) {
+            return (false);
+        }
+        if (lastModified == rstFile.lastModified()) {
+            return (true);
+        }
+        if (!Arrays.equals(digest, digest(rstFile))) {
+            return (false);
+        }
+        try (RandomAccessFile out = new RandomAccessFile(entryFile, "rw")) {
+            out.seek(MTIME_POSITION);
+            out.writeLong(rstFile.lastModified());
+        }
+        return (true);
+    }
+
+    /**
+     * Stores the model of the given file in the cache and evicts the least
+     * recently used entries, if the size limit is exceeded.
+     *
+     * @param rstFile
+     *            the rs3 or rs4 file the model was read from
+     * @param rstDocument
+     * @return false, if the entry could not be written
+     */
+    public boolean write(File rstFile, RSTDocument rstDocument) {
+        File tmpFile = null;
+        try {
+            long length = rstFile.length();
+            long lastModified = rstFile.lastModified();
+            byte[] digest = digest(rstFile);
+            if ((length != rstFile.length()) || (lastModified != rstFile.lastModified())) {
+                // changed while it was read
+                this.failures.incrementAndGet();
+                return (false);
+            }
+            tmpFile = File.createTempFile("entry", ".tmp", this.directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 << 10))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(length);
+                out.writeLong(lastModified);
+                out.write(digest);
+                byte[] path = rstFile.getAbsolutePath().getBytes(UTF_8);
+                out.writeInt(path.length);
+                out.write(path);
+                writeDocument(out, rstDocument);
+            }
+            File entryFile = this.getEntryFile(rstFile);
+            long replaced = entryFile.length();
+            long written = tmpFile.length();
+            try {
+                Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            this.resize(written - replaced);
+            return (true);
+        } catch (IOException | IllegalStateException e) {
+            if (tmpFile != null) {
+                this.delete(tmpFile);
+            }
+            this.failures.incrementAndGet();
+            return (false);
+        }
+    }
+
+    private void delete(File file) {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Adds the given number of bytes to the size of the cache and evicts the
+     * least recently used entries, if the limit is exceeded.
+     */
+    private synchronized void resize(long delta) {
+        this.size += delta;
+        if (this.size <= this.maxSize) {
+            return;
+        }
+        File[] entries = this.listEntries();
+        final long[] lastModified = new long[entries.length];
+        Integer[] order = new Integer[entries.length];
+        long total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            lastModified[i] = entries[i].lastModified();
+            order[i] = i;
+            total += entries[i].length();
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return (Long.compare(lastModified[a], lastModified[b]));
+            }
+        });
+        long target = (long) (this.maxSize * LOW_WATERMARK);
+        for (int i = 0; (i < order.length) && (total > target); i++) {
+            File entry = entries[order[i]];
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+            }
+        }
+        this.size = total;
+    }
+
+    // ========================= start: format
+
+    /**
+     * Collects the distinct strings of a document.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int index(String string) {
+            if (string == null) {
+                return (-1);
+            }
+            Integer index = this.indexes.get(string);
+            if (index == null) {
+                index = this.strings.size();
+                this.indexes.put(string, index);
+                this.strings.add(string);
+            }
+            return (index);
+        }
+    }
+
+    private static int ordinal(Map<AbstractNode, Integer> ordinals, AbstractNode node) {
+        if (node == null) {
+            return (-1);
+        }
+        Integer ordinal = ordinals.get(node);
+        if (ordinal == null) {
+            throw new IllegalStateException("The node '" + node.getId() + "' is not contained in the document.");
+        }
+        return (ordinal);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * values.length);
+        buffer.putInt(values.length);
+        buffer.asIntBuffer().put(values);
+        out.write(buffer.array());
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] values = new int[readLength(in, 4)];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return (values);
+    }
+
+    /**
+     * Reads the number of the following values of the given size and checks
+     * it against the remaining bytes, before anything is allocated for them.
+     *
+     * @throws BufferUnderflowException
+     *             if the number is negative or the values do not fit into the
+     *             rest of a corrupt entry
+     */
+    private static int readLength(ByteBuffer in, int size) {
+        int length = in.getInt();
+        if ((length < 0) || (length > in.remaining() / size)) {
+            throw new BufferUnderflowException();
+        }
+        return (length);
+    }
+
+    private static String string(List<String> strings, int index) {
+        return (index < 0 ? null : strings.get(index));
+    }
+
+    /**
+     * Writes the given document. Segments, groups and secondary edges are
+     * numbered in this order to refer to them as nodes.
+     */
+    static void writeDocument(DataOutputStream out, RSTDocument rstDocument) throws IOException {
+        StringTable strings = new StringTable();
+        Map<AbstractNode, Integer> ordinals = new IdentityHashMap<>();
+        for (Segment segment : rstDocument.getSegments()) {
+            ordinals.put(segment, ordinals.size());
+        }
+        for (Group group : rstDocument.getGroups()) {
+            ordinals.put(group, ordinals.size());
+        }
+        for (SecondaryEdge edge : rstDocument.getSecondaryEdges()) {
+            ordinals.put(edge, ordinals.size());
+        }
+
+        int[] segments = new int[3 * rstDocument.getSegments().size()];
+        int i = 0;
+        for (Segment segment : rstDocument.getSegments()) {
+            segments[i++] = strings.index(segment.getId());
+            segments[i++] = strings.index(segment.getType());
+            segments[i++] = strings.index(segment.getText());
+        }
+        int[] groups = new int[2 * rstDocument.getGroups().size()];
+        i = 0;
+        for (Group group : rstDocument.getGroups()) {
+            groups[i++] = strings.index(group.getId());
+            groups[i++] = strings.index(group.getType());
+        }
+        int[] edges = new int[4 * rstDocument.getSecondaryEdges().size()];
+        i = 0;
+        for (SecondaryEdge edge : rstDocument.getSecondaryEdges()) {
+            edges[i++] = strings.index(edge.getId());
+            edges[i++] = strings.index(edge.getRelationName());
+            edges[i++] = ordinal(ordinals, edge.getSource());
+            edges[i++] = ordinal(ordinals, edge.getTarget());
+        }
+        int[] relations = new int[4 * rstDocument.getRelations().size()];
+        i = 0;
+        for (Relation relation : rstDocument.getRelations()) {
+            relations[i++] = ordinal(ordinals, relation.getParent());
+            relations[i++] = ordinal(ordinals, relation.getChild());
+            relations[i++] = strings.index(relation.getName());
+            relations[i++] = strings.index(relation.getType());
+        }
+        // the number of tokens of each signal, -1 for none, followed by the
+        // tokens of all signals
+        int[] signals = new int[4 * rstDocument.getSignals().size()];
+        int tokenCount = 0;
+        i = 0;
+        for (Signal signal : rstDocument.getSignals()) {
+            signals[i++] = ordinal(ordinals, signal.getSource());
+            signals[i++] = strings.index(signal.getType());
+            signals[i++] = strings.index(signal.getSubtype());
+            signals[i++] = signal.getTokens() == null ? -1 : signal.getTokens().length;
+            tokenCount += signal.getTokens() == null ? 0 : signal.getTokens().length;
+        }
+        int[] tokens = new int[tokenCount];
+        i = 0;
+        for (Signal signal : rstDocument.getSignals()) {
+            if (signal.getTokens() != null) {
+                System.arraycopy(signal.getTokens(), 0, tokens, i, signal.getTokens().length);
+                i += signal.getTokens().length;
+            }
+        }
+
+        out.writeInt(strings.strings.size());
+        for (String string : strings.strings) {
+            byte[] bytes = string.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        writeInts(out, segments);
+        writeInts(out, groups);
+        writeInts(out, edges);
+        writeInts(out, relations);
+        writeInts(out, signals);
+        writeInts(out, tokens);
+    }
+
+    /**
+     * Reads a document written by
+     * {@link #writeDocument(DataOutputStream, RSTDocument)}.
+     */
+    static RSTDocument readDocument(ByteBuffer in) {
+        // each string has at least its length
+        int stringCount = readLength(in, 4);
+        List<String> strings = new ArrayList<>(stringCount);
+        for (int i = 0; i < stringCount; i++) {
+            int length = readLength(in, 1);
+            strings.add(new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8));
+            in.position(in.position() + length);
+        }
+        int[] segments = readInts(in);
+        int[] groups = readInts(in);
+        int[] edges = readInts(in);
+        int[] relations = readInts(in);
+        int[] signals = readInts(in);
+        int[] tokens = readInts(in);
+
+        RSTDocument rstDocument = new RSTDocument();
+        List<AbstractNode> nodes = new ArrayList<>(segments.length / 3 + groups.length / 2 + edges.length / 4);
+        for (int i = 0; i < segments.length; i += 3) {
+            Segment segment = new Segment();
+            segment.setId(string(strings, segments[i]));
+            segment.setType(string(strings, segments[i + 1]));
+            segment.setText(string(strings, segments[i + 2]));
+            rstDocument.getSegments().add(segment);
+            nodes.add(segment);
+        }
+        for (int i = 0; i < groups.length; i += 2) {
+            Group group = new Group();
+            group.setId(string(strings, groups[i]));
+            group.setType(string(strings, groups[i + 1]));
+            rstDocument.getGroups().add(group);
+            nodes.add(group);
+        }
+        // secondary edges may refer to each other, so all are created first
+        for (int i = 0; i < edges.length; i += 4) {
+            SecondaryEdge edge = new SecondaryEdge();
+            edge.setId(string(strings, edges[i]));
+            edge.setRelationName(string(strings, edges[i + 1]));
+            rstDocument.getSecondaryEdges().add(edge);
+            nodes.add(edge);
+        }
+        for (int i = 0; i < edges.length; i += 4) {
+            SecondaryEdge edge = rstDocument.getSecondaryEdges().get(i / 4);
+            edge.setSource(node(nodes, edges[i + 2]));
+            edge.setTarget(node(nodes, edges[i + 3]));
+        }
+        for (int i = 0; i < relations.length; i += 4) {
+            Relation relation = new Relation();
+            relation.setParent(node(nodes, relations[i]));
+            relation.setChild(node(nodes, relations[i + 1]));
+            relation.setName(string(strings, relations[i + 2]));
+            relation.setType(string(strings, relations[i + 3]));
+            rstDocument.addRelation(relation);
+        }
+        int position = 0;
+        for (int i = 0; i < signals.length; i += 4) {
+            Signal signal = new Signal();
+            signal.setSource(node(nodes, signals[i]));
+            signal.setType(string(strings, signals[i + 1]));
+            signal.setSubtype(string(strings, signals[i + 2]));
+            if (signals[i + 3] >= 0) {
+                signal.setTokens(Arrays.copyOfRange(tokens, position, position + signals[i + 3]));
+                position += signals[i + 3];
+            }
+            rstDocument.getSignals().add(signal);
+        }
+        return (rstDocument);
+    }
+
+    private static AbstractNode node(List<AbstractNode> nodes, int ordinal) {
+        return (ordinal < 0 ? null : nodes.get(ordinal));
+    }
+
+    // ========================= end: format
+}
@@ -22,19 +22,48 @@ public class Relation {
     private AbstractNode child;
     private String type;
     private String name;
+    /** the document containing and indexing this relation **/
+    private RSTDocument document;
 
     public AbstractNode getParent() {
         return parent;
     }
+    /**
+     * Sets the parent and updates the index of the {@link RSTDocument}
+     * containing this relation.
+     */
     public void setParent(AbstractNode n) {
+        if (document != null) {
+            document.unindex(this);
+        }
         parent = n;
+        if (document != null) {
+            document.index(this);
+        }
     }
 
     public AbstractNode getChild() {
         return child;
     }
+    /**
+     * Sets the child and updates the index of the {@link RSTDocument}
+     * containing this relation.
+     */
     public void setChild(AbstractNode n) {
+        if (document != null) {
+            document.unindex(this);
+        }
         child = n;
+        if (document != null) {
+            document.index(this);
+        }
+    }
+
+    RSTDocument getDocument() {
+        return document;
+    }
+    void setDocument(RSTDocument d) {
+        document = d;
     }
 
     public String getType() {
@@ -17,13 +17,16 @@
  */
 package org.corpus_tools.peppermodules.rstModules.models;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 public class Signal {
     private String type;
     private String subtype;
     private AbstractNode source;
-    private List<Integer> tokenIds;
+    private int[] tokens;
 
     public String getType() {
         return type;
@@ -46,11 +49,163 @@ public class Signal {
         source = n;
     }
 
+    /**
+     * Returns the ids of the tokens as a live list: changes to the list are
+     * written to the ids of this signal and changes made with
+     * {@link #setTokens(int[])} are visible in the list. Prefer
+     * {@link #getTokens()}, which does not box the ids.
+     *
+     * @return the token ids or null, if the signal has no tokens
+     */
     public List<Integer> getTokenIds() {
-        return tokenIds;
+        if (tokens == null) {
+            return null;
+        }
+        return new TokenIdList();
     }
+    /**
+     * Sets the ids of the tokens. The ids are copied, later changes to the
+     * given list are not visible in this signal.
+     *
+     * @param l
+     *            the token ids or null, if the signal has no tokens
+     */
     public void setTokenIds(List<Integer> l) {
-        tokenIds = l;
+        if (l == null) {
+            tokens = null;
+            return;
+        }
+        tokens = new int[l.size()];
+        int i = 0;
+        for (Integer token : l) {
+            tokens[i++] = token;
+        }
+    }
+
+    /**
+     * Returns the ids of the tokens.
+     *
+     * @return the token ids or null, if the signal has no tokens
+     */
+    public int[] getTokens() {
+        return tokens;
+    }
+    public void setTokens(int[] t) {
+        tokens = t;
+    }
+
+    /**
+     * Reads the ids from the value of a tokens attribute, which are integers
+     * separated by commas, e.g. "9,10". Blanks around an id and a trailing
+     * comma are ignored. The value is scanned once without creating
+     * substrings or boxed integers.
+     *
+     * @param value
+     * @return the ids in the order of the value
+     * @throws RSTException
+     *             if the value contains anything else than ids and commas or
+     *             a negative id
+     */
+    public static int[] parseTokenIds(String value) {
+        int length = value.length();
+        int separators = 0;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) == ',') {
+                separators++;
+            }
+        }
+        int[] ids = new int[separators + 1];
+        int count = 0;
+        int i = skipBlanks(value, 0);
+        while (i < length) {
+            int start = i;
+            if (value.charAt(i) == '-') {
+                throw new RSTException("Cannot read the token ids '" + value + "', because the id at position " + start + " is negative.");
+            }
+            int id = 0;
+            while ((i < length) && (value.charAt(i) >= '0') && (value.charAt(i) <= '9')) {
+                int digit = value.charAt(i) - '0';
+                if (id > (Integer.MAX_VALUE - digit) / 10) {
+                    throw new RSTException("Cannot read the token ids '" + value + "', because the id at position " + start + " is too large.");
+                }
+                id = id * 10 + digit;
+                i++;
+            }
+            if (i == start) {
+                throw new RSTException("Cannot read the token ids '" + value + "', because there is no id at position " + start + ".");
+            }
+            ids[count++] = id;
+            i = skipBlanks(value, i);
+            if (i < length) {
+                if (value.charAt(i) != ',') {
+                    throw new RSTException("Cannot read the token ids '" + value + "', because of an unexpected character at position " + i + ".");
+                }
+                i = skipBlanks(value, i + 1);
+            }
+        }
+        return (count == ids.length ? ids : Arrays.copyOf(ids, count));
+    }
+
+    private static int skipBlanks(String value, int i) {
+        while ((i < value.length()) && Character.isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        return i;
     }
-}
 
+    /**
+     * The list returned by {@link Signal#getTokenIds()}, which reads and
+     * writes the ids array of the signal.
+     */
+    private class TokenIdList extends AbstractList<Integer> implements RandomAccess {
+        @Override
+        public Integer get(int index) {
+            return tokens[checkIndex(index, size())];
+        }
+
+        @Override
+        public int size() {
+            return (tokens == null ? 0 : tokens.length);
+        }
+
+        @Override
+        public Integer set(int index, Integer element) {
+            int old = tokens[checkIndex(index, size())];
+            tokens[index] = element;
+            return old;
+        }
+
+        @Override
+        public void add(int index, Integer element) {
+            int size = size();
+            checkIndex(index, size + 1);
+            int[] t = new int[size + 1];
+            if (size > 0) {
+                System.arraycopy(tokens, 0, t, 0, index);
+                System.arraycopy(tokens, index, t, index + 1, size - index);
+            }
+            t[index] = element;
+            tokens = t;
+            modCount++;
+        }
+
+        @Override
+        public Integer remove(int index) {
+            int size = size();
+            int old = tokens[checkIndex(index, size)];
+            int[] t = new int[size - 1];
+            System.arraycopy(tokens, 0, t, 0, index);
+            System.arraycopy(tokens, index + 1, t, index, size - index - 1);
+            tokens = t;
+            modCount++;
+            return old;
+        }
+
+        private int checkIndex(int index, int size) {
+            if ((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return index;
+        }
+    }
+}
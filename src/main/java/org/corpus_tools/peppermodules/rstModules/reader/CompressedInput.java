@@ -0,0 +1,197 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.reader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.emf.common.util.URI;
+
+/**
+ * Opens rs3 and rs4 files compressed with gzip and documents contained in zip
+ * archives as streams, which are decompressed while they are parsed. A
+ * document in a zip archive is addressed by an archive uri like
+ * <code>archive:file:/corpus.zip!/folder/document.rs3</code>, see
+ * {@link #createArchiveURI(File, String)}. The entry of an archive may be
+ * compressed with gzip as well.
+ */
+public final class CompressedInput {
+    /** the ending of files compressed with gzip **/
+    public static final String GZIP_ENDING = "gz";
+
+    /** the ending of zip archives **/
+    public static final String ZIP_ENDING = "zip";
+
+    /** size of the buffer of the gzip decompressor **/
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private CompressedInput() {
+    }
+
+    /**
+     * Returns if the given name ends with the ending of gzip compressed
+     * files.
+     */
+    public static boolean isGzip(String name) {
+        return (name.toLowerCase(Locale.ROOT).endsWith("." + GZIP_ENDING));
+    }
+
+    /**
+     * Returns if the given name ends with the ending of zip archives.
+     */
+    public static boolean isZip(String name) {
+        return (name.toLowerCase(Locale.ROOT).endsWith("." + ZIP_ENDING));
+    }
+
+    /**
+     * Returns if the given uri addresses an entry of a zip archive or a gzip
+     * compressed file, which both have to be read with {@link #open(URI)}.
+     */
+    public static boolean isCompressed(URI uri) {
+        return (uri.isArchive() || (uri.lastSegment() != null && isGzip(uri.lastSegment())));
+    }
+
+    /**
+     * Returns the name without the gzip ending, if it has one.
+     */
+    public static String removeGzipEnding(String name) {
+        return (isGzip(name) ? name.substring(0, name.length() - GZIP_ENDING.length() - 1) : name);
+    }
+
+    /**
+     * Creates the uri of an entry of the given zip archive.
+     *
+     * @param archive
+     *            the zip archive
+     * @param entryName
+     *            the name of the entry, folders separated by '/'
+     * @return an uri with the scheme "archive"
+     */
+    public static URI createArchiveURI(File archive, String entryName) {
+        StringBuilder uri = new StringBuilder("archive:");
+        uri.append(URI.createFileURI(archive.getAbsolutePath())).append('!');
+        for (String segment : entryName.split("/")) {
+            if (!segment.isEmpty()) {
+                uri.append('/').append(URI.encodeSegment(segment, false));
+            }
+        }
+        return (URI.createURI(uri.toString()));
+    }
+
+    /**
+     * Returns the file on disk the given uri points to, for the uri of an
+     * entry this is the zip archive.
+     */
+    public static File getFile(URI uri) {
+        if (uri.isArchive()) {
+            String authority = uri.authority();
+            // the authority of an archive uri ends with '!'
+            return (new File(URI.createURI(authority.substring(0, authority.length() - 1)).toFileString()));
+        }
+        return (new File(uri.toFileString()));
+    }
+
+    /**
+     * Returns the name of the entry the given archive uri points to, folders
+     * separated by '/'.
+     */
+    public static String getEntryName(URI uri) {
+        StringBuilder entryName = new StringBuilder();
+        for (String segment : uri.segments()) {
+            if (entryName.length() > 0) {
+                entryName.append('/');
+            }
+            entryName.append(URI.decode(segment));
+        }
+        return (entryName.toString());
+    }
+
+    /**
+     * Returns a readable location of the given uri for messages, the path of
+     * the file and for archive uris the name of the entry separated by "!/".
+     */
+    public static String getLocation(URI uri) {
+        String path = getFile(uri).getAbsolutePath();
+        return (uri.isArchive() ? path + "!/" + getEntryName(uri) : path);
+    }
+
+    /**
+     * Opens the content of the file or archive entry the given uri points to.
+     * Gzip compressed content is decompressed while it is read, nothing is
+     * extracted to disk.
+     *
+     * @param uri
+     *            a file uri or an archive uri created by
+     *            {@link #createArchiveURI(File, String)}
+     * @return the decompressed content, closing it closes the archive as well
+     * @throws FileNotFoundException
+     *             if the file or the entry does not exist
+     * @throws IOException
+     */
+    public static InputStream open(URI uri) throws IOException {
+        String name;
+        InputStream in;
+        if (uri.isArchive()) {
+            name = getEntryName(uri);
+            in = openEntry(getFile(uri), name);
+        } else {
+            name = uri.lastSegment();
+            in = new FileInputStream(getFile(uri));
+        }
+        if (isGzip(name)) {
+            try {
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+            } catch (IOException | RuntimeException e) {
+                in.close();
+                throw e;
+            }
+        }
+        return (in);
+    }
+
+    private static InputStream openEntry(File archive, String entryName) throws IOException {
+        final ZipFile zipFile = new ZipFile(archive);
+        try {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null || entry.isDirectory()) {
+                throw new FileNotFoundException("The archive '" + archive.getAbsolutePath() + "' does not contain the entry '" + entryName + "'.");
+            }
+            return (new FilterInputStream(zipFile.getInputStream(entry)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+}
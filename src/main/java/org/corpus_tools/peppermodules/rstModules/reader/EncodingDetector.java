@@ -0,0 +1,170 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.reader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.corpus_tools.peppermodules.rstModules.models.RSTException;
+
+/**
+ * Detects the encoding of XML content before it is parsed. First a byte order
+ * mark is looked for, afterwards the encoding given in the XML declaration. If
+ * neither is present, UTF-8 is assumed as the XML specification demands.
+ */
+public final class EncodingDetector {
+    /** the encoding used if the content does not declare one **/
+    public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    /** number of bytes inspected to find the XML declaration **/
+    public static final int SNIFF_LENGTH = 1024;
+
+    private static final Pattern ENCODING_DECLARATION = Pattern.compile("^<\\?xml[^>]*?encoding\\s*=\\s*[\"']([A-Za-z][A-Za-z0-9._\\-]*)[\"']");
+
+    private EncodingDetector() {
+    }
+
+    /**
+     * Opens a reader decoding the given stream with the detected encoding. A
+     * byte order mark is skipped.
+     *
+     * @param in
+     *            the stream containing XML content
+     * @return a reader positioned at the first character after the byte order
+     *         mark
+     * @throws IOException
+     */
+    public static Reader createReader(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in);
+        }
+        return (new InputStreamReader(in, detect(in)));
+    }
+
+    /**
+     * Detects the encoding of the XML content in the given stream, which must
+     * support {@link InputStream#mark(int)}. Afterwards the stream is
+     * positioned behind the byte order mark, if there is one.
+     *
+     * @param in
+     *            the stream containing XML content
+     * @return the detected encoding
+     * @throws IOException
+     * @throws RSTException
+     *             if the declared encoding is not supported
+     */
+    public static Charset detect(InputStream in) throws IOException {
+        in.mark(SNIFF_LENGTH);
+        byte[] head = new byte[SNIFF_LENGTH];
+        int length = 0;
+        int read;
+        while (length < SNIFF_LENGTH && (read = in.read(head, length, SNIFF_LENGTH - length)) != -1) {
+            length += read;
+        }
+        in.reset();
+
+        skip(in, getByteOrderMarkLength(head, length));
+        return (detect(head, length));
+    }
+
+    /**
+     * Detects the encoding of the XML content starting with the given bytes.
+     *
+     * @param head
+     *            the first bytes of the content, {@link #SNIFF_LENGTH} bytes
+     *            suffice
+     * @param length
+     *            the number of valid bytes in head
+     * @return the detected encoding
+     * @throws RSTException
+     *             if the declared encoding is not supported
+     */
+    public static Charset detect(byte[] head, int length) {
+        if (startsWith(head, length, 0xEF, 0xBB, 0xBF)) {
+            return (DEFAULT_CHARSET);
+        } else if (startsWith(head, length, 0xFE, 0xFF)) {
+            return (Charset.forName("UTF-16BE"));
+        } else if (startsWith(head, length, 0xFF, 0xFE)) {
+            return (Charset.forName("UTF-16LE"));
+        } else if (startsWith(head, length, 0x00, 0x3C, 0x00, 0x3F)) {
+            return (Charset.forName("UTF-16BE"));
+        } else if (startsWith(head, length, 0x3C, 0x00, 0x3F, 0x00)) {
+            return (Charset.forName("UTF-16LE"));
+        }
+
+        // an ASCII compatible encoding, the declaration tells which one
+        Matcher matcher = ENCODING_DECLARATION.matcher(new String(head, 0, length, Charset.forName("ISO-8859-1")));
+        if (matcher.find()) {
+            String encoding = matcher.group(1);
+            try {
+                return (Charset.forName(encoding));
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                throw new RSTException("The encoding '" + encoding + "' declared in the XML declaration is not supported.", e);
+            }
+        }
+        return (DEFAULT_CHARSET);
+    }
+
+    /**
+     * Returns the length of the byte order mark the given bytes start with.
+     *
+     * @param head
+     *            the first bytes of the content
+     * @param length
+     *            the number of valid bytes in head
+     * @return the number of bytes to skip, 0 if there is no byte order mark
+     */
+    public static int getByteOrderMarkLength(byte[] head, int length) {
+        if (startsWith(head, length, 0xEF, 0xBB, 0xBF)) {
+            return (3);
+        } else if (startsWith(head, length, 0xFE, 0xFF) || startsWith(head, length, 0xFF, 0xFE)) {
+            return (2);
+        }
+        return (0);
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... prefix) {
+        if (length < prefix.length) {
+            return (false);
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((head[i] & 0xFF) != prefix[i]) {
+                return (false);
+            }
+        }
+        return (true);
+    }
+
+    private static void skip(InputStream in, int n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                return;
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and decodes a file through a {@link FileChannel}. Files of at least
+ * {@link #MAP_THRESHOLD} bytes are memory-mapped in windows of
+ * {@link #MAP_WINDOW} bytes, smaller ones are read into a direct buffer. In
+ * both cases the bytes are copied in chunks of {@link #CHUNK_SIZE} bytes into
+ * a heap buffer and decoded from there, since the decoders of the JDK only
+ * take their fast path for heap buffers. The encoding is detected by the
+ * {@link EncodingDetector}, a byte order mark is skipped. Malformed input is
+ * replaced like by an {@link java.io.InputStreamReader}.
+ */
+public final class FileChannelReader extends Reader {
+    /** minimal size of a file to be memory-mapped **/
+    public static final long MAP_THRESHOLD = 1 << 20;
+
+    /** number of bytes mapped at once **/
+    public static final long MAP_WINDOW = 64 << 20;
+
+    /** number of bytes decoded at once **/
+    public static final int CHUNK_SIZE = 64 << 10;
+
+    private final FileChannel channel;
+    private final long size;
+    private final boolean mapped;
+    private final long mapWindow;
+    private final CharsetDecoder decoder;
+    private final CharBuffer chars;
+
+    /** the mapped window or the direct buffer read from the channel **/
+    private ByteBuffer source;
+
+    /** position in the file behind the last byte of {@link #source} **/
+    private long sourceEnd;
+
+    /** the bytes to be decoded, copied from {@link #source} **/
+    private final ByteBuffer bytes;
+
+    /** decoding needs more bytes **/
+    private boolean needsInput = true;
+
+    /** all bytes have been passed to the decoder **/
+    private boolean endOfInput = false;
+
+    /** the decoder has been flushed **/
+    private boolean finished = false;
+
+    /**
+     * Opens the given file.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public FileChannelReader(File file) throws IOException {
+        this(file, MAP_THRESHOLD, MAP_WINDOW);
+    }
+
+    /**
+     * Opens the given file, files of at least mapThreshold bytes are mapped in
+     * windows of mapWindow bytes.
+     *
+     * @param file
+     * @param mapThreshold
+     * @param mapWindow
+     * @throws IOException
+     */
+    public FileChannelReader(File file, long mapThreshold, long mapWindow) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.size = this.channel.size();
+            byte[] head = new byte[(int) Math.min(EncodingDetector.SNIFF_LENGTH, this.size)];
+            ByteBuffer headBuffer = ByteBuffer.wrap(head);
+            while (headBuffer.hasRemaining()) {
+                if (this.channel.read(headBuffer, headBuffer.position()) <= 0) {
+                    break;
+                }
+            }
+            int length = headBuffer.position();
+            Charset charset = EncodingDetector.detect(head, length);
+            this.sourceEnd = EncodingDetector.getByteOrderMarkLength(head, length);
+
+            this.mapped = this.size >= mapThreshold;
+            this.mapWindow = Math.max(1, Math.min(mapWindow, Integer.MAX_VALUE));
+            int chunkSize = (int) Math.min(Math.max(this.size, 16), CHUNK_SIZE);
+            if (this.mapped) {
+                this.source = ByteBuffer.allocate(0);
+            } else {
+                this.source = ByteBuffer.allocateDirect(chunkSize);
+                this.source.flip();
+                this.channel.position(this.sourceEnd);
+            }
+            this.bytes = ByteBuffer.allocate(chunkSize);
+            this.bytes.flip();
+            this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.chars = CharBuffer.allocate(CHUNK_SIZE);
+            this.chars.flip();
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps the next window or reads the next bytes into the direct buffer.
+     *
+     * @return false, if the end of the file has been reached
+     */
+    private boolean fillSource() throws IOException {
+        if (this.mapped) {
+            if (this.sourceEnd >= this.size) {
+                return (false);
+            }
+            long length = Math.min(this.mapWindow, this.size - this.sourceEnd);
+            this.source = this.channel.map(FileChannel.MapMode.READ_ONLY, this.sourceEnd, length);
+            this.sourceEnd += length;
+            return (true);
+        }
+        this.source.clear();
+        int read = this.channel.read(this.source);
+        this.source.flip();
+        return (read > 0);
+    }
+
+    /**
+     * Copies the next bytes to be decoded behind the ones not decoded yet.
+     *
+     * @return false, if the end of the file has been reached
+     */
+    private boolean fillBytes() throws IOException {
+        this.bytes.compact();
+        int copied = 0;
+        while (this.bytes.hasRemaining()) {
+            if (!this.source.hasRemaining() && !this.fillSource()) {
+                break;
+            }
+            int n = Math.min(this.source.remaining(), this.bytes.remaining());
+            ByteBuffer chunk = this.source.duplicate();
+            chunk.limit(chunk.position() + n);
+            this.bytes.put(chunk);
+            this.source.position(this.source.position() + n);
+            copied += n;
+        }
+        this.bytes.flip();
+        return (copied > 0);
+    }
+
+    /**
+     * Decodes the next chunk of characters.
+     *
+     * @return false, if there are no more characters
+     */
+    private boolean fillChars() throws IOException {
+        this.chars.clear();
+        while (this.chars.position() == 0 && !this.finished) {
+            if (this.endOfInput && this.needsInput) {
+                // all bytes are decoded
+                this.finished = this.decoder.flush(this.chars).isUnderflow();
+                continue;
+            }
+            if (this.needsInput) {
+                this.endOfInput = !this.fillBytes();
+            }
+            CoderResult result = this.decoder.decode(this.bytes, this.chars, this.endOfInput);
+            this.needsInput = result.isUnderflow();
+        }
+        this.chars.flip();
+        return (this.chars.hasRemaining());
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return (0);
+        }
+        if (!this.chars.hasRemaining() && !this.fillChars()) {
+            return (-1);
+        }
+        int n = Math.min(len, this.chars.remaining());
+        this.chars.get(cbuf, off, n);
+        return (n);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.chars.hasRemaining() && !this.fillChars()) {
+            return (-1);
+        }
+        return (this.chars.get());
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -33,7 +33,7 @@ public class RSTReader extends DefaultHandler2 {
     private void init() {
         this.idAbstractNodeTable = new HashMap<String, AbstractNode>();
         this.idRelationTable = new HashMap<String, Vector<Relation>>();
-        this.rstElementStack = new Stack<RSTReader.RSTElements>();
+        this.rstElementStack = new ArrayDeque<RSTReader.RSTElements>();
         this.relNameType = new HashMap<String, String>();
         this.signalTypes = new HashMap<String, Set<String>>();
     }
@@ -73,6 +73,24 @@ public class RSTReader extends DefaultHandler2 {
     }
 
     // ========================= end: RSTDocument
+    // ========================= start: CompactRSTDocument
+    private CompactRSTDocument compactRSTDocument = null;
+
+    /**
+     * Sets a {@link CompactRSTDocument} to be filled instead of the
+     * {@link RSTDocument}.
+     *
+     * @param compactRSTDocument
+     */
+    public void setCompactRSTDocument(CompactRSTDocument compactRSTDocument) {
+        this.compactRSTDocument = compactRSTDocument;
+    }
+
+    public CompactRSTDocument getCompactRSTDocument() {
+        return compactRSTDocument;
+    }
+
+    // ========================= end: CompactRSTDocument
     /**
      * XML-element types for RST
      */
@@ -84,12 +102,24 @@ public class RSTReader extends DefaultHandler2 {
     /**
      * Stores the last read RST-XML-Elements
      */
-    private Stack<RSTElements> rstElementStack = null;
+    private Deque<RSTElements> rstElementStack = null;
+
+    /**
+     * the element on top of {@link #rstElementStack}, checked for each text
+     * node
+     */
+    private RSTElements currentElement = null;
 
     /**
-     * stores the read text inside an <segment> element
+     * stores the read text inside an <segment> element, reused for all
+     * segments
      */
-    private StringBuffer currentText = null;
+    private final StringBuilder currentText = new StringBuilder();
+
+    /**
+     * true, if a text node was found inside the current <segment> element
+     */
+    private boolean hasCurrentText = false;
 
     /**
      * Stores correspondation between relation name and relation type, given in
@@ -106,19 +136,37 @@ public class RSTReader extends DefaultHandler2 {
      * @see org.xml.sax.helpers.DefaultHandler#characters(char[], int, int)
      */
     public void characters(char[] ch, int start, int length) throws SAXException {
-        if (this.rstElementStack.peek().equals(RSTElements.SEGMENT)) {// current
-            // element
-            // is
-            // <segment/>
-            if (this.currentSegment == null)
-                throw new RSTException("Cannot add the found text node in file '" + this.getRstFile().getAbsolutePath() + "', because it is not contained in a <segment>-element.");
-            if (this.currentText == null)
-                this.currentText = new StringBuffer();
-            for (int i = start; i < start + length; i++) {// creating the text
-                if (ch[i] != '\n')
-                    currentText.append(ch[i]);
-            } // creating the text
-        } // current element is <segment/>
+        this.text(ch, start, length);
+    }
+
+    /**
+     * Collects the text of the current element, if it is a &lt;segment/&gt;.
+     * Line breaks are removed, the runs between them are copied at once.
+     */
+    void text(char[] ch, int start, int length) {
+        if (this.currentElement != RSTElements.SEGMENT) {
+            return;
+        }
+        if ((this.currentSegment == null) && (this.compactRSTDocument == null))
+            throw new RSTException("Cannot add the found text node in file '" + this.getRstFile().getAbsolutePath() + "', because it is not contained in a <segment>-element.");
+        this.hasCurrentText = true;
+        int end = start + length;
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            if (ch[i] == '\n') {
+                this.currentText.append(ch, runStart, i - runStart);
+                runStart = i + 1;
+            }
+        }
+        this.currentText.append(ch, runStart, end - runStart);
+    }
+
+    /**
+     * Enters the given element.
+     */
+    private void push(RSTElements element) {
+        this.rstElementStack.push(element);
+        this.currentElement = element;
     }
 
     /**
@@ -162,181 +210,206 @@ public class RSTReader extends DefaultHandler2 {
      */
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-        if (qName.equals(RSTVocabulary.TAG_RST)) {
-            this.rstElementStack.push(RSTElements.RST);
-        }
-
-        else if (qName.equals(RSTVocabulary.TAG_HEADER)) {
-            this.rstElementStack.push(RSTElements.HEADER);
+        switch (qName) {
+        case RSTVocabulary.TAG_SIGNAL_TYPE:
+            this.startSignalType(attributes.getValue(RSTVocabulary.ATT_TYPE), attributes.getValue(RSTVocabulary.ATT_SUBTYPES));
+            break;
+        case RSTVocabulary.TAG_REL:
+            this.startRel(attributes.getValue(RSTVocabulary.ATT_NAME), attributes.getValue(RSTVocabulary.ATT_TYPE));
+            break;
+        case RSTVocabulary.TAG_SEGMENT:
+            this.startSegment(attributes.getValue(RSTVocabulary.ATT_ID), attributes.getValue(RSTVocabulary.ATT_TYPE), attributes.getValue(RSTVocabulary.ATT_PARENT), attributes.getValue(RSTVocabulary.ATT_RELNAME));
+            break;
+        case RSTVocabulary.TAG_GROUP:
+            this.startGroup(attributes.getValue(RSTVocabulary.ATT_ID), attributes.getValue(RSTVocabulary.ATT_TYPE), attributes.getValue(RSTVocabulary.ATT_PARENT), attributes.getValue(RSTVocabulary.ATT_RELNAME));
+            break;
+        case RSTVocabulary.TAG_SIGNAL:
+            this.startSignal(attributes.getValue(RSTVocabulary.ATT_SOURCE), attributes.getValue(RSTVocabulary.ATT_TYPE), attributes.getValue(RSTVocabulary.ATT_SUBTYPE), attributes.getValue(RSTVocabulary.ATT_TOKENS));
+            break;
+        case RSTVocabulary.TAG_SECONDARY_EDGE:
+            this.startSecondaryEdge(attributes.getValue(RSTVocabulary.ATT_ID), attributes.getValue(RSTVocabulary.ATT_SOURCE), attributes.getValue(RSTVocabulary.ATT_TARGET), attributes.getValue(RSTVocabulary.ATT_RELNAME));
+            break;
+        default:
+            this.startContainer(qName);
+            break;
         }
+    }
 
-        else if (qName.equals(RSTVocabulary.TAG_ENCODING)) {
-            this.rstElementStack.push(RSTElements.ENCODING);
+    /**
+     * Handles an element not carrying any attributes of interest.
+     */
+    void startContainer(String qName) {
+        switch (qName) {
+        case RSTVocabulary.TAG_RST:
+            this.push(RSTElements.RST);
+            break;
+        case RSTVocabulary.TAG_HEADER:
+            this.push(RSTElements.HEADER);
+            break;
+        case RSTVocabulary.TAG_ENCODING:
+            this.push(RSTElements.ENCODING);
+            break;
+        case RSTVocabulary.TAG_RELATIONS:
+            this.push(RSTElements.RELATIONS);
+            break;
+        case RSTVocabulary.TAG_SIGNAL_TYPES:
+            this.push(RSTElements.SIGNAL_TYPES);
+            break;
+        case RSTVocabulary.TAG_BODY:
+            this.push(RSTElements.BODY);
+            break;
+        case RSTVocabulary.TAG_SIGNALS:
+            this.push(RSTElements.SIGNALS);
+            break;
+        case RSTVocabulary.TAG_SECONDARY_EDGES:
+            this.push(RSTElements.SECONDARY_EDGES);
+            break;
+        default:
+            break;
         }
+    }
 
-        else if (qName.equals(RSTVocabulary.TAG_RELATIONS)) {
-            this.rstElementStack.push(RSTElements.RELATIONS);
-        }
+    /**
+     * Handles an element &lt;sig/&gt; in the header.
+     */
+    void startSignalType(String type, String subtypes) {
+        this.push(RSTElements.SIGNAL_TYPE);
+        this.signalTypes.put(type, new HashSet<>(Arrays.asList(subtypes.split(";"))));
+    }
 
-        else if (qName.equals(RSTVocabulary.TAG_SIGNAL_TYPES)) {
-            this.rstElementStack.push(RSTElements.SIGNAL_TYPES);
-        }
+    /**
+     * Handles an element &lt;rel/&gt; in the header.
+     */
+    void startRel(String relName, String relType) {
+        this.push(RSTElements.REL);
+        relNameType.put(relName, relType);
+    }
 
-        else if (qName.equals(RSTVocabulary.TAG_SIGNAL_TYPE)) {
-            this.rstElementStack.push(RSTElements.SIGNAL_TYPE);
-            String type = attributes.getValue(RSTVocabulary.ATT_TYPE);
-            String[] subtypes = attributes.getValue(RSTVocabulary.ATT_SUBTYPES).split(";");
-            this.signalTypes.put(type, new HashSet<>(Arrays.asList(subtypes)));
+    /**
+     * Handles an element &lt;segment/&gt;.
+     */
+    void startSegment(String id, String type, String parentId, String relname) {
+        this.push(RSTElements.SEGMENT);
+        if (this.compactRSTDocument != null) {
+            this.compactRSTDocument.addSegment(id, type, parentId, relname, this.relNameType.get(relname));
+            return;
         }
+        Segment segment = new Segment();
+        segment.setId(id);
+        this.getRSTDocument().getSegments().add(segment);
 
-        else if (qName.equals(RSTVocabulary.TAG_REL)) {
-            this.rstElementStack.push(RSTElements.REL);
-            String relName = attributes.getValue(RSTVocabulary.ATT_NAME);
-            String relType = attributes.getValue(RSTVocabulary.ATT_TYPE);
-            relNameType.put(relName, relType);
-        }
+        if (type != null)
+            segment.setType(type);
 
-        else if (qName.equals(RSTVocabulary.TAG_BODY)) {
-            this.rstElementStack.push(RSTElements.BODY);
-        }
+        this.currentSegment = segment;
+        this.addNode(segment, parentId, relname);
+    }
 
-        else if (qName.equals(RSTVocabulary.TAG_SEGMENT)) {
-            this.rstElementStack.push(RSTElements.SEGMENT);
-            Segment segment = new Segment();
-            segment.setId(attributes.getValue(RSTVocabulary.ATT_ID));
-            this.getRSTDocument().getSegments().add(segment);
-
-            if (attributes.getValue(RSTVocabulary.ATT_TYPE) != null)
-                segment.setType(attributes.getValue(RSTVocabulary.ATT_TYPE));
-
-            this.idAbstractNodeTable.put(attributes.getValue(RSTVocabulary.ATT_ID), segment);
-            this.currentSegment = segment;
-            {// check if there are relations waiting for this segment
-                Vector<Relation> slot = this.idRelationTable.get(attributes.getValue(RSTVocabulary.ATT_ID));
-                if (slot != null) {// there are relations waiting for this
-                    // segment
-                    for (Relation relation : slot) {
-                        relation.setParent(segment);
-                    }
-                } // there are relations waiting for this segment
-            } // check if there are relations waiting for this segment
-            {// creating relation
-                if (attributes.getValue(RSTVocabulary.ATT_PARENT) != null) {
-                    Relation relation = new Relation();
-                    relation.setChild(segment);
-                    this.getRSTDocument().getRelations().add(relation);
-                    if (attributes.getValue(RSTVocabulary.ATT_RELNAME) != null) {
-                        String relname = attributes.getValue(RSTVocabulary.ATT_RELNAME);
-                        relation.setName(relname);
-                        if (this.relNameType.containsKey(relname)) {
-                            relation.setType(relNameType.get(relname));
-                        }
-                    }
-                    AbstractNode parent = this.idAbstractNodeTable.get(attributes.getValue(RSTVocabulary.ATT_PARENT));
-                    if (parent == null) {// parent does not exist so far
-                        this.addRelation2Table(attributes.getValue(RSTVocabulary.ATT_PARENT), relation);
-                    } // parent does not exist so far
-                    else {// parent already exists
-                        relation.setParent(parent);
-                    } // parent already exists
-                }
-            } // creating relation
+    /**
+     * Handles an element &lt;group/&gt;.
+     */
+    void startGroup(String id, String type, String parentId, String relname) {
+        this.push(RSTElements.GROUP);
+        if (this.compactRSTDocument != null) {
+            this.compactRSTDocument.addGroup(id, type, parentId, relname, this.relNameType.get(relname));
+            return;
         }
+        Group group = new Group();
+        group.setId(id);
+        this.getRSTDocument().getGroups().add(group);
+        if (type != null)
+            group.setType(type);
 
-        else if (qName.equals(RSTVocabulary.TAG_GROUP)) {// element <group/>
-            // found
-            this.rstElementStack.push(RSTElements.GROUP);
-            Group group = new Group();
-            group.setId(attributes.getValue(RSTVocabulary.ATT_ID));
-            this.getRSTDocument().getGroups().add(group);
-            if (attributes.getValue(RSTVocabulary.ATT_TYPE) != null)
-                group.setType(attributes.getValue(RSTVocabulary.ATT_TYPE));
-
-            this.idAbstractNodeTable.put(attributes.getValue(RSTVocabulary.ATT_ID), group);
-            {// check if there are relations waiting for this segment
-                Vector<Relation> slot = this.idRelationTable.get(attributes.getValue(RSTVocabulary.ATT_ID));
-                if (slot != null) {// there are relations waiting for this
-                    // segment
-                    for (Relation relation : slot) {
-                        relation.setParent(group);
-                    }
-                } // there are relations waiting for this segment
-            } // check if there are relations waiting for this segment
-            {// creating relation
-                if (attributes.getValue(RSTVocabulary.ATT_PARENT) != null) {
-                    Relation relation = new Relation();
-                    this.getRSTDocument().getRelations().add(relation);
-                    relation.setChild(group);
-                    if (attributes.getValue(RSTVocabulary.ATT_RELNAME) != null) {
-                        String relname = attributes.getValue(RSTVocabulary.ATT_RELNAME);
-                        relation.setName(relname);
-                        if (this.relNameType.containsKey(relname)) {
-                            relation.setType(relNameType.get(relname));
-                        }
-                    }
+        this.addNode(group, parentId, relname);
+    }
 
-                    AbstractNode parent = this.idAbstractNodeTable.get(attributes.getValue(RSTVocabulary.ATT_PARENT));
-                    if (parent == null) {// parent does not exist so far
-                        this.addRelation2Table(attributes.getValue(RSTVocabulary.ATT_PARENT), relation);
-                    } // parent does not exist so far
-                    else {// parent already exists
-                        relation.setParent(parent);
-                    } // parent already exists
+    /**
+     * Registers the given segment or group, resolves relations waiting for it
+     * and creates the relation to its parent.
+     */
+    private void addNode(AbstractNode node, String parentId, String relname) {
+        this.idAbstractNodeTable.put(node.getId(), node);
+        {// check if there are relations waiting for this node
+            Vector<Relation> slot = this.idRelationTable.get(node.getId());
+            if (slot != null) {// there are relations waiting for this
+                // node
+                for (Relation relation : slot) {
+                    relation.setParent(node);
                 }
-            } // creating relation
-        }
-
-        else if (qName.equals(RSTVocabulary.TAG_SIGNALS)) {
-            this.rstElementStack.push(RSTElements.SIGNALS);
-        }
-
-        else if (qName.equals(RSTVocabulary.TAG_SIGNAL)) {
-            this.rstElementStack.push(RSTElements.SIGNAL);
-            Signal signal = new Signal();
-            signal.setType(attributes.getValue(RSTVocabulary.ATT_TYPE));
-            signal.setSubtype(attributes.getValue(RSTVocabulary.ATT_SUBTYPE));
-
-            // tokens are integers separated by commas
-            List<Integer> tokenIds = new ArrayList<Integer>();
-
-            String ids = attributes.getValue(RSTVocabulary.ATT_TOKENS);
-            if (ids.length() > 0) {
-                for (String tokenId: ids.split(",")) {
-                    tokenIds.add(Integer.parseInt(tokenId));
+            } // there are relations waiting for this node
+        } // check if there are relations waiting for this node
+        {// creating relation
+            if (parentId != null) {
+                Relation relation = new Relation();
+                relation.setChild(node);
+                if (relname != null) {
+                    relation.setName(relname);
+                    if (this.relNameType.containsKey(relname)) {
+                        relation.setType(relNameType.get(relname));
+                    }
                 }
-                signal.setTokenIds(tokenIds);
+                AbstractNode parent = this.idAbstractNodeTable.get(parentId);
+                if (parent == null) {// parent does not exist so far
+                    this.addRelation2Table(parentId, relation);
+                } // parent does not exist so far
+                else {// parent already exists
+                    relation.setParent(parent);
+                } // parent already exists
+                this.getRSTDocument().addRelation(relation);
             }
+        } // creating relation
+    }
 
-            AbstractNode sourceNode = this.idAbstractNodeTable.get(attributes.getValue(RSTVocabulary.ATT_SOURCE));
-            signal.setSource(sourceNode);
-            this.getRSTDocument().getSignals().add(signal);
+    /**
+     * Handles an element &lt;signal/&gt;.
+     */
+    void startSignal(String sourceId, String type, String subtype, String ids) {
+        this.push(RSTElements.SIGNAL);
+        if (this.compactRSTDocument != null) {
+            this.compactRSTDocument.addSignal(sourceId, type, subtype, ids);
+            return;
         }
+        Signal signal = new Signal();
+        signal.setType(type);
+        signal.setSubtype(subtype);
 
-        else if (qName.equals(RSTVocabulary.TAG_SECONDARY_EDGES)) {
-            this.rstElementStack.push(RSTElements.SECONDARY_EDGES);
+        // tokens are integers separated by commas
+        if (ids.length() > 0) {
+            signal.setTokens(Signal.parseTokenIds(ids));
         }
 
-        else if (qName.equals(RSTVocabulary.TAG_SECONDARY_EDGE)) {
-            this.rstElementStack.push(RSTElements.SECONDARY_EDGE);
-            SecondaryEdge e = new SecondaryEdge();
-            e.setId(attributes.getValue(RSTVocabulary.ATT_ID));
-            e.setRelationName(attributes.getValue(RSTVocabulary.ATT_RELNAME));
+        AbstractNode sourceNode = this.idAbstractNodeTable.get(sourceId);
+        signal.setSource(sourceNode);
+        this.getRSTDocument().getSignals().add(signal);
+    }
 
-            AbstractNode source = this.idAbstractNodeTable.get(attributes.getValue(RSTVocabulary.ATT_SOURCE));
-            if (source == null) {
-                throw new RSTException("Secondary edge references a source node that doesn't exist!");
-            } else {
-                e.setSource(source);
-            }
-            AbstractNode target = this.idAbstractNodeTable.get(attributes.getValue(RSTVocabulary.ATT_TARGET));
-            if (target == null) {
-                throw new RSTException("Secondary edge references a target node that doesn't exist!");
-            } else {
-                e.setTarget(target);
-            }
-            this.idAbstractNodeTable.put(e.getId(), e);
-            this.getRSTDocument().getSecondaryEdges().add(e);
+    /**
+     * Handles an element &lt;secedge/&gt;.
+     */
+    void startSecondaryEdge(String id, String sourceId, String targetId, String relname) {
+        this.push(RSTElements.SECONDARY_EDGE);
+        if (this.compactRSTDocument != null) {
+            this.compactRSTDocument.addSecondaryEdge(id, sourceId, targetId, relname);
+            return;
         }
+        SecondaryEdge e = new SecondaryEdge();
+        e.setId(id);
+        e.setRelationName(relname);
+
+        AbstractNode source = this.idAbstractNodeTable.get(sourceId);
+        if (source == null) {
+            throw new RSTException("Secondary edge references a source node that doesn't exist!");
+        } else {
+            e.setSource(source);
+        }
+        AbstractNode target = this.idAbstractNodeTable.get(targetId);
+        if (target == null) {
+            throw new RSTException("Secondary edge references a target node that doesn't exist!");
+        } else {
+            e.setTarget(target);
+        }
+        this.idAbstractNodeTable.put(e.getId(), e);
+        this.getRSTDocument().getSecondaryEdges().add(e);
     }
 
     /**
@@ -348,50 +421,34 @@ public class RSTReader extends DefaultHandler2 {
      */
     @Override
     public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
-        this.rstElementStack.pop();
-        if (qName.equals(RSTVocabulary.TAG_BODY)) {// element <body/> found
+        this.endElement(qName);
+    }
 
-        } // element <body/> found
-        else if (qName.equals(RSTVocabulary.TAG_SEGMENT)) {// element <segment/>
+    /**
+     * Handles the end of any element.
+     */
+    void endElement(String qName) {
+        this.rstElementStack.pop();
+        this.currentElement = this.rstElementStack.peek();
+        if (RSTVocabulary.TAG_SEGMENT.equals(qName)) {// element <segment/>
             // found
-            if (this.currentText != null) {
-                this.currentSegment.setText(this.currentText.toString());
-            }
-            this.currentText = null;
-            this.currentSegment = null;
+            this.endSegment();
         } // element <segment/> found
-        else if (qName.equals(RSTVocabulary.TAG_GROUP)) {// element <group/>
-            // found
-
-        } // element <group/> found
     }
-}
 
-abstract class RSTVocabulary {
-    // tags and attributes for files of type TEXT(text.dtd)
-    public static final String TAG_RST = "rst";
-    public static final String TAG_HEADER = "header";
-    public static final String TAG_ENCODING = "encoding";
-    public static final String TAG_RELATIONS = "relations";
-    public static final String TAG_REL = "rel";
-    public static final String TAG_BODY = "body";
-    public static final String TAG_SEGMENT = "segment";
-    public static final String TAG_GROUP = "group";
-    public static final String TAG_SIGNAL_TYPES = "sigtypes";
-    public static final String TAG_SIGNAL_TYPE = "sig";
-    public static final String TAG_SIGNALS = "signals";
-    public static final String TAG_SIGNAL = "signal";
-    public static final String TAG_SECONDARY_EDGES = "secedges";
-    public static final String TAG_SECONDARY_EDGE = "secedge";
-
-    public static final String ATT_NAME = "name";
-    public static final String ATT_PARENT = "parent";
-    public static final String ATT_TYPE = "type";
-    public static final String ATT_SUBTYPE = "subtype";
-    public static final String ATT_SUBTYPES = "subtypes";
-    public static final String ATT_ID = "id";
-    public static final String ATT_RELNAME = "relname";
-    public static final String ATT_SOURCE = "source";
-    public static final String ATT_TARGET = "target";
-    public static final String ATT_TOKENS = "tokens";
+    /**
+     * Handles the end of an element &lt;segment/&gt;.
+     */
+    void endSegment() {
+        if (this.hasCurrentText) {
+            if (this.compactRSTDocument != null) {
+                this.compactRSTDocument.setText(this.currentText);
+            } else {
+                this.currentSegment.setText(this.currentText.toString());
+            }
+        }
+        this.currentText.setLength(0);
+        this.hasCurrentText = false;
+        this.currentSegment = null;
+    }
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.reader;
+
+import java.io.File;
+import java.io.Reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+
+/**
+ * Reads a rs3 or rs4 file with a StAX pull parser ({@link XMLStreamReader})
+ * into a {@link RSTDocument}. The element name of each start tag is dispatched
+ * via a switch to the same model building methods the SAX based
+ * {@link RSTReader} uses, so both readers produce identical models.
+ */
+public class RSTStreamReader {
+    /**
+     * The factory is thread-safe once configured and expensive to look up, so
+     * it is shared by all readers.
+     */
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    /** builds the model from the elements read **/
+    private final RSTReader rstReader;
+
+    public RSTStreamReader() {
+        this(new RSTReader());
+    }
+
+    /**
+     * Creates a reader passing all elements read to the given
+     * {@link RSTReader}, which builds the model.
+     *
+     * @param rstReader
+     */
+    public RSTStreamReader(RSTReader rstReader) {
+        this.rstReader = rstReader;
+    }
+
+    /**
+     * Sets the file from which the reader actually reads from.
+     *
+     * @param rstFile
+     *            the rstFile to set
+     */
+    public void setRstFile(File rstFile) {
+        this.rstReader.setRstFile(rstFile);
+    }
+
+    /**
+     * Returns the file from which the reader actually reads from.
+     *
+     * @return the rstFile
+     */
+    public File getRstFile() {
+        return this.rstReader.getRstFile();
+    }
+
+    public void setRSTDocument(RSTDocument rstDocument) {
+        this.rstReader.setRSTDocument(rstDocument);
+    }
+
+    public RSTDocument getRSTDocument() {
+        return this.rstReader.getRSTDocument();
+    }
+
+    /**
+     * Reads the rs3 or rs4 content from the given reader into the
+     * {@link RSTDocument} set via {@link #setRSTDocument(RSTDocument)}.
+     *
+     * @param reader
+     * @throws XMLStreamException
+     *             if the content is not well-formed XML
+     */
+    public void read(Reader reader) throws XMLStreamException {
+        XMLStreamReader xmlReader = FACTORY.createXMLStreamReader(reader);
+        try {
+            while (xmlReader.hasNext()) {
+                switch (xmlReader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    this.startElement(xmlReader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    this.rstReader.endElement(xmlReader.getLocalName());
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    this.rstReader.text(xmlReader.getTextCharacters(), xmlReader.getTextStart(), xmlReader.getTextLength());
+                    break;
+                default:
+                    break;
+                }
+            }
+        } finally {
+            xmlReader.close();
+        }
+    }
+
+    /**
+     * Dispatches a start tag by its element name.
+     */
+    private void startElement(XMLStreamReader xmlReader) {
+        switch (xmlReader.getLocalName()) {
+        case RSTVocabulary.TAG_SIGNAL_TYPE:
+            this.rstReader.startSignalType(xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TYPE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_SUBTYPES));
+            break;
+        case RSTVocabulary.TAG_REL:
+            this.rstReader.startRel(xmlReader.getAttributeValue(null, RSTVocabulary.ATT_NAME), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TYPE));
+            break;
+        case RSTVocabulary.TAG_SEGMENT:
+            this.rstReader.startSegment(xmlReader.getAttributeValue(null, RSTVocabulary.ATT_ID), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TYPE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_PARENT), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_RELNAME));
+            break;
+        case RSTVocabulary.TAG_GROUP:
+            this.rstReader.startGroup(xmlReader.getAttributeValue(null, RSTVocabulary.ATT_ID), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TYPE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_PARENT), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_RELNAME));
+            break;
+        case RSTVocabulary.TAG_SIGNAL:
+            this.rstReader.startSignal(xmlReader.getAttributeValue(null, RSTVocabulary.ATT_SOURCE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TYPE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_SUBTYPE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TOKENS));
+            break;
+        case RSTVocabulary.TAG_SECONDARY_EDGE:
+            this.rstReader.startSecondaryEdge(xmlReader.getAttributeValue(null, RSTVocabulary.ATT_ID), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_SOURCE), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_TARGET), xmlReader.getAttributeValue(null, RSTVocabulary.ATT_RELNAME));
+            break;
+        default:
+            this.rstReader.startContainer(xmlReader.getLocalName());
+            break;
+        }
+    }
+}
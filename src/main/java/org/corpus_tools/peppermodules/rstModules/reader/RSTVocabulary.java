@@ -0,0 +1,51 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.reader;
+
+/**
+ * The names of the elements and attributes of rs3 and rs4 files, used by
+ * {@link RSTReader} and {@link RSTStreamReader}.
+ */
+abstract class RSTVocabulary {
+    // tags and attributes for files of type TEXT(text.dtd)
+    public static final String TAG_RST = "rst";
+    public static final String TAG_HEADER = "header";
+    public static final String TAG_ENCODING = "encoding";
+    public static final String TAG_RELATIONS = "relations";
+    public static final String TAG_REL = "rel";
+    public static final String TAG_BODY = "body";
+    public static final String TAG_SEGMENT = "segment";
+    public static final String TAG_GROUP = "group";
+    public static final String TAG_SIGNAL_TYPES = "sigtypes";
+    public static final String TAG_SIGNAL_TYPE = "sig";
+    public static final String TAG_SIGNALS = "signals";
+    public static final String TAG_SIGNAL = "signal";
+    public static final String TAG_SECONDARY_EDGES = "secedges";
+    public static final String TAG_SECONDARY_EDGE = "secedge";
+
+    public static final String ATT_NAME = "name";
+    public static final String ATT_PARENT = "parent";
+    public static final String ATT_TYPE = "type";
+    public static final String ATT_SUBTYPE = "subtype";
+    public static final String ATT_SUBTYPES = "subtypes";
+    public static final String ATT_ID = "id";
+    public static final String ATT_RELNAME = "relname";
+    public static final String ATT_SOURCE = "source";
+    public static final String ATT_TARGET = "target";
+    public static final String ATT_TOKENS = "tokens";
+}
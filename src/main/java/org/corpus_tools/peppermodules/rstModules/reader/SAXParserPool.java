@@ -0,0 +1,115 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.reader;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * A bounded, thread-safe pool of {@link SAXParser} objects shared by all
+ * documents. Looking up a {@link SAXParserFactory} and creating a parser is
+ * expensive compared to reading a small rs3 file. Since Pepper maps each
+ * document in a new thread, parsers are not bound to threads, but handed out
+ * by {@link #acquire()} and given back by {@link #release(SAXParser)}. At most
+ * {@link #MAX_IDLE_PARSERS} idle parsers are kept, further ones are dropped.
+ */
+public final class SAXParserPool {
+    /** maximal number of idle parsers kept in the pool **/
+    public static final int MAX_IDLE_PARSERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** a {@link SAXParserFactory} is not thread-safe, access is synchronized on it **/
+    private static final SAXParserFactory FACTORY = SAXParserFactory.newInstance();
+
+    private static final BlockingQueue<SAXParser> IDLE_PARSERS = new ArrayBlockingQueue<>(MAX_IDLE_PARSERS);
+
+    /** SAX property to set the {@link org.xml.sax.ext.LexicalHandler} **/
+    public static final String PROPERTY_LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+    private static final AtomicLong CREATIONS = new AtomicLong();
+    private static final AtomicLong REUSES = new AtomicLong();
+
+    private SAXParserPool() {
+    }
+
+    /**
+     * Returns an idle parser from the pool or creates a new one, if the pool is
+     * empty. The parser must be given back via {@link #release(SAXParser)}.
+     *
+     * @return a parser ready to parse
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    public static SAXParser acquire() throws ParserConfigurationException, SAXException {
+        SAXParser parser = IDLE_PARSERS.poll();
+        if (parser != null) {
+            REUSES.incrementAndGet();
+            return (parser);
+        }
+        synchronized (FACTORY) {
+            parser = FACTORY.newSAXParser();
+        }
+        CREATIONS.incrementAndGet();
+        return (parser);
+    }
+
+    /**
+     * Resets the given parser and puts it back into the pool. The handlers are
+     * removed, so that an idle parser does not keep the last document alive. A
+     * parser which can not be reset is dropped.
+     *
+     * @param parser
+     *            a parser obtained via {@link #acquire()}
+     */
+    public static void release(SAXParser parser) {
+        if (parser == null) {
+            return;
+        }
+        try {
+            XMLReader xmlReader = parser.getXMLReader();
+            xmlReader.setContentHandler(null);
+            xmlReader.setProperty(PROPERTY_LEXICAL_HANDLER, null);
+            parser.reset();
+        } catch (SAXException | UnsupportedOperationException e) {
+            return;
+        }
+        IDLE_PARSERS.offer(parser);
+    }
+
+    /**
+     * Returns the number of parsers created since the class was loaded.
+     */
+    public static long getCreations() {
+        return (CREATIONS.get());
+    }
+
+    /**
+     * Returns the number of times an idle parser was reused since the class
+     * was loaded.
+     */
+    public static long getReuses() {
+        return (REUSES.get());
+    }
+}
@@ -18,33 +18,79 @@
 package org.corpus_tools.peppermodules.rstModules.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
 
+import org.apache.commons.lang3.tuple.Pair;
+import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
 import org.corpus_tools.peppermodules.rstModules.RST2SaltMapper;
+import org.corpus_tools.peppermodules.rstModules.RSTDiscourseIndex;
+import org.corpus_tools.peppermodules.rstModules.RSTImportManifest;
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics;
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics.Counter;
+import org.corpus_tools.peppermodules.rstModules.RSTImportStatistics.Phase;
 import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
 import org.corpus_tools.salt.SALT_TYPE;
 import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.common.SDocumentGraph;
 import org.corpus_tools.salt.common.SDominanceRelation;
 import org.corpus_tools.salt.common.SStructure;
 import org.corpus_tools.salt.common.STextualDS;
 import org.corpus_tools.salt.common.SToken;
+import org.corpus_tools.salt.common.tokenizer.SimpleTokenizer;
+import org.corpus_tools.salt.core.SFeature;
+import org.corpus_tools.salt.core.SNode;
 import org.corpus_tools.salt.core.SRelation;
 import org.corpus_tools.salt.util.DataSourceSequence;
+import org.corpus_tools.salt.util.SaltUtil;
+import org.eclipse.emf.common.util.URI;
+import org.junit.Assume;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Multimap;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+
+import org.corpus_tools.peppermodules.rstModules.models.AbstractNode;
+import org.corpus_tools.peppermodules.rstModules.models.CompactRSTDocument;
 import org.corpus_tools.peppermodules.rstModules.models.Group;
 import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
+import org.corpus_tools.peppermodules.rstModules.models.SecondaryEdge;
 import org.corpus_tools.peppermodules.rstModules.models.Segment;
 
 public class RST2SaltMapperTest {
 
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
 	protected RST2SaltMapper fixture = null;
 
 	public RST2SaltMapper getFixture() {
@@ -142,6 +188,755 @@ public class RST2SaltMapperTest {
 		assertEquals(12, sDocGraph.getDominanceRelations().size());
 	}
 
+	/**
+	 * Maps a {@link RSTDocument} having only {@link Segment} nodes with the
+	 * simple tokenizer and checks that each segment dominates the tokens of
+	 * its own text.
+	 */
+	@Test
+	public void testMapSegmentsWithSimpleTokenize() {
+		Properties props = new Properties();
+		props.put(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+		getFixture().getProperties().setPropertyValues(props);
+		addSegments(getFixture().getCurrentRSTDocument());
+
+		getFixture().mapSDocument(getFixture().getCurrentRSTDocument());
+		SDocumentGraph sDocGraph = getFixture().getDocument().getDocumentGraph();
+
+		assertEquals(text1 + " " + text2, sDocGraph.getTextualDSs().get(0).getText());
+		// the simple tokenizer does not separate the question mark
+		assertEquals(11, sDocGraph.getTokens().size());
+		assertEquals(3, sDocGraph.getOverlappedTokens(this.getSStructureByName("seg1")).size());
+		assertEquals(8, sDocGraph.getOverlappedTokens(this.getSStructureByName("seg2")).size());
+		assertEquals(11, sDocGraph.getDominanceRelations().size());
+	}
+
+	/**
+	 * Maps single segments with the simple tokenizer and checks that the
+	 * tokens have the same offsets as the tokens created by Salt's
+	 * {@link SimpleTokenizer} for the same text.
+	 */
+	@Test
+	public void testSimpleTokenizeLikeSimpleTokenizer() {
+		String[] texts = { "a b.c,d", " ab  c. ", "x", "", "..." };
+		for (String segmentText : texts) {
+			RSTDocument rstDocument = new RSTDocument();
+			Segment segment = new Segment();
+			segment.setId("seg1");
+			segment.setText(segmentText);
+			rstDocument.getSegments().add(segment);
+			SDocumentGraph actual = mapWithProperties(rstDocument, RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' ','.',','");
+
+			SDocumentGraph expected = SaltFactory.createSDocumentGraph();
+			STextualDS sText = expected.createTextualDS(actual.getTextualDSs().get(0).getText());
+			SimpleTokenizer tokenizer = new SimpleTokenizer();
+			tokenizer.setDocumentGraph(expected);
+			tokenizer.tokenize(sText, 0, sText.getText().length(), ' ', '.', ',');
+
+			assertEquals(segmentText, getTokenRanges(expected), getTokenRanges(actual));
+		}
+	}
+
+	/**
+	 * Returns start and end offset of each token of the given graph.
+	 */
+	private static List<String> getTokenRanges(SDocumentGraph graph) {
+		List<String> ranges = new ArrayList<>();
+		for (SToken token : graph.getTokens()) {
+			DataSourceSequence<?> sequence = graph.getOverlappedDataSourceSequence(token, SALT_TYPE.STEXT_OVERLAPPING_RELATION).get(0);
+			ranges.add(sequence.getStart() + "-" + sequence.getEnd());
+		}
+		return (ranges);
+	}
+
+	/**
+	 * Maps a {@link RSTDocument} having only {@link Segment} nodes by
+	 * tokenizing the entire text at once and checks that the tokens are
+	 * assigned to the segments containing them.
+	 */
+	@Test
+	public void testMapSegmentsWithBatchTokenize() {
+		Properties props = new Properties();
+		props.put(RSTImporterProperties.PROP_BATCH_TOKENIZE, "yes");
+		getFixture().getProperties().setPropertyValues(props);
+		addSegments(getFixture().getCurrentRSTDocument());
+		Segment empty = new Segment();
+		empty.setId("seg3");
+		getFixture().getCurrentRSTDocument().getSegments().add(1, empty);
+
+		getFixture().mapSDocument(getFixture().getCurrentRSTDocument());
+		SDocumentGraph sDocGraph = getFixture().getDocument().getDocumentGraph();
+
+		assertEquals(text1 + "  " + text2, sDocGraph.getTextualDSs().get(0).getText());
+		assertEquals(12, sDocGraph.getTokens().size());
+		assertEquals(2, sDocGraph.getStructures().size());
+		assertEquals(3, sDocGraph.getOverlappedTokens(this.getSStructureByName("seg1")).size());
+		assertEquals(9, sDocGraph.getOverlappedTokens(this.getSStructureByName("seg2")).size());
+		assertEquals(12, sDocGraph.getDominanceRelations().size());
+	}
+
+	/**
+	 * Maps a {@link RSTDocument} having a bunch of {@link Segment} nodes and
+	 * checks that each segment dominates exactly the tokens of its own text.
+	 */
+	@Test
+	public void testMapSegmentsWithTokenize_manySegments() {
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			Segment segment = new Segment();
+			segment.setId("seg" + i);
+			segment.setText("word" + i + " text" + i);
+			getFixture().getCurrentRSTDocument().getSegments().add(segment);
+			if (i > 0) {
+				expected.append(" ");
+			}
+			expected.append(segment.getText());
+		}
+
+		getFixture().mapSDocument(getFixture().getCurrentRSTDocument());
+		SDocumentGraph sDocGraph = getFixture().getDocument().getDocumentGraph();
+
+		assertEquals(expected.toString(), sDocGraph.getTextualDSs().get(0).getText());
+		assertEquals(200, sDocGraph.getTokens().size());
+		SStructure struct = this.getSStructureByName("seg42");
+		assertNotNull(struct);
+		List<SToken> tokens = sDocGraph.getOverlappedTokens(struct);
+		assertEquals(2, tokens.size());
+		List<String> tokenTexts = new ArrayList<String>();
+		for (SToken token : tokens) {
+			tokenTexts.add(sDocGraph.getText(token));
+		}
+		assertTrue(tokenTexts.contains("word42"));
+		assertTrue(tokenTexts.contains("text42"));
+	}
+
+	/**
+	 * Maps the given segments to a new document with the given id and returns
+	 * the TEMP::uuid values of all structures and tokens in the order of the
+	 * graph.
+	 */
+	private List<Object> mapUUIDs(String documentId, boolean randomUUIDs) {
+		RSTDocument rstDocument = new RSTDocument();
+		for (int i = 0; i < 20; i++) {
+			Segment segment = new Segment();
+			segment.setId("seg" + i);
+			segment.setText("word" + i + " text" + i);
+			rstDocument.getSegments().add(segment);
+		}
+		Group group = new Group();
+		group.setId("group");
+		rstDocument.getGroups().add(group);
+
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		mapper.setDocument(SaltFactory.createSDocument());
+		mapper.getDocument().setId(documentId);
+		RSTImporterProperties props = new RSTImporterProperties();
+		Properties properties = new Properties();
+		properties.put(RSTImporterProperties.PROP_RANDOM_UUIDS, randomUUIDs ? "yes" : "no");
+		props.setPropertyValues(properties);
+		mapper.setProperties(props);
+		mapper.mapSDocument(rstDocument);
+
+		List<Object> uuids = new ArrayList<>();
+		RSTDiscourseIndex index = RSTDiscourseIndex.get(mapper.getDocument().getDocumentGraph());
+		for (int i = 0; i < index.getStructureCount(); i++) {
+			uuids.add(index.getStructureUUID(i));
+		}
+		for (int i = 0; i < index.getTokenCount(); i++) {
+			uuids.add(index.getTokenUUID(i));
+		}
+		return (uuids);
+	}
+
+	/**
+	 * Checks that the identifiers of nodes are reproducible and unique by
+	 * default, and random if requested.
+	 */
+	@Test
+	public void testDeterministicUUIDs() {
+		List<Object> uuids = mapUUIDs("salt:/corpus/doc1", false);
+		assertEquals(61, uuids.size());
+		assertEquals(uuids.size(), new HashSet<>(uuids).size());
+		assertEquals(uuids, mapUUIDs("salt:/corpus/doc1", false));
+
+		List<Object> otherDocument = mapUUIDs("salt:/corpus/doc2", false);
+		otherDocument.retainAll(uuids);
+		assertTrue(otherDocument.isEmpty());
+
+		List<Object> random = mapUUIDs("salt:/corpus/doc1", true);
+		random.retainAll(uuids);
+		assertTrue(random.isEmpty());
+	}
+
+	/**
+	 * Maps a {@link CompactRSTDocument} and the {@link RSTDocument} read from
+	 * the same file and checks that both result in the same Salt model.
+	 */
+	@Test
+	public void testMapCompactDocument() throws IOException {
+		File file = tmpFolder.newFile("compact.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		URI uri = URI.createFileURI(file.getAbsolutePath());
+
+		getFixture().mapSDocument(new RSTDocument(uri));
+		SDocumentGraph expected = getFixture().getDocument().getDocumentGraph();
+
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		mapper.setDocument(SaltFactory.createSDocument());
+		mapper.setProperties(new RSTImporterProperties());
+		mapper.mapSDocument(new CompactRSTDocument(uri, Parser.SAX));
+		SDocumentGraph actual = mapper.getDocument().getDocumentGraph();
+
+		assertEquals(expected.getTextualDSs().get(0).getText(), actual.getTextualDSs().get(0).getText());
+		assertEquals(expected.getTokens().size(), actual.getTokens().size());
+		assertEquals(expected.getStructures().size(), actual.getStructures().size());
+		assertEquals(expected.getDominanceRelations().size(), actual.getDominanceRelations().size());
+		String relName = ((RSTImporterProperties) getFixture().getProperties()).getRelationName();
+		for (SStructure struct : expected.getStructures()) {
+			SStructure other = null;
+			for (SStructure candidate : actual.getStructures()) {
+				if (candidate.getName().equals(struct.getName())) {
+					other = candidate;
+				}
+			}
+			assertNotNull(struct.getName(), other);
+			assertEquals(struct.getAnnotations().size(), other.getAnnotations().size());
+			assertEquals(expected.getOverlappedTokens(struct).size(), actual.getOverlappedTokens(other).size());
+			for (SRelation<?, ?> relation : struct.getInRelations()) {
+				if (relation.getAnnotation(relName) != null) {
+					assertEquals(relation.getAnnotation(relName).getValue(), other.getInRelations().get(0).getAnnotation(relName).getValue());
+				}
+			}
+		}
+		RSTDiscourseIndex index = RSTDiscourseIndex.get(actual);
+		assertNotNull(index);
+		assertEquals(2, index.getSignalCount());
+		assertEquals("3", index.getStructureId(index.getSignalCarrier(0)));
+		List<UUID> tokenUUIDs = index.getSignalTokenUUIDs(0);
+		assertEquals(index.getTokenUUID(8), tokenUUIDs.get(0));
+		assertEquals(index.getTokenUUID(9), tokenUUIDs.get(1));
+		assertEquals(2, index.getSignalSourceUUIDs(1).size());
+		assertEquals(1, index.getSecondaryEdgeCount());
+		assertEquals("elaboration", index.getSecondaryEdgeRelationName(0));
+		assertEquals(RSTDiscourseIndex.get(expected).getStructureCount(), index.getStructureCount());
+		assertEquals(RSTDiscourseIndex.get(expected).getSignalCount(), index.getSignalCount());
+	}
+
+	/**
+	 * Checks that the former TEMP annotations are created on request, contain
+	 * the same identifiers as the {@link RSTDiscourseIndex} and are not
+	 * created by default.
+	 */
+	@Test
+	public void testTempAnnotations() throws IOException {
+		File file = tmpFolder.newFile("temp.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		RSTDocument rstDocument = new RSTDocument(URI.createFileURI(file.getAbsolutePath()));
+
+		SDocumentGraph graph = mapWithProperties(rstDocument, RSTImporterProperties.PROP_TEMP_ANNOTATIONS, "yes");
+		RSTDiscourseIndex index = RSTDiscourseIndex.get(graph);
+		for (int i = 0; i < index.getTokenCount(); i++) {
+			assertEquals(index.getTokenUUID(i), graph.getTokens().get(i).getAnnotation("TEMP", "uuid").getValue());
+		}
+		for (int i = 0; i < index.getStructureCount(); i++) {
+			assertEquals(index.getStructureUUID(i), graph.getStructures().get(i).getAnnotation("TEMP", "uuid").getValue());
+		}
+
+		Map<?, ?> rstId2UUID = (Map<?, ?>) graph.getNodes().get(0).getAnnotation("TEMP", "rstid2uuid").getValue();
+		for (Object rstId : rstId2UUID.keySet()) {
+			assertEquals(rstId2UUID.get(rstId), index.getUUID((String) rstId));
+		}
+		SStructure source = null;
+		for (SStructure struct : graph.getStructures()) {
+			if ("3".equals(struct.getName())) {
+				source = struct;
+			}
+		}
+		List<?> signals = (List<?>) source.getAnnotation("TEMP", "signals").getValue();
+		assertEquals(2, signals.size());
+		assertEquals(index.getSignalTokenUUIDs(0), ((Map<?, ?>) signals.get(0)).get("signal:tokens"));
+		assertEquals(index.getSignalSourceUUIDs(1), ((Map<?, ?>) signals.get(1)).get("signal:source"));
+		List<?> secedges = (List<?>) source.getAnnotation("TEMP", "secedges").getValue();
+		assertEquals(1, secedges.size());
+		assertEquals(index.getSecondaryEdgeTargetUUID(0), ((Map<?, ?>) secedges.get(0)).get("edgeTarget"));
+
+		getFixture().mapSDocument(rstDocument);
+		for (SNode node : getFixture().getDocument().getDocumentGraph().getNodes()) {
+			assertNull(node.getAnnotation("TEMP", "uuid"));
+			assertNull(node.getAnnotation("TEMP", "rstid2uuid"));
+			assertNull(node.getAnnotation("TEMP", "signals"));
+			assertNull(node.getAnnotation("TEMP", "secedges"));
+		}
+		assertEquals(index.getSignalCount(), RSTDiscourseIndex.get(getFixture().getDocument().getDocumentGraph()).getSignalCount());
+	}
+
+	/**
+	 * Checks that the features of the {@link RSTDiscourseIndex} only contain
+	 * arrays of primitives and strings and that the index is the same after
+	 * the graph was stored as SaltXML and loaded again.
+	 */
+	@Test
+	public void testDiscourseIndexInSaltXML() throws IOException {
+		File file = tmpFolder.newFile("index.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		getFixture().getDocument().setId("salt:/corpus/doc");
+		getFixture().mapSDocument(new RSTDocument(URI.createFileURI(file.getAbsolutePath())));
+		SDocumentGraph graph = getFixture().getDocument().getDocumentGraph();
+		for (SFeature feature : graph.getFeatures()) {
+			if (RSTDiscourseIndex.NAMESPACE.equals(feature.getNamespace())) {
+				Class<?> type = feature.getValue().getClass();
+				assertTrue(feature.getName(), type.isArray());
+				assertTrue(feature.getName(), type.getComponentType().isPrimitive() || String.class.equals(type.getComponentType()));
+			}
+		}
+
+		URI location = URI.createFileURI(new File(tmpFolder.getRoot(), "doc.salt").getAbsolutePath());
+		SaltUtil.saveDocumentGraph(graph, location);
+		RSTDiscourseIndex expected = RSTDiscourseIndex.get(graph);
+		RSTDiscourseIndex index = RSTDiscourseIndex.get(SaltUtil.loadDocumentGraph(location));
+		assertEquals(expected.getStructureCount(), index.getStructureCount());
+		for (int i = 0; i < expected.getStructureCount(); i++) {
+			assertEquals(expected.getStructureId(i), index.getStructureId(i));
+			assertEquals(expected.getStructureUUID(i), index.getStructureUUID(i));
+		}
+		assertEquals(expected.getTokenCount(), index.getTokenCount());
+		assertEquals(expected.getTokenUUID(3), index.getTokenUUID(3));
+		assertEquals(2, index.getSignalCount());
+		for (int i = 0; i < expected.getSignalCount(); i++) {
+			assertEquals(expected.getSignalCarrier(i), index.getSignalCarrier(i));
+			assertEquals(expected.getSignalType(i), index.getSignalType(i));
+			assertEquals(expected.getSignalSubtype(i), index.getSignalSubtype(i));
+			assertEquals(expected.getSignalSourceUUIDs(i), index.getSignalSourceUUIDs(i));
+			assertEquals(expected.getSignalTokenUUIDs(i), index.getSignalTokenUUIDs(i));
+		}
+		assertEquals(1, index.getSecondaryEdgeCount());
+		assertEquals(expected.getSecondaryEdgeCarrier(0), index.getSecondaryEdgeCarrier(0));
+		assertEquals(expected.getSecondaryEdgeSourceUUID(0), index.getSecondaryEdgeSourceUUID(0));
+		assertEquals(expected.getSecondaryEdgeTargetUUID(0), index.getSecondaryEdgeTargetUUID(0));
+		assertEquals("elaboration", index.getSecondaryEdgeRelationName(0));
+		assertEquals(expected.getUUID("3"), index.getUUID("3"));
+	}
+
+	/**
+	 * Maps the same file with the object model and the compact model into one
+	 * {@link RSTImportStatistics} and checks the aggregated values.
+	 */
+	@Test
+	public void testStatistics() throws IOException {
+		File file = tmpFolder.newFile("statistics.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		RSTImportStatistics statistics = new RSTImportStatistics();
+		for (String compactModel : new String[] { "no", "yes" }) {
+			RSTImporterProperties props = new RSTImporterProperties();
+			Properties properties = new Properties();
+			properties.put(RSTImporterProperties.PROP_COMPACT_MODEL, compactModel);
+			props.setPropertyValues(properties);
+			RST2SaltMapper mapper = new RST2SaltMapper();
+			mapper.setDocument(SaltFactory.createSDocument());
+			mapper.setResourceURI(URI.createFileURI(file.getAbsolutePath()));
+			mapper.setProperties(props);
+			mapper.setStatistics(statistics);
+			assertEquals(DOCUMENT_STATUS.COMPLETED, mapper.mapSDocument());
+		}
+
+		assertEquals(2, statistics.getCount(Counter.DOCUMENTS));
+		assertEquals(2 * file.length(), statistics.getCount(Counter.BYTES));
+		assertEquals(6, statistics.getCount(Counter.SEGMENTS));
+		assertEquals(2, statistics.getCount(Counter.GROUPS));
+		assertEquals(6, statistics.getCount(Counter.RELATIONS));
+		assertEquals(4, statistics.getCount(Counter.SIGNALS));
+		assertEquals(2, statistics.getCount(Counter.SECONDARY_EDGES));
+		assertTrue(statistics.getCount(Counter.TOKENS) > 0);
+		assertTrue(statistics.getNanos(Phase.PARSE) > 0);
+		assertTrue(statistics.getNanos(Phase.TOKENIZE) > 0);
+
+		File json = tmpFolder.newFile("statistics.json");
+		statistics.writeJSON(json);
+		String content = new String(Files.readAllBytes(json.toPath()), "UTF-8");
+		assertTrue(content, content.contains("\"secondaryEdges\": 2"));
+		assertTrue(content, content.contains("\"parse\": "));
+	}
+
+	/**
+	 * Maps a document with the given properties and manifest as an import
+	 * would and saves the manifest afterwards.
+	 */
+	private DOCUMENT_STATUS mapIncrementally(File file, File directory, RSTImportStatistics statistics, Properties properties) throws IOException {
+		RSTImporterProperties props = new RSTImporterProperties();
+		props.setPropertyValues(properties);
+		RSTImportManifest manifest = new RSTImportManifest(directory);
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		SDocument document = SaltFactory.createSDocument();
+		document.setId("salt:/corpus/doc");
+		mapper.setDocument(document);
+		mapper.setResourceURI(URI.createFileURI(file.getAbsolutePath()));
+		mapper.setProperties(props);
+		mapper.setStatistics(statistics);
+		mapper.setManifest(manifest);
+		DOCUMENT_STATUS status = mapper.mapSDocument();
+		if (DOCUMENT_STATUS.COMPLETED.equals(status)) {
+			RSTDiscourseIndex index = RSTDiscourseIndex.get(document.getDocumentGraph());
+			assertNotNull(index);
+			assertEquals(4, index.getStructureCount());
+			assertEquals(2, index.getSignalCount());
+			assertEquals(4, document.getDocumentGraph().getStructures().size());
+		}
+		manifest.save();
+		return (status);
+	}
+
+	/**
+	 * Imports a document several times with a manifest and checks that it is
+	 * only mapped again, when the file or the properties have changed.
+	 */
+	@Test
+	public void testIncrementalImport() throws IOException {
+		File file = tmpFolder.newFile("incremental.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		File directory = tmpFolder.newFolder("incremental");
+		RSTImportStatistics statistics = new RSTImportStatistics();
+		Properties properties = new Properties();
+
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapIncrementally(file, directory, statistics, properties));
+		assertEquals(1, statistics.getCount(Counter.DOCUMENTS));
+		assertTrue(new File(directory, RSTImportManifest.MANIFEST_FILE).isFile());
+
+		// the graph is loaded
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapIncrementally(file, directory, statistics, properties));
+		assertEquals(1, statistics.getCount(Counter.DOCUMENTS));
+		assertEquals(1, statistics.getCount(Counter.UNCHANGED_DOCUMENTS));
+
+		// the document is removed from the import
+		properties.put(RSTImporterProperties.PROP_SKIP_UNCHANGED, "yes");
+		assertEquals(DOCUMENT_STATUS.DELETED, mapIncrementally(file, directory, statistics, properties));
+		assertEquals(1, statistics.getCount(Counter.DOCUMENTS));
+		assertEquals(2, statistics.getCount(Counter.UNCHANGED_DOCUMENTS));
+		properties.remove(RSTImporterProperties.PROP_SKIP_UNCHANGED);
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.replace("Harvard", "Oxford").getBytes("UTF-8"));
+		}
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapIncrementally(file, directory, statistics, properties));
+		assertEquals(2, statistics.getCount(Counter.DOCUMENTS));
+
+		properties.put(RSTImporterProperties.PROP_SEGMENT_SEPARATOR, "_");
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapIncrementally(file, directory, statistics, properties));
+		assertEquals(3, statistics.getCount(Counter.DOCUMENTS));
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapIncrementally(file, directory, statistics, properties));
+		assertEquals(3, statistics.getCount(Counter.DOCUMENTS));
+		assertEquals(3, statistics.getCount(Counter.UNCHANGED_DOCUMENTS));
+
+		// the manifest and the graph of the last version are kept
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	/**
+	 * Checks that the properties, which do not change the mapped graph, do
+	 * not change the hash of the settings in the manifest, while the others
+	 * do.
+	 */
+	@Test
+	public void testSettingsHashOfOutputNeutralProperties() {
+		String hash = RSTImportManifest.hashSettings(new RSTImporterProperties().createSettings());
+		String[][] neutral = { { RSTImporterProperties.PROP_PARALLEL_MAPPING, "yes" }, { RSTImporterProperties.PROP_PARSER, "stax" }, { RSTImporterProperties.PROP_COMPACT_MODEL, "yes" } };
+		for (String[] keyValue : neutral) {
+			RSTImporterProperties props = new RSTImporterProperties();
+			Properties properties = new Properties();
+			properties.put(keyValue[0], keyValue[1]);
+			props.setPropertyValues(properties);
+			assertEquals(keyValue[0], hash, RSTImportManifest.hashSettings(props.createSettings()));
+		}
+		String[][] changing = { { RSTImporterProperties.PROP_SEGMENT_SEPARATOR, "_" }, { RSTImporterProperties.PROP_TEMP_ANNOTATIONS, "yes" }, { RSTImporterProperties.PROP_TOKENIZE, "no" } };
+		for (String[] keyValue : changing) {
+			RSTImporterProperties props = new RSTImporterProperties();
+			Properties properties = new Properties();
+			properties.put(keyValue[0], keyValue[1]);
+			props.setPropertyValues(properties);
+			assertFalse(keyValue[0], hash.equals(RSTImportManifest.hashSettings(props.createSettings())));
+		}
+	}
+
+	/**
+	 * Checks that a graph stored by the manifest can be loaded by a class
+	 * loader, which only sees Salt and its dependencies but not this module,
+	 * like the bundle of Salt in Pepper's OSGi container.
+	 */
+	@Test
+	public void testManifestGraphWithoutModuleClasses() throws Exception {
+		File file = tmpFolder.newFile("isolated.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		File directory = tmpFolder.newFolder("isolated");
+		Properties properties = new Properties();
+		properties.put(RSTImporterProperties.PROP_TEMP_ANNOTATIONS, "yes");
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapIncrementally(file, directory, new RSTImportStatistics(), properties));
+		File graphFile = null;
+		for (File candidate : directory.listFiles()) {
+			if (candidate.getName().endsWith("." + SaltUtil.FILE_ENDING_SALT_XML)) {
+				graphFile = candidate;
+			}
+		}
+		assertNotNull(graphFile);
+
+		Class<?>[] saltClasses = { SaltUtil.class, URI.class, Pair.class, LoggerFactory.class, Multimap.class };
+		URL[] urls = new java.net.URL[saltClasses.length];
+		for (int i = 0; i < saltClasses.length; i++) {
+			urls[i] = saltClasses[i].getProtectionDomain().getCodeSource().getLocation();
+		}
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		try (URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent())) {
+			thread.setContextClassLoader(loader);
+			Class<?> uriClass = loader.loadClass(URI.class.getName());
+			Object uri = uriClass.getMethod("createFileURI", String.class).invoke(null, graphFile.getAbsolutePath());
+			Object graph = loader.loadClass(SaltUtil.class.getName()).getMethod("loadDocumentGraph", uriClass).invoke(null, uri);
+			Object feature = graph.getClass().getMethod("getFeature", String.class, String.class).invoke(graph, RSTDiscourseIndex.NAMESPACE, RSTDiscourseIndex.FEATURE_STRUCTURE_IDS);
+			Object structureIds = feature.getClass().getMethod("getValue").invoke(feature);
+			assertEquals(4, ((String[]) structureIds).length);
+			List<?> nodes = (List<?>) graph.getClass().getMethod("getNodes").invoke(graph);
+			Object annotation = nodes.get(0).getClass().getMethod("getAnnotation", String.class).invoke(nodes.get(0), "TEMP::rstid2uuid");
+			assertTrue(annotation.getClass().getMethod("getValue").invoke(annotation) instanceof Map);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
+	/**
+	 * Checks that a negative token id of a signal is rejected with a
+	 * {@link PepperModuleException} by the object and the compact model.
+	 */
+	@Test
+	public void testNegativeSignalTokenId() throws IOException {
+		File file = tmpFolder.newFile("negative.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.replace("tokens=\"9,10\"", "tokens=\"9,-10\"").getBytes("UTF-8"));
+		}
+		for (String compactModel : new String[] { "no", "yes" }) {
+			Properties properties = new Properties();
+			properties.put(RSTImporterProperties.PROP_COMPACT_MODEL, compactModel);
+			RSTImporterProperties props = new RSTImporterProperties();
+			props.setPropertyValues(properties);
+			RST2SaltMapper mapper = new RST2SaltMapper();
+			mapper.setDocument(SaltFactory.createSDocument());
+			mapper.setProperties(props);
+			mapper.setResourceURI(URI.createFileURI(file.getAbsolutePath()));
+			try {
+				mapper.mapSDocument();
+				fail("A negative token id must be rejected with compactModel=" + compactModel + ".");
+			} catch (PepperModuleException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("negative"));
+			}
+		}
+	}
+
+	/**
+	 * Maps secondary edges in parallel, one of which refers to a node not in
+	 * the document, and checks that the exception of the mapper is thrown
+	 * and not a copy or wrapper of it.
+	 */
+	@Test
+	public void testParallelMappingException() {
+		RSTDocument rstDocument = new RSTDocument();
+		for (int i = 0; i < 100; i++) {
+			Segment segment = new Segment();
+			segment.setId("seg" + i);
+			segment.setText("text" + i);
+			rstDocument.getSegments().add(segment);
+		}
+		Segment missing = new Segment();
+		missing.setId("missing");
+		for (int i = 0; i < 100; i++) {
+			SecondaryEdge edge = new SecondaryEdge();
+			AbstractNode source = (i == 50) ? missing : rstDocument.getSegments().get(i);
+			AbstractNode target = rstDocument.getSegments().get((i + 1) % 100);
+			edge.setId(source.getId() + "-" + target.getId());
+			edge.setSource(source);
+			edge.setTarget(target);
+			rstDocument.getSecondaryEdges().add(edge);
+		}
+		try {
+			mapWithProperties(rstDocument, RSTImporterProperties.PROP_TOKENIZE, "no", RSTImporterProperties.PROP_PARALLEL_MAPPING, "yes");
+			fail("A secondary edge to a missing node must not be mapped.");
+		} catch (PepperModuleException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("non existing node with id 'missing'"));
+			assertFalse(e.getCause() instanceof PepperModuleException);
+		}
+	}
+
+	/**
+	 * Checks that a segment without text is mapped like a segment with an
+	 * empty text by the object and the compact model, with and without
+	 * tokenization.
+	 */
+	@Test
+	public void testMapSegmentWithoutText() throws IOException {
+		File file = tmpFolder.newFile("notext.rs3");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(("<rst><header><relations/></header><body>" + "<segment id=\"1\">a b</segment><segment id=\"2\"/><segment id=\"3\">c</segment>" + "</body></rst>").getBytes("UTF-8"));
+		}
+		URI uri = URI.createFileURI(file.getAbsolutePath());
+		RSTDocument rstDocument = new RSTDocument(uri);
+		CompactRSTDocument compact = new CompactRSTDocument(uri, Parser.SAX);
+		assertNull(rstDocument.getSegments().get(1).getText());
+		assertNull(compact.getSegmentText(1));
+
+		for (String tokenize : new String[] { "yes", "no" }) {
+			SDocumentGraph expected = mapWithProperties(rstDocument, RSTImporterProperties.PROP_TOKENIZE, tokenize, RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+			SDocumentGraph actual = mapWithProperties(compact, RSTImporterProperties.PROP_TOKENIZE, tokenize, RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+			assertEquals(tokenize, "a b  c", expected.getTextualDSs().get(0).getText().trim());
+			assertEquals(tokenize, expected.getTextualDSs().get(0).getText(), actual.getTextualDSs().get(0).getText());
+			assertEquals(tokenize, expected.getTokens().size(), actual.getTokens().size());
+			assertEquals(tokenize, expected.getStructures().size(), actual.getStructures().size());
+		}
+	}
+
+	/**
+	 * Maps the given {@link RSTDocument} or {@link CompactRSTDocument} with
+	 * the given property key value pairs.
+	 */
+	private SDocumentGraph mapWithProperties(Object rstDocument, String... keyValues) {
+		Properties properties = new Properties();
+		for (int i = 0; i + 1 < keyValues.length; i += 2) {
+			properties.put(keyValues[i], keyValues[i + 1]);
+		}
+		RSTImporterProperties props = new RSTImporterProperties();
+		props.setPropertyValues(properties);
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		SDocument document = SaltFactory.createSDocument();
+		document.setId("salt:/corpus/doc");
+		mapper.setDocument(document);
+		mapper.setProperties(props);
+		if (rstDocument instanceof CompactRSTDocument) {
+			mapper.mapSDocument((CompactRSTDocument) rstDocument);
+		} else {
+			mapper.mapSDocument((RSTDocument) rstDocument);
+		}
+		return (document.getDocumentGraph());
+	}
+
+	/**
+	 * Maps a generated document, which is large enough to be split, with and
+	 * without {@link RSTImporterProperties#PROP_PARALLEL_MAPPING} and checks
+	 * that both graphs are the same, for the object and the compact model.
+	 */
+	@Test
+	public void testParallelMapping() throws IOException {
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		generator.setSegments(1000);
+		// binary trees, so that there are about as many groups as segments,
+		// which are split into many tasks
+		generator.setDepth(10);
+		generator.setSecondaryEdgesPerSegment(0.5);
+		File file = tmpFolder.newFile("parallel.rs4");
+		generator.write(file);
+		URI uri = URI.createFileURI(file.getAbsolutePath());
+
+		for (Object rstDocument : new Object[] { new RSTDocument(uri), new CompactRSTDocument(uri, Parser.SAX) }) {
+			SDocumentGraph expected = mapWithProperties(rstDocument, RSTImporterProperties.PROP_TEMP_ANNOTATIONS, "yes", RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+			SDocumentGraph actual = mapWithProperties(rstDocument, RSTImporterProperties.PROP_TEMP_ANNOTATIONS, "yes", RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '", RSTImporterProperties.PROP_PARALLEL_MAPPING, "yes");
+
+			assertEquals(expected.getTokens().size(), actual.getTokens().size());
+			assertEquals(expected.getStructures().size(), actual.getStructures().size());
+			// a binary tree over n segments has at least n - 1 groups
+			assertTrue(RSTDiscourseIndex.get(expected).getStructureCount() >= 1000 + 999);
+			for (int i = 0; i < expected.getStructures().size(); i++) {
+				SStructure struct = expected.getStructures().get(i);
+				SStructure other = actual.getStructures().get(i);
+				assertEquals(struct.getName(), other.getName());
+				assertEquals(struct.getAnnotations().size(), other.getAnnotations().size());
+				for (String key : new String[] { "uuid", "signals", "secedges" }) {
+					if (struct.getAnnotation("TEMP", key) == null) {
+						assertNull(other.getAnnotation("TEMP", key));
+					} else {
+						assertEquals(struct.getAnnotation("TEMP", key).getValue(), other.getAnnotation("TEMP", key).getValue());
+					}
+				}
+			}
+			assertEquals(expected.getDominanceRelations().size(), actual.getDominanceRelations().size());
+			String relName = new RSTImporterProperties().getRelationName();
+			for (int i = 0; i < expected.getDominanceRelations().size(); i++) {
+				SDominanceRelation relation = expected.getDominanceRelations().get(i);
+				SDominanceRelation other = actual.getDominanceRelations().get(i);
+				assertEquals(relation.getSource().getName(), other.getSource().getName());
+				assertEquals(relation.getTarget().getName(), other.getTarget().getName());
+				assertEquals(relation.getType(), other.getType());
+				if (relation.getAnnotation(relName) != null) {
+					assertEquals(relation.getAnnotation(relName).getValue(), other.getAnnotation(relName).getValue());
+				}
+			}
+
+			RSTDiscourseIndex expectedIndex = RSTDiscourseIndex.get(expected);
+			RSTDiscourseIndex index = RSTDiscourseIndex.get(actual);
+			assertTrue(index.getSignalCount() > 256);
+			assertTrue(index.getSecondaryEdgeCount() > 256);
+			assertEquals(expectedIndex.getStructureCount(), index.getStructureCount());
+			assertEquals(expectedIndex.getSignalCount(), index.getSignalCount());
+			for (int i = 0; i < index.getSignalCount(); i++) {
+				assertEquals(expectedIndex.getSignalCarrier(i), index.getSignalCarrier(i));
+				assertEquals(expectedIndex.getSignalTokenUUIDs(i), index.getSignalTokenUUIDs(i));
+				assertEquals(expectedIndex.getSignalSourceUUIDs(i), index.getSignalSourceUUIDs(i));
+			}
+			assertEquals(expectedIndex.getSecondaryEdgeCount(), index.getSecondaryEdgeCount());
+			for (int i = 0; i < index.getSecondaryEdgeCount(); i++) {
+				assertEquals(expectedIndex.getSecondaryEdgeTargetUUID(i), index.getSecondaryEdgeTargetUUID(i));
+				assertEquals(expectedIndex.getSecondaryEdgeRelationName(i), index.getSecondaryEdgeRelationName(i));
+			}
+		}
+	}
+
+	/**
+	 * Maps a file during a flight recording and checks that the events of
+	 * the import were recorded. Skipped on JVMs without the flight recorder.
+	 */
+	@Test
+	public void testFlightRecorderEvents() throws Exception {
+		try {
+			Class.forName("jdk.jfr.Recording");
+		} catch (ClassNotFoundException e) {
+			Assume.assumeNoException(e);
+		}
+		File file = tmpFolder.newFile("events.rs4");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(RSTDocumentTest.RS4.getBytes("UTF-8"));
+		}
+		File dump = new File(tmpFolder.getRoot(), "events.jfr");
+		Map<String, RecordedEvent> events = new HashMap<>();
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] { "Parse", "Tokenize", "MapRelations", "MarkSignals" }) {
+				recording.enable("org.corpus_tools.rst." + name);
+			}
+			recording.start();
+			getFixture().setResourceURI(URI.createFileURI(file.getAbsolutePath()));
+			getFixture().getDocument().setId("eventDocument");
+			assertEquals(DOCUMENT_STATUS.COMPLETED, getFixture().mapSDocument());
+			recording.stop();
+			recording.dump(dump.toPath());
+		}
+		for (RecordedEvent event : RecordingFile.readAllEvents(dump.toPath())) {
+			events.put(event.getEventType().getName(), event);
+		}
+		RecordedEvent parse = events.get("org.corpus_tools.rst.Parse");
+		assertNotNull(parse);
+		assertEquals("eventDocument", parse.getString("document"));
+		assertEquals(file.length(), parse.getLong("bytes"));
+		assertEquals(3, parse.getInt("segments"));
+		assertNotNull(events.get("org.corpus_tools.rst.Tokenize"));
+		assertEquals(3, events.get("org.corpus_tools.rst.MapRelations").getInt("relations"));
+		assertEquals(2, events.get("org.corpus_tools.rst.MarkSignals").getInt("signals"));
+		assertEquals(1, events.get("org.corpus_tools.rst.MarkSignals").getInt("secondaryEdges"));
+	}
+
 	/**
 	 * Maps a {@link RSTDocument} having only {@link Segment} nodes.
 	 */
@@ -0,0 +1,361 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.tests;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.corpus_tools.peppermodules.rstModules.RSTImporter;
+
+/**
+ * Generates rs3 and rs4 documents of a configurable size for load tests and
+ * benchmarks. The output only depends on the settings and the seed, the same
+ * settings always produce the same document.
+ * <br/>
+ * The segments are the leaves of a balanced tree of groups. The children of a
+ * multinuc group are attached to it with a multinuc relation. The first child
+ * of a span group is attached to it with the relation 'span', all further
+ * children are satellites attached to the first child with a rst relation.
+ * Signals are attached to the relations, secondary edges (rs4 only) connect
+ * segments to preceding ones. Each segment consists of words separated by a
+ * blank, so that the token ids of signals match the tokens of the simple and
+ * the default tokenizer.
+ * <br/>
+ * All elements are computed from their position and written one after the
+ * other, so that the memory used does not depend on the size of the document.
+ * To write a corpus of several GB, call for instance
+ *
+ * <pre>
+ * java -cp ... org.corpus_tools.peppermodules.rstModules.tests.RSTCorpusGenerator corpusDir 1000 1000000
+ * </pre>
+ */
+public class RSTCorpusGenerator {
+	private static final String[] MULTINUC_RELATIONS = { "joint", "contrast", "sequence" };
+	private static final String[] RST_RELATIONS = { "elaboration", "cause", "background", "concession" };
+	private static final String[][] SIGNAL_TYPES = { { "lexical", "indicative_word", "alternate_expression" }, { "semantic", "synonymy", "meronymy" }, { "syntactic", "relative_clause" } };
+	private static final String[] WORDS = { "the", "school", "went", "and", "both", "attended", "good", "colleges", "to", "john", "jim", "yale", "harvard", "because", "later" };
+
+	private int segments = 100;
+
+	/** number of segments, the leaves of the tree **/
+	public int getSegments() {
+		return segments;
+	}
+
+	public void setSegments(int segments) {
+		this.segments = segments;
+	}
+
+	private int depth = 4;
+
+	/** maximal number of group levels above the segments **/
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	private int wordsPerSegment = 8;
+
+	public int getWordsPerSegment() {
+		return wordsPerSegment;
+	}
+
+	public void setWordsPerSegment(int wordsPerSegment) {
+		this.wordsPerSegment = wordsPerSegment;
+	}
+
+	private double multinucRatio = 0.5;
+
+	/**
+	 * share of the groups of type multinuc, all other groups are of type span
+	 **/
+	public double getMultinucRatio() {
+		return multinucRatio;
+	}
+
+	public void setMultinucRatio(double multinucRatio) {
+		this.multinucRatio = multinucRatio;
+	}
+
+	private double signalsPerRelation = 1;
+
+	/**
+	 * average number of signals of each relation and secondary edge, except
+	 * of relations named 'span'
+	 **/
+	public double getSignalsPerRelation() {
+		return signalsPerRelation;
+	}
+
+	public void setSignalsPerRelation(double signalsPerRelation) {
+		this.signalsPerRelation = signalsPerRelation;
+	}
+
+	private double secondaryEdgesPerSegment = 0.1;
+
+	/** average number of secondary edges of each segment in rs4 files **/
+	public double getSecondaryEdgesPerSegment() {
+		return secondaryEdgesPerSegment;
+	}
+
+	public void setSecondaryEdgesPerSegment(double secondaryEdgesPerSegment) {
+		this.secondaryEdgesPerSegment = secondaryEdgesPerSegment;
+	}
+
+	private long seed = 0;
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/** number of children of each group **/
+	private int getFanOut() {
+		return (Math.max(2, (int) Math.ceil(Math.pow(getSegments(), 1.0 / Math.max(1, getDepth())))));
+	}
+
+	/**
+	 * Returns a number in [0, 1) which only depends on the seed and the given
+	 * values.
+	 */
+	private double random(long a, long b) {
+		long x = getSeed() * 0x9E3779B97F4A7C15L + a * 0xC2B2AE3D27D4EB4FL + b;
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		x = x ^ (x >>> 31);
+		return ((x >>> 11) * 0x1.0p-53);
+	}
+
+	private String pick(String[] values, long a, long b) {
+		return (values[(int) (random(a, b) * values.length)]);
+	}
+
+	/**
+	 * Returns the number of elements with the given ordinal, when there are
+	 * on average the given number of elements per ordinal.
+	 */
+	private static int count(long ordinal, double perOrdinal) {
+		return ((int) (Math.floor((ordinal + 1) * perOrdinal) - Math.floor(ordinal * perOrdinal)));
+	}
+
+	private boolean isMultinuc(int groupId) {
+		return (random(groupId, 1) < getMultinucRatio());
+	}
+
+	/**
+	 * Writes a document to the given file, as rs4 if the file ends with
+	 * '.rs4' and as rs3 otherwise.
+	 */
+	public void write(File file) throws IOException {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16)) {
+			write(writer, file.getName().endsWith("." + RSTImporter.FILE_ENDING_RS4));
+		}
+	}
+
+	/**
+	 * Writes the given number of documents to the given directory, the seed
+	 * of each document is the seed of this generator plus the number of the
+	 * document.
+	 */
+	public void writeCorpus(File directory, int documents, String fileEnding) throws IOException {
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Cannot create directory '" + directory + "'. ");
+		}
+		long corpusSeed = getSeed();
+		try {
+			for (int i = 0; i < documents; i++) {
+				setSeed(corpusSeed + i);
+				write(new File(directory, "doc" + i + "." + fileEnding));
+			}
+		} finally {
+			setSeed(corpusSeed);
+		}
+	}
+
+	/**
+	 * Writes a document to the given writer.
+	 *
+	 * @param writer
+	 *            the writer, which is not closed
+	 * @param rs4
+	 *            whether to write secondary edges
+	 */
+	public void write(Writer writer, boolean rs4) throws IOException {
+		writer.write("<?xml version='1.0' encoding='utf-8'?>\n<rst>\n  <header>\n    <relations>\n");
+		for (String relName : MULTINUC_RELATIONS) {
+			writer.write("      <rel name=\"" + relName + "\" type=\"multinuc\"/>\n");
+		}
+		for (String relName : RST_RELATIONS) {
+			writer.write("      <rel name=\"" + relName + "\" type=\"rst\"/>\n");
+		}
+		writer.write("    </relations>\n    <sigtypes>\n");
+		for (String[] signalType : SIGNAL_TYPES) {
+			writer.write("      <sig type=\"" + signalType[0] + "\" subtypes=\"");
+			for (int i = 1; i < signalType.length; i++) {
+				writer.write((i > 1 ? ";" : "") + signalType[i]);
+			}
+			writer.write("\"/>\n");
+		}
+		writer.write("    </sigtypes>\n  </header>\n  <body>\n");
+
+		int fanOut = getFanOut();
+		// first id and number of nodes per level, level 0 are the segments
+		int levels = 1;
+		int[] levelStarts = new int[getDepth() + 2];
+		int[] levelSizes = new int[getDepth() + 2];
+		levelStarts[0] = 1;
+		levelSizes[0] = getSegments();
+		while (levels <= getDepth() && levelSizes[levels - 1] > 1) {
+			levelStarts[levels] = levelStarts[levels - 1] + levelSizes[levels - 1];
+			levelSizes[levels] = (levelSizes[levels - 1] + fanOut - 1) / fanOut;
+			levels++;
+		}
+
+		StringBuilder element = new StringBuilder();
+		for (int level = 0; level < levels; level++) {
+			for (int i = 0; i < levelSizes[level]; i++) {
+				element.setLength(0);
+				int id = levelStarts[level] + i;
+				if (level == 0) {
+					element.append("    <segment id=\"").append(id).append('"');
+				} else {
+					element.append("    <group id=\"").append(id).append("\" type=\"").append(isMultinuc(id) ? "multinuc" : "span").append('"');
+				}
+				if (level + 1 < levels) {
+					int groupId = levelStarts[level + 1] + i / fanOut;
+					element.append(" parent=\"").append(getParent(groupId, levelStarts[level], i, fanOut)).append("\" relname=\"").append(getRelName(groupId, id, i, fanOut)).append('"');
+				}
+				if (level == 0) {
+					element.append('>');
+					for (int j = 0; j < getWordsPerSegment(); j++) {
+						element.append(j > 0 ? " " : "").append(pick(WORDS, id, j + 2));
+					}
+					element.append("</segment>\n");
+				} else {
+					element.append("/>\n");
+				}
+				writer.append(element);
+			}
+		}
+
+		if (rs4) {
+			writer.write("    <secedges>\n");
+			for (int id = 2; id <= getSegments(); id++) {
+				for (int j = 0, n = Math.min(count(id, getSecondaryEdgesPerSegment()), id - 1); j < n; j++) {
+					int target = id - 1 - j;
+					writer.write("      <secedge id=\"" + id + "-" + target + "\" source=\"" + id + "\" target=\"" + target + "\" relname=\"" + pick(RST_RELATIONS, id, -j - 1) + "\"/>\n");
+				}
+			}
+			writer.write("    </secedges>\n");
+		}
+
+		writer.write("    <signals>\n");
+		long relation = 0;
+		for (int level = 0; level + 1 < levels; level++) {
+			for (int i = 0; i < levelSizes[level]; i++) {
+				int id = levelStarts[level] + i;
+				int groupId = levelStarts[level + 1] + i / fanOut;
+				if (!isMultinuc(groupId) && i % fanOut == 0) {
+					// relation 'span'
+					continue;
+				}
+				// the first segment below the node
+				long segment = i;
+				for (int l = 0; l < level; l++) {
+					segment *= fanOut;
+				}
+				writeSignals(writer, String.valueOf(id), (int) Math.min(segment, getSegments() - 1) + 1, count(relation++, getSignalsPerRelation()));
+			}
+		}
+		if (rs4) {
+			for (int id = 2; id <= getSegments(); id++) {
+				for (int j = 0, n = Math.min(count(id, getSecondaryEdgesPerSegment()), id - 1); j < n; j++) {
+					writeSignals(writer, id + "-" + (id - 1 - j), id, count(relation++, getSignalsPerRelation()));
+				}
+			}
+		}
+		writer.write("    </signals>\n  </body>\n</rst>\n");
+	}
+
+	private int getParent(int groupId, int levelStart, int i, int fanOut) {
+		if (isMultinuc(groupId) || i % fanOut == 0) {
+			return (groupId);
+		}
+		// satellite of the first child of the span group
+		return (levelStart + (i / fanOut) * fanOut);
+	}
+
+	private String getRelName(int groupId, int id, int i, int fanOut) {
+		if (isMultinuc(groupId)) {
+			return (pick(MULTINUC_RELATIONS, groupId, 0));
+		} else if (i % fanOut == 0) {
+			return ("span");
+		}
+		return (pick(RST_RELATIONS, id, 0));
+	}
+
+	/**
+	 * Writes the given number of signals of the given source, which point to
+	 * the tokens of the given segment.
+	 */
+	private void writeSignals(Writer writer, String source, int segment, int signals) throws IOException {
+		int firstToken = (segment - 1) * getWordsPerSegment() + 1;
+		for (int j = 0; j < signals; j++) {
+			String[] signalType = SIGNAL_TYPES[(int) (random(segment, -j - 100) * SIGNAL_TYPES.length)];
+			String subtype = signalType[1 + (int) (random(segment, -j - 200) * (signalType.length - 1))];
+			String tokens;
+			if (getWordsPerSegment() == 0) {
+				tokens = "";
+			} else if (j % 2 == 0 || getWordsPerSegment() == 1) {
+				tokens = String.valueOf(firstToken + j % getWordsPerSegment());
+			} else {
+				int token = firstToken + (j - 1) % (getWordsPerSegment() - 1);
+				tokens = token + "," + (token + 1);
+			}
+			writer.write("      <signal source=\"" + source + "\" type=\"" + signalType[0] + "\" subtype=\"" + subtype + "\" tokens=\"" + tokens + "\"/>\n");
+		}
+	}
+
+	/**
+	 * Writes a corpus, the arguments are the directory, the number of
+	 * documents, the number of segments per document and optionally the file
+	 * ending (rs3 or rs4) and the seed.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: RSTCorpusGenerator <directory> <documents> <segments> [rs3|rs4] [seed]");
+			return;
+		}
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		generator.setSegments(Integer.parseInt(args[2]));
+		if (args.length > 4) {
+			generator.setSeed(Long.parseLong(args[4]));
+		}
+		generator.writeCorpus(new File(args[0]), Integer.parseInt(args[1]), args.length > 3 ? args[3] : RSTImporter.FILE_ENDING_RS4);
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import org.corpus_tools.peppermodules.rstModules.RST2SaltMapper;
+import org.corpus_tools.peppermodules.rstModules.RSTDiscourseIndex;
+import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.peppermodules.rstModules.models.CompactRSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.Signal;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.eclipse.emf.common.util.URI;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RSTCorpusGeneratorTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static String generate(RSTCorpusGenerator generator) throws IOException {
+		StringWriter writer = new StringWriter();
+		generator.write(writer, true);
+		return (writer.toString());
+	}
+
+	/**
+	 * Checks that the output only depends on the settings and the seed.
+	 */
+	@Test
+	public void testDeterministic() throws IOException {
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		String first = generate(generator);
+		assertEquals(first, generate(generator));
+		assertEquals(first, generate(new RSTCorpusGenerator()));
+		generator.setSeed(1);
+		assertNotEquals(first, generate(generator));
+	}
+
+	/**
+	 * Reads a generated rs4 document and checks the model and the Salt model
+	 * mapped from it.
+	 */
+	@Test
+	public void testGeneratedDocument() throws IOException {
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		generator.setSegments(500);
+		generator.setDepth(3);
+		generator.setWordsPerSegment(5);
+		generator.setSignalsPerRelation(1.5);
+		generator.setSecondaryEdgesPerSegment(0.5);
+		File file = tmpFolder.newFile("generated.rs4");
+		generator.write(file);
+		URI uri = URI.createFileURI(file.getAbsolutePath());
+
+		RSTDocument rstDocument = new RSTDocument(uri);
+		assertEquals(500, rstDocument.getSegments().size());
+		assertTrue(rstDocument.getGroups().size() > 0);
+		// all nodes except of the root have a parent
+		assertEquals(500 + rstDocument.getGroups().size() - 1, rstDocument.getRelations().size());
+		assertEquals(249, rstDocument.getSecondaryEdges().size());
+		assertTrue(rstDocument.getSignals().size() > 500);
+		for (Signal signal : rstDocument.getSignals()) {
+			for (int token : signal.getTokens()) {
+				assertTrue(token >= 1 && token <= 2500);
+			}
+		}
+
+		CompactRSTDocument compact = new CompactRSTDocument(uri, RSTDocument.Parser.SAX);
+		assertEquals(rstDocument.getSegments().size(), compact.getSegmentCount());
+		assertEquals(rstDocument.getSignals().size(), compact.getSignalCount());
+		assertEquals(rstDocument.getSecondaryEdges().size(), compact.getSecondaryEdgeCount());
+
+		RSTImporterProperties props = new RSTImporterProperties();
+		Properties properties = new Properties();
+		properties.put(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+		props.setPropertyValues(properties);
+		RST2SaltMapper mapper = new RST2SaltMapper();
+		mapper.setDocument(SaltFactory.createSDocument());
+		mapper.setProperties(props);
+		mapper.mapSDocument(rstDocument);
+		SDocumentGraph graph = mapper.getDocument().getDocumentGraph();
+		assertEquals(2500, graph.getTokens().size());
+		RSTDiscourseIndex index = RSTDiscourseIndex.get(graph);
+		assertEquals(rstDocument.getSignals().size(), index.getSignalCount());
+		for (int i = 0; i < index.getSignalCount(); i++) {
+			for (Object uuid : index.getSignalTokenUUIDs(i)) {
+				assertNotNull(uuid);
+			}
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocumentCache;
+import org.eclipse.emf.common.util.URI;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RSTDocumentCacheTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private File cacheDirectory = null;
+
+	@Before
+	public void setUp() throws IOException {
+		this.cacheDirectory = tmpFolder.newFolder("cache");
+	}
+
+	private File write(File file, String content) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content.getBytes(Charset.forName("UTF-8")));
+		}
+		return (file);
+	}
+
+	private RSTDocument load(File file, RSTDocumentCache cache) {
+		return (new RSTDocument(URI.createFileURI(file.getAbsolutePath()), Parser.SAX, cache));
+	}
+
+	/**
+	 * Loads a document twice and checks that the second time it is read from
+	 * the cache, also by another instance of the cache.
+	 */
+	@Test
+	public void testReadFromCache() throws IOException {
+		File file = write(new File(tmpFolder.getRoot(), "doc.rs4"), RSTDocumentTest.RS4);
+		RSTDocumentCache cache = new RSTDocumentCache(cacheDirectory, 1 << 20);
+		RSTDocument parsed = load(file, cache);
+		RSTDocumentTest.checkRS4(parsed);
+		assertEquals(1, cache.getMisses());
+		assertEquals(0, cache.getHits());
+		assertTrue(cache.getEntryFile(file).isFile());
+		assertEquals(cache.getEntryFile(file).length(), cache.getSize());
+
+		RSTDocument cached = load(file, cache);
+		assertEquals(1, cache.getHits());
+		RSTDocumentTest.checkRS4(cached);
+		assertArrayEquals(parsed.getSignals().get(0).getTokens(), cached.getSignals().get(0).getTokens());
+		assertEquals(parsed.getSignals().get(1).getSubtype(), cached.getSignals().get(1).getSubtype());
+		assertEquals(parsed.getSecondaryEdges().get(0).getRelationName(), cached.getSecondaryEdges().get(0).getRelationName());
+		assertEquals(parsed.getRelations().get(1).getName(), cached.getRelations().get(1).getName());
+		assertEquals(parsed.getGroups().get(0).getType(), cached.getGroups().get(0).getType());
+
+		RSTDocumentCache reopened = new RSTDocumentCache(cacheDirectory, 1 << 20);
+		assertEquals(cache.getSize(), reopened.getSize());
+		RSTDocumentTest.checkRS4(load(file, reopened));
+		assertEquals(1, reopened.getHits());
+	}
+
+	/**
+	 * Checks that an entry is used for a file only touched, but not for a
+	 * file whose content has changed with or without its size.
+	 */
+	@Test
+	public void testChangedFile() throws IOException {
+		File file = write(new File(tmpFolder.getRoot(), "doc.rs4"), RSTDocumentTest.RS4);
+		RSTDocumentCache cache = new RSTDocumentCache(cacheDirectory, 1 << 20);
+		load(file, cache);
+
+		assertTrue(file.setLastModified(file.lastModified() - 60000));
+		RSTDocumentTest.checkRS4(load(file, cache));
+		assertEquals(1, cache.getHits());
+		// the new modification time was written to the entry
+		load(file, cache);
+		assertEquals(2, cache.getHits());
+
+		long lastModified = file.lastModified();
+		write(file, RSTDocumentTest.RS4.replace("Harvard", "Harwood"));
+		assertTrue(file.setLastModified(lastModified + 60000));
+		assertEquals("Jim went to Harwood,", load(file, cache).getSegments().get(0).getText());
+		assertEquals(2, cache.getHits());
+
+		write(file, RSTDocumentTest.RS4.replace("Harvard", "Oxford"));
+		assertEquals("Jim went to Oxford,", load(file, cache).getSegments().get(0).getText());
+		assertEquals(2, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals("Jim went to Oxford,", load(file, cache).getSegments().get(0).getText());
+		assertEquals(3, cache.getHits());
+	}
+
+	/**
+	 * Truncates an entry and checks that the file is parsed again.
+	 */
+	@Test
+	public void testCorruptEntry() throws IOException {
+		File file = write(new File(tmpFolder.getRoot(), "doc.rs4"), RSTDocumentTest.RS4);
+		RSTDocumentCache cache = new RSTDocumentCache(cacheDirectory, 1 << 20);
+		load(file, cache);
+		try (RandomAccessFile entry = new RandomAccessFile(cache.getEntryFile(file), "rw")) {
+			entry.setLength(entry.length() / 2);
+		}
+		RSTDocumentTest.checkRS4(load(file, cache));
+		assertEquals(0, cache.getHits());
+		RSTDocumentTest.checkRS4(load(file, cache));
+		assertEquals(1, cache.getHits());
+	}
+
+	/**
+	 * Overwrites the length of the path and the number of strings of an entry
+	 * with negative and too large values and checks that each is treated as a
+	 * miss and the file is parsed again.
+	 */
+	@Test
+	public void testCorruptLength() throws IOException {
+		File file = write(new File(tmpFolder.getRoot(), "doc.rs4"), RSTDocumentTest.RS4);
+		RSTDocumentCache cache = new RSTDocumentCache(cacheDirectory, 1 << 20);
+		load(file, cache);
+		int pathLength = 56;
+		int stringCount = pathLength + 4 + file.getAbsolutePath().getBytes("UTF-8").length;
+		int hits = 0;
+		for (int position : new int[] { pathLength, stringCount }) {
+			for (int length : new int[] { -1, Integer.MAX_VALUE }) {
+				try (RandomAccessFile entry = new RandomAccessFile(cache.getEntryFile(file), "rw")) {
+					entry.seek(position);
+					entry.writeInt(length);
+				}
+				RSTDocumentTest.checkRS4(load(file, cache));
+				assertEquals(hits, cache.getHits());
+				RSTDocumentTest.checkRS4(load(file, cache));
+				assertEquals(++hits, cache.getHits());
+			}
+		}
+	}
+
+	/**
+	 * Fills a cache, which holds two entries, with three and checks that the
+	 * least recently used one is removed.
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		File[] files = new File[3];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = write(new File(tmpFolder.getRoot(), "doc" + i + ".rs4"), RSTDocumentTest.RS4);
+		}
+		RSTDocumentCache sizing = new RSTDocumentCache(tmpFolder.newFolder("sizing"), 1 << 20);
+		load(files[0], sizing);
+		long entrySize = sizing.getSize();
+
+		RSTDocumentCache cache = new RSTDocumentCache(cacheDirectory, entrySize * 5 / 2);
+		load(files[0], cache);
+		load(files[1], cache);
+		assertTrue(cache.getEntryFile(files[0]).setLastModified(System.currentTimeMillis() - 60000));
+		assertTrue(cache.getEntryFile(files[1]).setLastModified(System.currentTimeMillis() - 120000));
+		// reading the first entry makes it the most recently used one
+		load(files[0], cache);
+		load(files[2], cache);
+
+		assertTrue(cache.getEntryFile(files[0]).isFile());
+		assertFalse(cache.getEntryFile(files[1]).isFile());
+		assertTrue(cache.getEntryFile(files[2]).isFile());
+		assertEquals(2 * entrySize, cache.getSize());
+	}
+}
@@ -0,0 +1,530 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+import org.corpus_tools.peppermodules.rstModules.models.AbstractNode;
+import org.corpus_tools.peppermodules.rstModules.models.CompactRSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
+import org.corpus_tools.peppermodules.rstModules.models.RSTException;
+import org.corpus_tools.peppermodules.rstModules.models.Relation;
+import org.corpus_tools.peppermodules.rstModules.models.Segment;
+import org.corpus_tools.peppermodules.rstModules.models.Signal;
+import org.corpus_tools.peppermodules.rstModules.reader.CompressedInput;
+import org.corpus_tools.peppermodules.rstModules.reader.FileChannelReader;
+import org.corpus_tools.peppermodules.rstModules.reader.RSTReader;
+import org.corpus_tools.peppermodules.rstModules.reader.SAXParserPool;
+import org.eclipse.emf.common.util.URI;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+public class RSTDocumentTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/**
+	 * A small rs4 document, in which segments refer to a group declared after
+	 * them.
+	 */
+	public static final String RS4 = "<?xml version='1.0' encoding='utf-8'?>\n"
+			+ "<rst>\n"
+			+ "  <header>\n"
+			+ "    <relations>\n"
+			+ "      <rel name=\"joint\" type=\"multinuc\"/>\n"
+			+ "      <rel name=\"elaboration\" type=\"rst\"/>\n"
+			+ "    </relations>\n"
+			+ "    <sigtypes>\n"
+			+ "      <sig type=\"lexical\" subtypes=\"indicative_word;alternate_expression\"/>\n"
+			+ "    </sigtypes>\n"
+			+ "  </header>\n"
+			+ "  <body>\n"
+			+ "    <segment id=\"1\" parent=\"4\" relname=\"joint\">Jim went to Harvard,</segment>\n"
+			+ "    <segment id=\"2\" parent=\"4\" relname=\"joint\">and John went\nto Yale.</segment>\n"
+			+ "    <segment id=\"3\" parent=\"4\" relname=\"elaboration\">Both attended good schools &amp; colleges.</segment>\n"
+			+ "    <group id=\"4\" type=\"multinuc\"/>\n"
+			+ "    <secedges>\n"
+			+ "      <secedge id=\"3-1\" source=\"3\" target=\"1\" relname=\"elaboration\"/>\n"
+			+ "    </secedges>\n"
+			+ "    <signals>\n"
+			+ "      <signal source=\"3\" type=\"lexical\" subtype=\"indicative_word\" tokens=\"9,10\"/>\n"
+			+ "      <signal source=\"3-1\" type=\"lexical\" subtype=\"alternate_expression\" tokens=\"\"/>\n"
+			+ "    </signals>\n"
+			+ "  </body>\n"
+			+ "</rst>\n";
+
+	/**
+	 * Writes the given content to a file in the temporary folder.
+	 */
+	protected File write(String name, String content, Charset charset) throws IOException {
+		File file = tmpFolder.newFile(name);
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content.getBytes(charset));
+		}
+		return (file);
+	}
+
+	/**
+	 * Checks that the model of {@link #RS4} was read completely.
+	 */
+	protected static void checkRS4(RSTDocument rstDocument) {
+		assertEquals(3, rstDocument.getSegments().size());
+		assertEquals(1, rstDocument.getGroups().size());
+		assertEquals(3, rstDocument.getRelations().size());
+		assertEquals(1, rstDocument.getSecondaryEdges().size());
+		assertEquals(2, rstDocument.getSignals().size());
+
+		assertEquals("Jim went to Harvard,", rstDocument.getSegments().get(0).getText());
+		assertEquals("and John wentto Yale.", rstDocument.getSegments().get(1).getText());
+		assertEquals("Both attended good schools & colleges.", rstDocument.getSegments().get(2).getText());
+
+		for (Relation relation : rstDocument.getRelations()) {
+			assertNotNull(relation.getParent());
+			assertEquals("4", relation.getParent().getId());
+		}
+		assertEquals("multinuc", rstDocument.getRelations().get(0).getType());
+		assertEquals("rst", rstDocument.getRelations().get(2).getType());
+
+		assertEquals("3", rstDocument.getSecondaryEdges().get(0).getSource().getId());
+		assertEquals("1", rstDocument.getSecondaryEdges().get(0).getTarget().getId());
+
+		assertEquals("3", rstDocument.getSignals().get(0).getSource().getId());
+		assertEquals(2, rstDocument.getSignals().get(0).getTokenIds().size());
+		assertEquals(Integer.valueOf(10), rstDocument.getSignals().get(0).getTokenIds().get(1));
+		assertArrayEquals(new int[] { 9, 10 }, rstDocument.getSignals().get(0).getTokens());
+		assertEquals("3-1", rstDocument.getSignals().get(1).getSource().getId());
+	}
+
+	@Test
+	public void testLoadWithSAX() throws IOException {
+		File file = write("doc.rs4", RS4, Charset.forName("UTF-8"));
+		checkRS4(new RSTDocument(URI.createFileURI(file.getAbsolutePath()), Parser.SAX));
+	}
+
+	@Test
+	public void testLoadWithStAX() throws IOException {
+		File file = write("doc.rs4", RS4, Charset.forName("UTF-8"));
+		checkRS4(new RSTDocument(URI.createFileURI(file.getAbsolutePath()), Parser.STAX));
+	}
+
+	/**
+	 * Loads some documents one after another and checks that the SAX parser
+	 * is reused instead of created for each document.
+	 */
+	@Test
+	public void testSAXParserReuse() throws IOException {
+		File file = write("doc.rs4", RS4, Charset.forName("UTF-8"));
+		new RSTDocument(URI.createFileURI(file.getAbsolutePath()), Parser.SAX);
+		long creations = SAXParserPool.getCreations();
+		long reuses = SAXParserPool.getReuses();
+		for (int i = 0; i < 3; i++) {
+			checkRS4(new RSTDocument(URI.createFileURI(file.getAbsolutePath()), Parser.SAX));
+		}
+		assertEquals(creations, SAXParserPool.getCreations());
+		assertEquals(reuses + 3, SAXParserPool.getReuses());
+	}
+
+	/**
+	 * Reads a document in the encoding given by its XML declaration.
+	 */
+	@Test
+	public void testLoadDeclaredEncoding() throws IOException {
+		String content = "<?xml version='1.0' encoding='iso-8859-1'?>\n<rst><body><segment id=\"1\">Gr\u00fc\u00dfe</segment></body></rst>";
+		File file = write("latin1.rs3", content, Charset.forName("ISO-8859-1"));
+		for (Parser parser : Parser.values()) {
+			RSTDocument rstDocument = new RSTDocument(URI.createFileURI(file.getAbsolutePath()), parser);
+			assertEquals("Gr\u00fc\u00dfe", rstDocument.getSegments().get(0).getText());
+		}
+	}
+
+	/**
+	 * Reads a document in UTF-16 starting with a byte order mark.
+	 */
+	@Test
+	public void testLoadByteOrderMark() throws IOException {
+		File file = write("utf16.rs4", "\uFEFF" + RS4.replace("utf-8", "utf-16"), Charset.forName("UTF-16LE"));
+		for (Parser parser : Parser.values()) {
+			checkRS4(new RSTDocument(URI.createFileURI(file.getAbsolutePath()), parser));
+		}
+	}
+
+	/**
+	 * Reads a file containing characters of one to four bytes with the
+	 * {@link FileChannelReader}, read into a buffer and mapped in windows
+	 * splitting characters.
+	 */
+	@Test
+	public void testFileChannelReader() throws IOException {
+		StringBuilder text = new StringBuilder("<?xml version='1.0' encoding='utf-8'?>\n");
+		for (int i = 0; text.length() < 200000; i++) {
+			text.append("a\u00fc\u20ac\uD83D\uDE00").append(i);
+		}
+		String content = text.toString();
+		File utf8 = write("large.rs3", "\uFEFF" + content, Charset.forName("UTF-8"));
+		File utf16 = write("large16.rs3", "\uFEFF" + content, Charset.forName("UTF-16BE"));
+		for (File file : new File[] { utf8, utf16 }) {
+			for (long[] mapping : new long[][] { { Long.MAX_VALUE, 0 }, { 0, 4099 }, { 0, 16 }, { 0, Long.MAX_VALUE } }) {
+				StringBuilder read = new StringBuilder();
+				char[] buffer = new char[1000];
+				try (Reader reader = new FileChannelReader(file, mapping[0], mapping[1])) {
+					int n;
+					while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+						read.append(buffer, 0, n);
+					}
+				}
+				assertEquals(file.getName() + " " + mapping[1], content, read.toString());
+			}
+		}
+	}
+
+	/**
+	 * Checks that a malformed document is reported with the position of the
+	 * error.
+	 */
+	@Test
+	public void testLoadMalformed() throws IOException {
+		File file = write("malformed.rs3", "<?xml version='1.0' encoding='utf-8'?>\n<rst>\n<body>\n<segment id=\"1\">text</group>\n</body>\n</rst>", Charset.forName("UTF-8"));
+		for (Parser parser : Parser.values()) {
+			try {
+				new RSTDocument(URI.createFileURI(file.getAbsolutePath()), parser);
+				fail("A malformed document must not be loaded.");
+			} catch (RSTException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("line 4"));
+			}
+		}
+	}
+
+	/**
+	 * Reads a gzip compressed document and documents from a zip archive, one
+	 * of them compressed with gzip as well.
+	 */
+	@Test
+	public void testLoadCompressed() throws IOException {
+		byte[] content = RS4.getBytes(Charset.forName("UTF-8"));
+		File gzip = tmpFolder.newFile("doc.rs4.gz");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzip))) {
+			out.write(content);
+		}
+		File archive = tmpFolder.newFile("corpus.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+			out.putNextEntry(new ZipEntry("folder/doc 1.rs4"));
+			out.write(content);
+			out.putNextEntry(new ZipEntry("doc2.rs4.gz"));
+			GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+			gzipOut.write(content);
+			gzipOut.finish();
+			out.closeEntry();
+		}
+		for (Parser parser : Parser.values()) {
+			checkRS4(new RSTDocument(URI.createFileURI(gzip.getAbsolutePath()), parser));
+			checkRS4(new RSTDocument(CompressedInput.createArchiveURI(archive, "folder/doc 1.rs4"), parser));
+			checkRS4(new RSTDocument(CompressedInput.createArchiveURI(archive, "doc2.rs4.gz"), parser));
+			try {
+				new RSTDocument(CompressedInput.createArchiveURI(archive, "missing.rs4"), parser);
+				fail("A missing entry must not be loaded.");
+			} catch (RSTException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("corpus.zip!/missing.rs4"));
+			}
+		}
+	}
+
+	/**
+	 * Passes the text of segments in several text nodes to the
+	 * {@link RSTReader} and checks that line breaks are removed also at the
+	 * borders of the nodes and that the text of one segment does not leak
+	 * into the next.
+	 */
+	@Test
+	public void testSegmentTextAcrossTextNodes() throws SAXException {
+		RSTDocument rstDocument = new RSTDocument();
+		RSTReader rstReader = new RSTReader();
+		rstReader.setRSTDocument(rstDocument);
+		AttributesImpl attributes = new AttributesImpl();
+		rstReader.startElement("", "rst", "rst", attributes);
+		rstReader.startElement("", "body", "body", attributes);
+		char[] text = "\nJim went\n\nto Harvard,\n".toCharArray();
+		attributes.addAttribute("", "id", "id", "CDATA", "1");
+		rstReader.startElement("", "segment", "segment", attributes);
+		rstReader.characters(text, 0, 5);
+		rstReader.characters(text, 5, 5);
+		rstReader.characters(text, 10, text.length - 10);
+		rstReader.endElement("", "segment", "segment");
+		attributes.setValue(0, "2");
+		rstReader.startElement("", "segment", "segment", attributes);
+		rstReader.endElement("", "segment", "segment");
+		attributes.setValue(0, "3");
+		rstReader.startElement("", "segment", "segment", attributes);
+		rstReader.characters(text, 0, 1);
+		rstReader.endElement("", "segment", "segment");
+		rstReader.characters(text, 1, 3);
+		rstReader.endElement("", "body", "body");
+		rstReader.endElement("", "rst", "rst");
+
+		assertEquals("Jim wentto Harvard,", rstDocument.getSegments().get(0).getText());
+		assertNull(rstDocument.getSegments().get(1).getText());
+		assertEquals("", rstDocument.getSegments().get(2).getText());
+	}
+
+	/**
+	 * Checks that incoming and outgoing relations are found, also when the
+	 * parent is declared after its children, or relations are added after the
+	 * lookups were built.
+	 */
+	@Test
+	public void testRelationLookup() throws IOException {
+		File file = write("lookup.rs4", RS4, Charset.forName("UTF-8"));
+		RSTDocument rstDocument = new RSTDocument(URI.createFileURI(file.getAbsolutePath()));
+
+		assertEquals(3, rstDocument.getOutgoingRelations("4").size());
+		assertEquals("4", rstDocument.getOutgoingRelation("4").getParent().getId());
+		assertEquals(1, rstDocument.getIncomingRelations("1").size());
+		assertEquals("joint", rstDocument.getIncomingRelations("1").get(0).getName());
+		assertNull(rstDocument.getIncomingRelations("4"));
+		assertNull(rstDocument.getOutgoingRelation("1"));
+
+		Relation relation = new Relation();
+		relation.setParent(rstDocument.getSegments().get(0));
+		relation.setChild(rstDocument.getSegments().get(1));
+		rstDocument.addRelation(relation);
+		assertEquals(relation, rstDocument.getOutgoingRelation("1"));
+
+		relation.setParent(rstDocument.getSegments().get(2));
+		assertNull(rstDocument.getOutgoingRelation("1"));
+		assertEquals(relation, rstDocument.getOutgoingRelation("3"));
+		assertEquals(2, rstDocument.getIncomingRelations("2").size());
+	}
+
+	/**
+	 * Checks that the lookups follow a relation, whose parent and child are
+	 * changed by its setters, and a relation removed and added again.
+	 */
+	@Test
+	public void testRelationLookupAfterReparenting() throws IOException {
+		File file = write("reparent.rs4", RS4, Charset.forName("UTF-8"));
+		RSTDocument rstDocument = new RSTDocument(URI.createFileURI(file.getAbsolutePath()));
+		Relation relation = rstDocument.getIncomingRelations("1").get(0);
+		assertEquals("4", relation.getParent().getId());
+		int outgoing = rstDocument.getOutgoingRelations("4").size();
+
+		relation.setParent(rstDocument.getSegments().get(1));
+		assertEquals(outgoing - 1, rstDocument.getOutgoingRelations("4").size());
+		assertFalse(rstDocument.getOutgoingRelations("4").contains(relation));
+		assertEquals(relation, rstDocument.getOutgoingRelation("2"));
+
+		relation.setChild(rstDocument.getSegments().get(2));
+		assertNull(rstDocument.getIncomingRelations("1"));
+		assertTrue(rstDocument.getIncomingRelations("3").contains(relation));
+
+		int size = rstDocument.getRelations().size();
+		assertTrue(rstDocument.removeRelation(relation));
+		assertNull(rstDocument.getOutgoingRelation("2"));
+		assertFalse(rstDocument.getIncomingRelations("3").contains(relation));
+		relation.setParent(rstDocument.getSegments().get(0));
+		assertNull(rstDocument.getOutgoingRelation("1"));
+
+		rstDocument.addRelation(relation);
+		assertEquals(size, rstDocument.getRelations().size());
+		assertEquals(relation, rstDocument.getOutgoingRelation("1"));
+		assertTrue(rstDocument.getIncomingRelations("3").contains(relation));
+	}
+
+	/**
+	 * Checks that the lookups follow changes made through the list of
+	 * relations and changes of the id of a node.
+	 */
+	@Test
+	public void testRelationLookupAfterListChanges() throws IOException {
+		File file = write("list.rs4", RS4, Charset.forName("UTF-8"));
+		RSTDocument rstDocument = new RSTDocument(URI.createFileURI(file.getAbsolutePath()));
+		assertNull(rstDocument.getOutgoingRelation("1"));
+
+		Relation relation = new Relation();
+		relation.setParent(rstDocument.getSegments().get(0));
+		relation.setChild(rstDocument.getSegments().get(1));
+		rstDocument.getRelations().add(relation);
+		assertEquals(relation, rstDocument.getOutgoingRelation("1"));
+		assertTrue(rstDocument.getIncomingRelations("2").contains(relation));
+
+		Relation replacement = new Relation();
+		replacement.setParent(rstDocument.getSegments().get(2));
+		rstDocument.getRelations().set(rstDocument.getRelations().size() - 1, replacement);
+		assertNull(rstDocument.getOutgoingRelation("1"));
+		assertEquals(replacement, rstDocument.getOutgoingRelation("3"));
+
+		for (Iterator<Relation> iter = rstDocument.getRelations().iterator(); iter.hasNext();) {
+			if (iter.next() == replacement) {
+				iter.remove();
+			}
+		}
+		assertNull(rstDocument.getOutgoingRelation("3"));
+
+		// the relations of a node follow its id
+		rstDocument.getSegments().get(0).setId("renamed");
+		assertNull(rstDocument.getIncomingRelations("1"));
+		assertEquals(1, rstDocument.getIncomingRelations("renamed").size());
+		assertEquals("joint", rstDocument.getIncomingRelations("renamed").get(0).getName());
+		AbstractNode group = rstDocument.getIncomingRelations("renamed").get(0).getParent();
+		int outgoing = rstDocument.getOutgoingRelations(group.getId()).size();
+		group.setId("top");
+		assertEquals(outgoing, rstDocument.getOutgoingRelations("top").size());
+
+		try {
+			rstDocument.getRelations().add(rstDocument.getRelations().get(0));
+			fail("a relation must not be contained twice");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		rstDocument.getRelations().clear();
+		assertNull(rstDocument.getOutgoingRelations("top"));
+	}
+
+	/**
+	 * Checks that a {@link CompactRSTDocument} contains the same segments,
+	 * groups, relations, signals and secondary edges as the corresponding
+	 * {@link RSTDocument}.
+	 */
+	@Test
+	public void testLoadCompact() throws IOException {
+		File file = write("compact.rs4", RS4, Charset.forName("UTF-8"));
+		URI uri = URI.createFileURI(file.getAbsolutePath());
+		RSTDocument rstDocument = new RSTDocument(uri);
+		for (Parser parser : Parser.values()) {
+			CompactRSTDocument compact = new CompactRSTDocument(uri, parser);
+
+			assertEquals(rstDocument.getSegments().size(), compact.getSegmentCount());
+			for (int i = 0; i < compact.getSegmentCount(); i++) {
+				Segment segment = rstDocument.getSegments().get(i);
+				assertEquals(segment.getId(), compact.getSegmentId(i));
+				assertEquals(segment.getType(), compact.getSegmentType(i));
+				assertEquals(segment.getText(), compact.getSegmentText(i));
+			}
+			assertEquals(1, compact.getGroupCount());
+			assertEquals("4", compact.getGroupId(0));
+			assertEquals("multinuc", compact.getGroupType(0));
+
+			assertEquals(rstDocument.getRelations().size(), compact.getRelationCount());
+			for (int i = 0; i < compact.getRelationCount(); i++) {
+				Relation relation = rstDocument.getRelations().get(i);
+				assertEquals(relation.getParent().getId(), compact.getRelationParentId(i));
+				assertEquals(relation.getChild().getId(), compact.getRelationChildId(i));
+				assertEquals(relation.getName(), compact.getRelationName(i));
+				assertEquals(relation.getType(), compact.getRelationType(i));
+			}
+
+			assertEquals(1, compact.getSecondaryEdgeCount());
+			assertEquals("3-1", compact.getSecondaryEdgeId(0));
+			assertEquals("3", compact.getSecondaryEdgeSourceId(0));
+			assertEquals("1", compact.getSecondaryEdgeTargetId(0));
+			assertEquals("elaboration", compact.getSecondaryEdgeRelationName(0));
+
+			assertEquals(2, compact.getSignalCount());
+			assertEquals("3", compact.getSignalSourceId(0));
+			assertEquals("indicative_word", compact.getSignalSubtype(0));
+			assertArrayEquals(new int[] { 9, 10 }, compact.getSignalTokenIds(0));
+			assertEquals("3-1", compact.getSignalSourceId(1));
+			assertEquals(0, compact.getSignalTokenIds(1).length);
+
+			// multinuc, rst, joint, elaboration, lexical, indicative_word and
+			// alternate_expression are stored once
+			assertEquals(7, compact.getDictionarySize());
+			assertEquals(5, compact.getNodeCount());
+		}
+	}
+
+	/**
+	 * Checks that a relation to a parent, which is never declared, has no
+	 * parent in a {@link CompactRSTDocument}.
+	 */
+	@Test
+	public void testCompactUndeclaredParent() {
+		CompactRSTDocument compact = new CompactRSTDocument();
+		compact.addSegment("1", null, "2", "elaboration", "rst");
+		compact.setText("text");
+		compact.trim();
+		assertEquals(1, compact.getRelationCount());
+		assertNull(compact.getRelationParentId(0));
+		assertEquals("1", compact.getRelationChildId(0));
+		assertEquals("text", compact.getSegmentText(0));
+	}
+
+	/**
+	 * Checks reading the token ids of a signal.
+	 */
+	@Test
+	public void testParseTokenIds() {
+		assertArrayEquals(new int[] { 9, 10 }, Signal.parseTokenIds("9,10"));
+		assertArrayEquals(new int[] { 1, 22, 333 }, Signal.parseTokenIds(" 1, 22 ,333,"));
+		assertArrayEquals(new int[] { 7 }, Signal.parseTokenIds("7"));
+		assertArrayEquals(new int[0], Signal.parseTokenIds(" "));
+		for (String malformed : new String[] { "1,,2", "1;2", "a", "99999999999", "-1", "1, -2" }) {
+			try {
+				Signal.parseTokenIds(malformed);
+				fail("The token ids '" + malformed + "' must not be read.");
+			} catch (RSTException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Checks that the list of token ids writes to the ids of the signal.
+	 */
+	@Test
+	public void testTokenIdsList() {
+		Signal signal = new Signal();
+		assertNull(signal.getTokenIds());
+		signal.setTokens(new int[] { 1, 2 });
+		List<Integer> tokenIds = signal.getTokenIds();
+		tokenIds.add(3);
+		tokenIds.set(0, 4);
+		tokenIds.remove(1);
+		assertArrayEquals(new int[] { 4, 3 }, signal.getTokens());
+		signal.setTokens(new int[] { 5 });
+		assertEquals(Arrays.asList(5), tokenIds);
+		signal.setTokenIds(Arrays.asList(6, 7));
+		assertArrayEquals(new int[] { 6, 7 }, signal.getTokens());
+		tokenIds.clear();
+		assertArrayEquals(new int[0], signal.getTokens());
+	}
+}
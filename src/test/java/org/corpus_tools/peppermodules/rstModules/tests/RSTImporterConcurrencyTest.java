@@ -0,0 +1,145 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.rstModules.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
+import org.corpus_tools.pepper.modules.PepperMapper;
+import org.corpus_tools.peppermodules.rstModules.RSTDiscourseIndex;
+import org.corpus_tools.peppermodules.rstModules.RSTImporter;
+import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocument;
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.eclipse.emf.common.util.URI;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Maps the documents of a generated corpus with many mappers of one
+ * {@link RSTImporter} in parallel and checks that each document results in
+ * the same Salt model as when mapped alone.
+ */
+public class RSTImporterConcurrencyTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static final int DOCUMENTS = 16;
+
+	private RSTImporter importer = null;
+
+	private List<File> files = null;
+
+	@Before
+	public void setUp() throws IOException {
+		this.importer = new RSTImporter();
+		// all mappers share the properties of the importer, as in Pepper
+		Properties properties = new Properties();
+		properties.put(RSTImporterProperties.PROP_BATCH_TOKENIZE, "yes");
+		this.importer.getProperties().setPropertyValues(properties);
+		this.files = new ArrayList<>();
+		RSTCorpusGenerator generator = new RSTCorpusGenerator();
+		generator.setDepth(3);
+		generator.setSecondaryEdgesPerSegment(0.2);
+		for (int i = 0; i < DOCUMENTS; i++) {
+			File file = tmpFolder.newFile("doc" + i + ".rs4");
+			generator.setSeed(i);
+			generator.setSegments(20 + 5 * i);
+			generator.write(file);
+			this.files.add(file);
+		}
+	}
+
+	/**
+	 * Maps the document at the given index with a new mapper of the importer
+	 * and returns a fingerprint of the resulting graph.
+	 */
+	private String map(int index) {
+		SDocument document = SaltFactory.createSDocument();
+		document.setId("salt:/corpus/doc" + index);
+		PepperMapper mapper = this.importer.createPepperMapper(document.getIdentifier());
+		mapper.setDocument(document);
+		mapper.setResourceURI(URI.createFileURI(this.files.get(index).getAbsolutePath()));
+		mapper.setProperties(this.importer.getProperties());
+		assertEquals(DOCUMENT_STATUS.COMPLETED, mapper.mapSDocument());
+
+		SDocumentGraph graph = document.getDocumentGraph();
+		StringBuilder fingerprint = new StringBuilder();
+		fingerprint.append(graph.getTextualDSs().get(0).getText()).append('\n');
+		fingerprint.append(graph.getDominanceRelations().size()).append('\n');
+		RSTDiscourseIndex discourseIndex = RSTDiscourseIndex.get(graph);
+		for (int i = 0; i < discourseIndex.getStructureCount(); i++) {
+			fingerprint.append(discourseIndex.getStructureId(i)).append('=').append(discourseIndex.getStructureUUID(i)).append('\n');
+		}
+		for (int i = 0; i < discourseIndex.getTokenCount(); i++) {
+			fingerprint.append(discourseIndex.getTokenUUID(i)).append('\n');
+		}
+		for (int i = 0; i < discourseIndex.getSignalCount(); i++) {
+			fingerprint.append(discourseIndex.getSignalTokenUUIDs(i)).append('\n');
+		}
+		return (fingerprint.toString());
+	}
+
+	/**
+	 * Maps all documents several times with more threads than documents in
+	 * flight and compares each result with the one mapped alone.
+	 */
+	@Test
+	public void testParallelMapping() throws Exception {
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < DOCUMENTS; i++) {
+			expected.add(map(i));
+		}
+
+		int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int round = 0; round < 3; round++) {
+				for (int i = 0; i < DOCUMENTS; i++) {
+					final int index = i;
+					results.add(executor.submit(new Callable<String>() {
+						@Override
+						public String call() {
+							return (map(index));
+						}
+					}));
+				}
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("document " + (i % DOCUMENTS), expected.get(i % DOCUMENTS), results.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
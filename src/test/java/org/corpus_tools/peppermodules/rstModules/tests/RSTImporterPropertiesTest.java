@@ -18,11 +18,17 @@
 package org.corpus_tools.peppermodules.rstModules.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Properties;
 
+import org.corpus_tools.pepper.modules.PepperModuleProperty;
+import org.corpus_tools.pepper.modules.exceptions.PepperModulePropertyException;
 import org.corpus_tools.peppermodules.rstModules.RSTImporterProperties;
+import org.corpus_tools.peppermodules.rstModules.RSTImporterSettings;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument.Parser;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -101,4 +107,117 @@ public class RSTImporterPropertiesTest {
 		assertEquals(new Character(','), getFixture().getSimpleTokenizationSeparators().get(2));
 		assertEquals(new Character('\\'), getFixture().getSimpleTokenizationSeparators().get(3));
 	}
+
+	/**
+	 * Checks that the settings contain the values of the properties at the
+	 * time they were created.
+	 */
+	@Test
+	public void testSettings() {
+		Properties props = new Properties();
+		props.put(RSTImporterProperties.PROP_TOKENIZE, "No");
+		props.put(RSTImporterProperties.PROP_COMPACT_MODEL, "yes");
+		props.put(RSTImporterProperties.PROP_PARSER, "stax");
+		props.put(RSTImporterProperties.PROP_NODE_KIND_NAME, "nodeKind");
+		props.put(RSTImporterProperties.PROP_SIMPLE_TOKENIZE, "' '");
+		getFixture().setPropertyValues(props);
+		RSTImporterSettings settings = getFixture().createSettings();
+
+		props.put(RSTImporterProperties.PROP_NODE_KIND_NAME, "other");
+		getFixture().setPropertyValues(props);
+
+		assertFalse(settings.isToTokenize());
+		assertTrue(settings.isToUseCompactModel());
+		assertFalse(settings.isToBatchTokenize());
+		assertEquals(Parser.STAX, settings.getParser());
+		assertEquals("nodeKind", settings.getNodeKindName());
+		assertEquals("type", settings.getNodeTypeName());
+		assertEquals("relname", settings.getRelationName());
+		assertEquals(" ", settings.getSegmentSeparator());
+		assertEquals(1, settings.getSimpleTokenizationSeparators().size());
+		assertEquals(null, settings.getStatisticsFile());
+	}
+
+	/**
+	 * Checks that a value of a yes/no property other than 'yes' or 'no' is
+	 * rejected when it is set and when settings are created.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testInvalidYesNo() {
+		Properties props = new Properties();
+		props.put(RSTImporterProperties.PROP_BATCH_TOKENIZE, "true");
+		try {
+			getFixture().setPropertyValues(props);
+			fail("An invalid yes/no value must be rejected.");
+		} catch (PepperModulePropertyException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(RSTImporterProperties.PROP_BATCH_TOKENIZE));
+		}
+		this.setFixture(new RSTImporterProperties());
+		((PepperModuleProperty<String>) getFixture().getProperty(RSTImporterProperties.PROP_COMPACT_MODEL)).setValue("1");
+		try {
+			getFixture().createSettings();
+			fail("An invalid yes/no value must be rejected.");
+		} catch (PepperModulePropertyException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(RSTImporterProperties.PROP_COMPACT_MODEL));
+		}
+	}
+
+	/**
+	 * Checks that the parser is case insensitive and an unknown parser is
+	 * rejected when it is set and when settings are created.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testInvalidParser() {
+		assertEquals(Parser.SAX, getFixture().getParser());
+		Properties props = new Properties();
+		props.put(RSTImporterProperties.PROP_PARSER, " StAX ");
+		getFixture().setPropertyValues(props);
+		assertEquals(Parser.STAX, getFixture().getParser());
+
+		this.setFixture(new RSTImporterProperties());
+		props.put(RSTImporterProperties.PROP_PARSER, "dom");
+		try {
+			getFixture().setPropertyValues(props);
+			fail("An unknown parser must be rejected.");
+		} catch (PepperModulePropertyException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(RSTImporterProperties.PROP_PARSER));
+		}
+		this.setFixture(new RSTImporterProperties());
+		((PepperModuleProperty<String>) getFixture().getProperty(RSTImporterProperties.PROP_PARSER)).setValue("xerces");
+		try {
+			getFixture().createSettings();
+			fail("An unknown parser must be rejected.");
+		} catch (PepperModulePropertyException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(RSTImporterProperties.PROP_PARSER));
+		}
+	}
+
+	/**
+	 * Checks that the compact model cannot be combined with the cache, which
+	 * it does not support.
+	 */
+	@Test
+	public void testCompactModelCombinations() {
+		String[][] unsupported = { { RSTImporterProperties.PROP_CACHE_DIRECTORY, "cache" } };
+		for (String[] keyValue : unsupported) {
+			this.setFixture(new RSTImporterProperties());
+			Properties props = new Properties();
+			props.put(RSTImporterProperties.PROP_COMPACT_MODEL, "yes");
+			props.put(keyValue[0], keyValue[1]);
+			try {
+				getFixture().setPropertyValues(props);
+				getFixture().createSettings();
+				fail("The compact model must not be combined with " + keyValue[0] + ".");
+			} catch (PepperModulePropertyException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains(keyValue[0]));
+			}
+		}
+		this.setFixture(new RSTImporterProperties());
+		Properties props = new Properties();
+		props.put(RSTImporterProperties.PROP_COMPACT_MODEL, "yes");
+		getFixture().setPropertyValues(props);
+		assertTrue(getFixture().createSettings().isToUseCompactModel());
+	}
 }
@@ -17,16 +17,40 @@
  */
 package org.corpus_tools.peppermodules.rstModules.tests;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.corpus_tools.pepper.common.CorpusDesc;
 import org.corpus_tools.pepper.common.FormatDesc;
 import org.corpus_tools.pepper.testFramework.PepperImporterTest;
 import org.corpus_tools.peppermodules.rstModules.RSTImporter;
+import org.corpus_tools.peppermodules.rstModules.models.RSTDocument;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SCorpusGraph;
+import org.corpus_tools.salt.common.SDocument;
 import org.eclipse.emf.common.util.URI;
 import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 
 public class RSTImporterTest extends PepperImporterTest {
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
 	@Before
 	public void setUp() {
 		setFixture(new RSTImporter());
@@ -40,4 +64,58 @@ public class RSTImporterTest extends PepperImporterTest {
 
 		this.setResourcesURI(URI.createFileURI(resFolder.getAbsolutePath()));
 	}
+
+	/**
+	 * Imports the corpus structure of a folder containing plain and gzip
+	 * compressed documents and a zip archive with documents in a sub folder
+	 * and checks that each document is found and can be read from its
+	 * resource.
+	 */
+	@Test
+	public void testImportCompressedCorpusStructure() throws IOException {
+		byte[] content = RSTDocumentTest.RS4.getBytes(Charset.forName("UTF-8"));
+		File corpus = tmpFolder.newFolder("corpus");
+		try (OutputStream out = new FileOutputStream(new File(corpus, "plain.rs4"))) {
+			out.write(content);
+		}
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(new File(corpus, "gzip.rs4.gz")))) {
+			out.write(content);
+		}
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(new File(corpus, "other.txt.gz")))) {
+			out.write(content);
+		}
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(new File(corpus, "archive.zip")))) {
+			out.putNextEntry(new ZipEntry("folder/"));
+			out.putNextEntry(new ZipEntry("folder/entry.rs4"));
+			out.write(content);
+			out.putNextEntry(new ZipEntry("readme.txt"));
+			out.write(content);
+			out.putNextEntry(new ZipEntry("gzipEntry.rs4.gz"));
+			GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+			gzipOut.write(content);
+			gzipOut.finish();
+			out.closeEntry();
+		}
+
+		RSTImporter importer = new RSTImporter();
+		CorpusDesc corpusDesc = new CorpusDesc();
+		corpusDesc.setCorpusPath(URI.createFileURI(corpus.getAbsolutePath()));
+		importer.setCorpusDesc(corpusDesc);
+		SCorpusGraph corpusGraph = SaltFactory.createSCorpusGraph();
+		importer.importCorpusStructure(corpusGraph);
+
+		Map<String, URI> documents = new TreeMap<>();
+		for (SDocument sDocument : corpusGraph.getDocuments()) {
+			URI resource = importer.getIdentifier2ResourceTable().get(sDocument.getIdentifier());
+			assertNotNull(sDocument.getId(), resource);
+			documents.put(sDocument.getId(), resource);
+			RSTDocumentTest.checkRS4(new RSTDocument(resource));
+		}
+		assertEquals(documents.toString(), 4, documents.size());
+		assertTrue(documents.toString(), documents.containsKey("salt:/corpus/plain"));
+		assertTrue(documents.toString(), documents.containsKey("salt:/corpus/gzip"));
+		assertTrue(documents.toString(), documents.containsKey("salt:/corpus/archive/folder/entry"));
+		assertTrue(documents.toString(), documents.containsKey("salt:/corpus/archive/gzipEntry"));
+		assertTrue(documents.get("salt:/corpus/archive/folder/entry").isArchive());
+	}
 }